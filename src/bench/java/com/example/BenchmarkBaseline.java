@@ -0,0 +1,202 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// ------------------------------------------------------------
+// Compares a JMH JSON result file against the stored baseline
+// ------------------------------------------------------------
+//
+// Usage: BenchmarkBaseline <baseline.json> <result.json> [tolerance]
+//
+// Benchmarks are keyed by name + mode + params. Scores are compared through
+// their confidence intervals (JMH's 99.9% scoreError): a benchmark regressed
+// only when even the best end of the new interval is worse than the worst
+// end of the baseline's by more than the tolerance (0.25 = 25%). A noisy
+// score (160 +- 200 ns) therefore cannot fail the build on noise alone;
+// more forks and iterations (jmh.args) narrow the intervals and sharpen the
+// gate. A regression makes the process exit with status 1. Benchmarks
+// missing from either side are reported but never fail the run; a missing
+// baseline file does.
+//
+// With -Djmh.record=true the results are written into the baseline instead:
+// only benchmark, mode, params, score, scoreError and unit, one benchmark per
+// line, merged over the existing entries (so a run of just the benchmarks a
+// change adds, e.g. -Djmh.args="... GreetingBenchmark", records only those).
+
+public final class BenchmarkBaseline {
+
+    private BenchmarkBaseline() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkBaseline <baseline.json> <result.json> [tolerance]");
+            System.exit(2);
+        }
+
+        Path baselineFile = Paths.get(args[0]);
+        Path resultFile = Paths.get(args[1]);
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.25;
+
+        if (Boolean.getBoolean("jmh.record")) {
+            record(baselineFile, resultFile);
+            return;
+        }
+        if (!Files.exists(baselineFile)) {
+            System.out.println("No baseline at " + baselineFile + "; record one with -Djmh.record=true");
+            System.exit(1);
+        }
+
+        Map<String, Score> baseline = load(baselineFile);
+        Map<String, Score> results = load(resultFile);
+
+        int regressions = 0;
+        for (Map.Entry<String, Score> e : results.entrySet()) {
+            Score now = e.getValue();
+            Score before = baseline.get(e.getKey());
+            if (before == null) {
+                System.out.printf("NEW        %-70s %12.3f %s%n", e.getKey(), now.value, now.unit);
+                continue;
+            }
+
+            boolean regressed = now.intervalChangeFrom(before) > tolerance;
+            if (regressed) regressions++;
+
+            System.out.printf("%-10s %-70s %12.3f +- %-10.3f -> %12.3f +- %-10.3f %s (%+.1f%%)%n",
+                    regressed ? "REGRESSED" : "ok", e.getKey(), before.value, before.error,
+                    now.value, now.error, now.unit, now.relativeChangeFrom(before) * 100);
+        }
+
+        for (String key : baseline.keySet()) {
+            if (!results.containsKey(key)) System.out.printf("MISSING    %s%n", key);
+        }
+
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) regressed by more than " + (tolerance * 100)
+                    + "% beyond their confidence intervals");
+            System.exit(1);
+        }
+    }
+
+    // Merges the results into the baseline file (existing entries keep their place)
+    private static void record(Path baselineFile, Path resultFile) throws Exception {
+        Map<String, Score> scores = Files.exists(baselineFile) ? load(baselineFile) : new LinkedHashMap<>();
+        Map<String, Score> results = load(resultFile);
+        scores.putAll(results);
+
+        StringBuilder sb = new StringBuilder("[\n");
+        int i = 0;
+        for (Score score : scores.values()) {
+            sb.append("  ").append(score.toJson()).append(++i < scores.size() ? ",\n" : "\n");
+        }
+        Files.write(baselineFile, sb.append("]\n").toString().getBytes(StandardCharsets.UTF_8));
+        System.out.println("Recorded " + results.size() + " benchmark(s) in " + baselineFile
+                + " (" + scores.size() + " in total)");
+    }
+
+    // ------------------------------------------------------------
+    // Result loading
+    // ------------------------------------------------------------
+
+    // Reads a JMH result file (-rf json) or a recorded baseline
+    private static Map<String, Score> load(Path file) throws Exception {
+        String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        Map<String, Score> scores = new LinkedHashMap<>();
+
+        for (Object item : Json.array(Json.parse(text))) {
+            Map<String, Object> run = Json.object(item);
+            Map<String, Object> metric = run.containsKey("primaryMetric") ? Json.object(run.get("primaryMetric")) : run;
+
+            // One benchmark can run in several modes (e.g. thrpt and sample)
+            StringBuilder key = new StringBuilder((String) run.get("benchmark"))
+                    .append(" [").append(run.get("mode")).append(']');
+            Object params = run.get("params");
+            if (params != null) {
+                for (Map.Entry<String, Object> p : Json.object(params).entrySet()) {
+                    key.append(' ').append(p.getKey()).append('=').append(p.getValue());
+                }
+            }
+
+            // scoreError is "NaN" (a string) when a run had too few iterations
+            Object error = metric.get("scoreError");
+            Object unit = metric.containsKey("scoreUnit") ? metric.get("scoreUnit") : metric.get("unit");
+            scores.put(key.toString(), new Score(
+                    (String) run.get("benchmark"), (String) run.get("mode"),
+                    params != null ? Json.object(params) : null,
+                    ((Number) metric.get("score")).doubleValue(),
+                    error instanceof Number ? ((Number) error).doubleValue() : 0,
+                    (String) unit));
+        }
+        return scores;
+    }
+
+    private static final class Score {
+        final String benchmark;
+        final String mode;
+        final Map<String, Object> params;   // null without @Param
+        final double value;
+        final double error;
+        final String unit;
+        final boolean higherIsBetter;
+
+        Score(String benchmark, String mode, Map<String, Object> params, double value, double error, String unit) {
+            this.benchmark = benchmark;
+            this.mode = mode;
+            this.params = params;
+            this.value = value;
+            this.error = Double.isFinite(error) ? Math.abs(error) : 0;
+            this.unit = unit;
+            this.higherIsBetter = "thrpt".equals(mode);
+        }
+
+        // One baseline entry
+        String toJson() {
+            StringBuilder sb = new StringBuilder("{\"benchmark\": ").append(Json.quote(benchmark))
+                    .append(", \"mode\": ").append(Json.quote(mode));
+            if (params != null) {
+                sb.append(", \"params\": {");
+                int i = 0;
+                for (Map.Entry<String, Object> p : params.entrySet()) {
+                    if (i++ > 0) sb.append(", ");
+                    sb.append(Json.quote(p.getKey())).append(": ").append(Json.quote(String.valueOf(p.getValue())));
+                }
+                sb.append('}');
+            }
+            return sb.append(", \"score\": ").append(decimal(value))
+                    .append(", \"scoreError\": ").append(decimal(error))
+                    .append(", \"unit\": ").append(Json.quote(unit)).append('}').toString();
+        }
+
+        // Five significant digits: plenty next to the intervals, and stable diffs
+        private static String decimal(double v) {
+            return new BigDecimal(v).round(new MathContext(5)).stripTrailingZeros().toPlainString();
+        }
+
+        // Positive = worse than the baseline
+        double relativeChangeFrom(Score baseline) {
+            if (baseline.value == 0) return 0;
+            double change = (value - baseline.value) / baseline.value;
+            return higherIsBetter ? -change : change;
+        }
+
+        // Same, between the closest ends of both intervals (<= 0 when they overlap)
+        double intervalChangeFrom(Score baseline) {
+            if (baseline.value == 0) return 0;
+            double gap = higherIsBetter
+                    ? (baseline.value - baseline.error) - (value + error)
+                    : (value - error) - (baseline.value + baseline.error);
+            return gap / baseline.value;
+        }
+    }
+}
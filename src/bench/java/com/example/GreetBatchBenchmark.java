@@ -0,0 +1,75 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+// ------------------------------------------------------------
+// 10k greetings: one /greet round trip each vs one POST /greet/batch
+// ------------------------------------------------------------
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GreetBatchBenchmark {
+
+    private static final int GREETINGS = 10_000;
+
+    private App app;
+    private HttpClient client;
+    private HttpRequest single;
+    private HttpRequest batch;
+
+    @Setup(Level.Trial)
+    public void startServer() throws Exception {
+        app = new App();
+        app.start(0);
+
+        String base = "http://127.0.0.1:" + app.port();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        single = HttpRequest.newBuilder(URI.create(base + "/greet?name=John+Smith&mode=pirate")).build();
+
+        StringBuilder records = new StringBuilder();
+        for (int i = 0; i < GREETINGS; i++) {
+            records.append("{\"name\":\"John Smith\",\"mode\":\"pirate\"}\n");
+        }
+        batch = HttpRequest.newBuilder(URI.create(base + "/greet/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(records.toString()))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() {
+        app.stop();
+    }
+
+    @Benchmark
+    public long singleCalls() throws Exception {
+        long bytes = 0;
+        for (int i = 0; i < GREETINGS; i++) {
+            bytes += client.send(single, HttpResponse.BodyHandlers.ofByteArray()).body().length;
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public long batch() throws Exception {
+        return client.send(batch, HttpResponse.BodyHandlers.ofByteArray()).body().length;
+    }
+}
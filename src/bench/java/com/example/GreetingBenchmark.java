@@ -0,0 +1,51 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// ------------------------------------------------------------
+// /greet body rendering: String reference vs pre-encoded renderer
+// ------------------------------------------------------------
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GreetingBenchmark {
+
+    @Param({"normal", "pirate"})
+    public String mode;
+
+    private App app;
+    private String query;
+    private ByteSink sink;
+    private long visitor;
+
+    @Setup
+    public void setup() {
+        app = new App();
+        query = "name=John Smith&mode=" + mode;
+        sink = new ByteSink(512);
+    }
+
+    @Benchmark
+    public String buildGreeting() {
+        return app.buildGreeting("John Smith", ++visitor, mode, 120);
+    }
+
+    @Benchmark
+    public int renderGreeting() {
+        return app.renderGreeting(sink.reset(), query, ++visitor, 120).length();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// ------------------------------------------------------------
+// /greet rendering as the number of greeting modes grows
+// ------------------------------------------------------------
+//
+// Requests rotate over 16 modes spread across the table (mixed case, as a
+// client might send them) while the table grows from the 2 built-ins to
+// thousands of modes. Lookup cost, and so the score, should stay flat.
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GreetingModeBenchmark {
+
+    @Param({"0", "100", "1000", "5000"})
+    public int extraModes;
+
+    private Path dir;
+    private GreetingRenderer renderer;
+    private String[] queries;
+    private ByteSink sink;
+    private int next;
+    private long visitor;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("greeting-modes");
+        for (int i = 0; i < extraModes; i++) {
+            String template = "Mode " + i + " says hi, {name}!\nYou are visitor #{visitor}\n"
+                    + "Greeting Mode: {mode}\nApp Mode: {appMode}\nPod: {pod}\nUptime: {uptime}s\n";
+            Files.write(dir.resolve("mode-" + i + GreetingModes.EXTENSION), template.getBytes(StandardCharsets.UTF_8));
+        }
+
+        GreetingModes modes = new GreetingModes(dir, "normal", Map.of(
+                "service", "harness-ci-lab", "version", "dev", "gitSha", "unknown",
+                "pod", "local", "instance", "0123abcd"));
+        renderer = new GreetingRenderer(modes);
+
+        queries = new String[1024];
+        for (int i = 0; i < queries.length; i++) {
+            String mode = extraModes == 0 ? (i % 2 == 0 ? "Pirate" : "normal") : "MODE-" + (i % 16) * (extraModes / 16);
+            queries[i] = "name=John Smith&mode=" + mode;
+        }
+        sink = new ByteSink(512);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public int render() {
+        String query = queries[next++ & (queries.length - 1)];
+        return renderer.render(sink.reset(), query, ++visitor, "normal", 120).length();
+    }
+}
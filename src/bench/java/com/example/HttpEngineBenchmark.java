@@ -0,0 +1,80 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+// ------------------------------------------------------------
+// jdk vs nio engine under concurrent keep-alive clients
+// ------------------------------------------------------------
+//
+// Throughput plus the latency distribution (SampleTime percentiles) for a
+// zero-copy cached body (/healthz) and a rendered one (/greet). Each JMH
+// thread is one client with its own connection.
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(8)
+public class HttpEngineBenchmark {
+
+    @Param({"jdk", "nio"})
+    public String engine;
+
+    private App app;
+    private String base;
+
+    @State(Scope.Thread)
+    public static class Client {
+        HttpClient http;
+        HttpRequest healthz;
+        HttpRequest greet;
+
+        @Setup(Level.Trial)
+        public void connect(HttpEngineBenchmark server) {
+            http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            healthz = HttpRequest.newBuilder(URI.create(server.base + "/healthz")).build();
+            greet = HttpRequest.newBuilder(URI.create(server.base + "/greet?name=John+Smith&mode=pirate")).build();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void startServer() throws Exception {
+        app = new App();
+        app.start(0, engine);
+        base = "http://127.0.0.1:" + app.port();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() {
+        app.stop();
+    }
+
+    @Benchmark
+    public int healthz(Client client) throws Exception {
+        return client.http.send(client.healthz, HttpResponse.BodyHandlers.ofByteArray()).body().length;
+    }
+
+    @Benchmark
+    public int greet(Client client) throws Exception {
+        return client.http.send(client.greet, HttpResponse.BodyHandlers.ofByteArray()).body().length;
+    }
+}
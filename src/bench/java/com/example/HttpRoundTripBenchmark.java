@@ -0,0 +1,69 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+// ------------------------------------------------------------
+// Full request path (routing + trackAndRespond) on an in-process server
+// ------------------------------------------------------------
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HttpRoundTripBenchmark {
+
+    private App app;
+    private HttpClient client;
+    private HttpRequest healthz;
+    private HttpRequest greet;
+    private HttpRequest metrics;
+
+    @Setup(Level.Trial)
+    public void startServer() throws Exception {
+        app = new App();
+        app.start(0);
+
+        String base = "http://127.0.0.1:" + app.port();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        healthz = HttpRequest.newBuilder(URI.create(base + "/healthz")).build();
+        greet = HttpRequest.newBuilder(URI.create(base + "/greet?name=John+Smith&mode=pirate")).build();
+        metrics = HttpRequest.newBuilder(URI.create(base + "/metrics")).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() {
+        app.stop();
+    }
+
+    @Benchmark
+    public int healthz() throws Exception {
+        return client.send(healthz, HttpResponse.BodyHandlers.ofByteArray()).body().length;
+    }
+
+    @Benchmark
+    public int greet() throws Exception {
+        return client.send(greet, HttpResponse.BodyHandlers.ofByteArray()).body().length;
+    }
+
+    @Benchmark
+    public int metrics() throws Exception {
+        return client.send(metrics, HttpResponse.BodyHandlers.ofByteArray()).body().length;
+    }
+}
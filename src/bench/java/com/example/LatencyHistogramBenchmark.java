@@ -0,0 +1,51 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+// ------------------------------------------------------------
+// Per-request recording overhead of the route latency histograms
+// ------------------------------------------------------------
+//
+// Budget: well under 1us per request, including both nanoTime() calls,
+// also when several request threads record into the same route.
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LatencyHistogramBenchmark {
+
+    private final RouteStats stats = new RouteStats("/greet");
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    private long value = 12_345;
+
+    @Benchmark
+    public void recordNanos() {
+        // Cheap LCG-ish spread so different slots are hit
+        value = (value * 31 + 7_919) & 0xFFFFFFF;
+        histogram.recordNanos(value);
+    }
+
+    @Benchmark
+    public void timeRequestSingleThread() {
+        stats.finish(stats.begin());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void timeRequestFourThreads() {
+        stats.finish(stats.begin());
+    }
+}
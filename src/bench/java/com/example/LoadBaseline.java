@@ -0,0 +1,183 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// ------------------------------------------------------------
+// Compares a LoadGenerator report against the stored baseline
+// ------------------------------------------------------------
+//
+// Usage: LoadBaseline <baseline.json> <report.json> [tolerance] [tailTolerance]
+//
+// Workloads are keyed by name (e.g. "closed:16", "open:1000"). Per workload:
+//   closed  throughput lower than the baseline by more than tolerance (0.25)
+//   both    mean latency higher by more than tolerance, or p99 higher by more
+//           than tailTolerance (1.0: the tail doubled); either also has to
+//           move by more than LATENCY_SLACK_MS, so sub-millisecond jitter on
+//           a fast route never fails a build. The tail gets more room: one
+//           histogram bucket is already ~25%, and a shared CI box is noisy.
+//   both    error rate higher by more than ERROR_RATE_SLACK
+// is a regression and makes the process exit with status 1. Workloads
+// missing from either side are reported but never fail the run.
+//
+// Absolute numbers only compare on the machine that produced them, so the
+// baseline is never committed: it lives on the runner that enforces the
+// gate (loadtest.baseline, under ~/.cache by default). A missing baseline,
+// or one from another target, duration or environment (cores, JVM, OS; see
+// LoadGenerator.environment()), also exits with status 1: a gate that
+// quietly adopts whatever it measured would pass any regression. Record or
+// refresh it explicitly with -Dloadtest.record=true, which copies the report
+// over the baseline and skips the comparison.
+
+public final class LoadBaseline {
+
+    static final double LATENCY_SLACK_MS = 1.0;
+    static final double ERROR_RATE_SLACK = 0.01;
+
+    private LoadBaseline() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: LoadBaseline <baseline.json> <report.json> [tolerance] [tailTolerance]");
+            System.exit(2);
+        }
+
+        Path baselineFile = Paths.get(args[0]);
+        Path reportFile = Paths.get(args[1]);
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.25;
+        double tailTolerance = args.length > 3 ? Double.parseDouble(args[3]) : 1.0;
+
+        if (Boolean.getBoolean("loadtest.record")) {
+            record(reportFile, baselineFile);
+            return;
+        }
+        if (!Files.exists(baselineFile)) {
+            System.out.println("No load test baseline at " + baselineFile
+                    + "; record one on this runner with -Dloadtest.record=true");
+            System.exit(1);
+        }
+        String baselineRun = fingerprint(baselineFile);
+        String reportRun = fingerprint(reportFile);
+        if (!baselineRun.equals(reportRun)) {
+            System.out.println("Load test baseline at " + baselineFile + " is from another setup ("
+                    + baselineRun + "; this run: " + reportRun
+                    + "), so nothing was compared; re-record it with -Dloadtest.record=true");
+            System.exit(1);
+        }
+
+        int regressions = compare(load(baselineFile), load(reportFile), tolerance, tailTolerance);
+        if (regressions > 0) {
+            System.out.println(regressions + " load test metric(s) regressed beyond the tolerance");
+            System.exit(1);
+        }
+    }
+
+    // Prints one line per compared metric; returns the number of regressions
+    static int compare(Map<String, Map<String, Object>> baseline, Map<String, Map<String, Object>> report,
+                       double tolerance, double tailTolerance) {
+        int regressions = 0;
+        for (Map.Entry<String, Map<String, Object>> e : report.entrySet()) {
+            String name = e.getKey();
+            Map<String, Object> now = e.getValue();
+            Map<String, Object> before = baseline.get(name);
+            if (before == null) {
+                System.out.printf("NEW        %-14s %10.1f req/s%n", name, number(now, "throughput"));
+                continue;
+            }
+
+            if ("closed".equals(now.get("mode"))) {
+                regressions += check(name, "throughput", number(before, "throughput"), number(now, "throughput"),
+                        "req/s", -relativeChange(number(before, "throughput"), number(now, "throughput")),
+                        tolerance);
+            }
+            Map<String, Object> latencyBefore = Json.object(before.get("latency"));
+            Map<String, Object> latencyNow = Json.object(now.get("latency"));
+            for (String metric : new String[] {"meanMs", "p99Ms"}) {
+                double b = number(latencyBefore, metric);
+                double n = number(latencyNow, metric);
+                double change = n - b > LATENCY_SLACK_MS ? relativeChange(b, n) : Math.min(0, relativeChange(b, n));
+                regressions += check(name, metric, b, n, "ms", change,
+                        "p99Ms".equals(metric) ? tailTolerance : tolerance);
+            }
+
+            double errorsBefore = errorRate(latencyBefore);
+            double errorsNow = errorRate(latencyNow);
+            boolean errorsRegressed = errorsNow > errorsBefore + ERROR_RATE_SLACK;
+            if (errorsRegressed) regressions++;
+            System.out.printf("%-10s %-14s %-12s %12.4f -> %12.4f%n",
+                    errorsRegressed ? "REGRESSED" : "ok", name, "errorRate", errorsBefore, errorsNow);
+        }
+
+        for (String name : baseline.keySet()) {
+            if (!report.containsKey(name)) System.out.printf("MISSING    %s%n", name);
+        }
+        return regressions;
+    }
+
+    private static int check(String workload, String metric, double before, double now, String unit,
+                             double change, double tolerance) {
+        boolean regressed = change > tolerance;
+        System.out.printf("%-10s %-14s %-12s %12.3f -> %12.3f %s (%+.1f%%)%n",
+                regressed ? "REGRESSED" : "ok", workload, metric, before, now, unit,
+                relativeChange(before, now) * 100);
+        return regressed ? 1 : 0;
+    }
+
+    // Makes this report the baseline; nothing is gated on this run
+    private static void record(Path reportFile, Path baselineFile) throws Exception {
+        Path parent = baselineFile.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Files.copy(reportFile, baselineFile, StandardCopyOption.REPLACE_EXISTING);
+        System.out.println("Recorded this run as the load test baseline at " + baselineFile
+                + " (" + fingerprint(baselineFile) + ")");
+    }
+
+    // ------------------------------------------------------------
+    // Report loading
+    // ------------------------------------------------------------
+
+    // Target, duration and environment: runs only compare when all three match
+    static String fingerprint(Path file) throws Exception {
+        Map<String, Object> report = Json.object(Json.parse(
+                new String(Files.readAllBytes(file), StandardCharsets.UTF_8)));
+        return report.get("target") + ", " + report.get("durationSeconds") + "s, " + report.get("environment");
+    }
+
+    static Map<String, Map<String, Object>> load(Path file) throws Exception {
+        return parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    static Map<String, Map<String, Object>> parse(String text) {
+        Map<String, Map<String, Object>> workloads = new LinkedHashMap<>();
+        for (Object item : Json.array(Json.object(Json.parse(text)).get("workloads"))) {
+            Map<String, Object> workload = Json.object(item);
+            workloads.put((String) workload.get("name"), workload);
+        }
+        return workloads;
+    }
+
+    private static double number(Map<String, Object> object, String key) {
+        Object value = object.get(key);
+        return value == null ? 0 : ((Number) value).doubleValue();
+    }
+
+    private static double errorRate(Map<String, Object> latency) {
+        double requests = number(latency, "requests");
+        return requests == 0 ? 0 : number(latency, "errors") / requests;
+    }
+
+    // Positive = higher than the baseline
+    private static double relativeChange(double before, double now) {
+        return before == 0 ? 0 : (now - before) / before;
+    }
+}
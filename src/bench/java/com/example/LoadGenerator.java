@@ -0,0 +1,368 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// ------------------------------------------------------------
+// HTTP load generator for capacity planning and regression runs
+// ------------------------------------------------------------
+//
+// Usage: LoadGenerator [--target http://host:port] [--engine jdk|nio]
+//                      [--workloads closed:16,open:1000,...] [--warmup 3] [--duration 10]
+//                      [--connections 64] [--mix 60:/greet?name=Load,10:/,...]
+//                      [--report target/loadtest-report.json]
+//
+// Without --target, App is started in-process on an ephemeral port.
+//
+// Workloads run one after the other, each with its own warmup:
+//   closed:N  N users, each sending its next request when the last one
+//             answered: measures the throughput the server sustains
+//   open:R    R requests per second on a fixed schedule, whatever the
+//             server does (at most --connections in flight). Latency is
+//             measured from the time a request was due, not from when a
+//             free connection finally sent it, so a stalled server shows up
+//             in the percentiles instead of silently lowering the rate
+//             (coordinated omission). "serviceTime" is the uncorrected view.
+// A sweep such as open:500,open:1000,open:2000 shows where latency starts
+// to climb. Requests are picked from the weighted mix; /greet/batch is
+// POSTed a small NDJSON batch, everything else is a GET.
+//
+// The JSON report is compared against a stored one by LoadBaseline; its
+// "environment" (cores, JVM, OS) tells whether the two runs are comparable.
+
+public final class LoadGenerator {
+
+    static final String DEFAULT_MIX = "60:/greet?name=Load+Test&mode=pirate,10:/greet?name=Load,10:/,"
+            + "5:/healthz,5:/version,5:/metrics,5:/greet/batch";
+
+    private static final String BATCH_PATH = "/greet/batch";
+    private static final String BATCH_BODY = "{\"name\":\"a\"}\n{\"name\":\"b\",\"mode\":\"pirate\"}\n{}\n"
+            + "{\"name\":\"c\"}\n{\"name\":\"d\",\"mode\":\"normal\"}\n";
+
+    private LoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        String target = options.get("target");
+        String engine = options.getOrDefault("engine", HttpEngine.kindFromEnv());
+        long warmupSeconds = Long.parseLong(options.getOrDefault("warmup", "3"));
+        long durationSeconds = Long.parseLong(options.getOrDefault("duration", "10"));
+        int connections = Integer.parseInt(options.getOrDefault("connections", "64"));
+        Path report = Paths.get(options.getOrDefault("report", "target/loadtest-report.json"));
+
+        App app = null;
+        if (target == null) {
+            app = new App();
+            app.start(0, engine);
+            target = "http://127.0.0.1:" + app.port();
+        }
+        String describedTarget = app != null ? "in-process (" + engine + " engine)" : target;
+
+        List<Workload> results = new ArrayList<>();
+        try {
+            Mix mix = Mix.parse(options.getOrDefault("mix", DEFAULT_MIX), target);
+            HttpClient http = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+
+            for (String spec : options.getOrDefault("workloads", "closed:16,open:1000").split(",")) {
+                Workload workload = Workload.parse(spec.trim(), connections);
+                System.out.println("Warming up " + workload.name + " for " + warmupSeconds + "s");
+                workload.run(http, mix, TimeUnit.SECONDS.toNanos(warmupSeconds), false);
+                System.out.println("Running " + workload.name + " for " + durationSeconds + "s against "
+                        + describedTarget);
+                workload.run(http, mix, TimeUnit.SECONDS.toNanos(durationSeconds), true);
+                System.out.println(workload.summary());
+                results.add(workload);
+            }
+        } finally {
+            if (app != null) app.stop();
+        }
+
+        Path parent = report.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Files.write(report, toJson(describedTarget, durationSeconds, results).getBytes(StandardCharsets.UTF_8));
+        System.out.println("Report written to " + report);
+    }
+
+    // "--key value" pairs
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value, got: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+
+    // ------------------------------------------------------------
+    // Request mix
+    // ------------------------------------------------------------
+
+    static final class Mix {
+        final HttpRequest[] requests;
+        final String[] routes;
+        // Cumulative weights, for one random draw per request
+        final int[] cumulative;
+
+        private Mix(HttpRequest[] requests, String[] routes, int[] cumulative) {
+            this.requests = requests;
+            this.routes = routes;
+            this.cumulative = cumulative;
+        }
+
+        // "weight:path,weight:path"; the route is the path without its query
+        static Mix parse(String spec, String base) {
+            String[] entries = spec.split(",");
+            HttpRequest[] requests = new HttpRequest[entries.length];
+            String[] routes = new String[entries.length];
+            int[] cumulative = new int[entries.length];
+            int total = 0;
+            for (int i = 0; i < entries.length; i++) {
+                String entry = entries[i].trim();
+                int colon = entry.indexOf(':');
+                if (colon <= 0) throw new IllegalArgumentException("Bad mix entry (weight:path): " + entry);
+                total += Integer.parseInt(entry.substring(0, colon));
+                String path = entry.substring(colon + 1);
+                int query = path.indexOf('?');
+                routes[i] = query < 0 ? path : path.substring(0, query);
+
+                HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + path))
+                        .timeout(Duration.ofSeconds(30));
+                if (BATCH_PATH.equals(routes[i])) {
+                    request.POST(HttpRequest.BodyPublishers.ofString(BATCH_BODY));
+                }
+                requests[i] = request.build();
+                cumulative[i] = total;
+            }
+            return new Mix(requests, routes, cumulative);
+        }
+
+        int pick() {
+            int draw = ThreadLocalRandom.current().nextInt(cumulative[cumulative.length - 1]);
+            for (int i = 0; i < cumulative.length; i++) {
+                if (draw < cumulative[i]) return i;
+            }
+            return cumulative.length - 1;
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Workloads
+    // ------------------------------------------------------------
+
+    static final class Workload {
+        final String name;
+        final boolean open;
+        final int users;          // closed: users; open: max in flight
+        final double rate;        // open: requests per second
+
+        // Measured run only
+        final Map<String, Stats> byRoute = new LinkedHashMap<>();
+        final Stats all = new Stats();
+        final LatencyHistogram serviceTime = new LatencyHistogram();
+        long elapsedNanos;
+
+        private Workload(String name, boolean open, int users, double rate) {
+            this.name = name;
+            this.open = open;
+            this.users = users;
+            this.rate = rate;
+        }
+
+        static Workload parse(String spec, int connections) {
+            String[] kindValue = spec.split(":", 2);
+            if (kindValue.length != 2) throw new IllegalArgumentException("Bad workload (closed:N or open:R): " + spec);
+            switch (kindValue[0]) {
+                case "closed":
+                    return new Workload(spec, false, Integer.parseInt(kindValue[1]), 0);
+                case "open":
+                    return new Workload(spec, true, connections, Double.parseDouble(kindValue[1]));
+                default:
+                    throw new IllegalArgumentException("Unknown workload kind: " + kindValue[0]);
+            }
+        }
+
+        void run(HttpClient http, Mix mix, long durationNanos, boolean record) throws InterruptedException {
+            for (String route : mix.routes) byRoute.computeIfAbsent(route, r -> new Stats());
+
+            long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+            long end = start + durationNanos;
+            long intervalNanos = open ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+            AtomicLong sequence = new AtomicLong();
+
+            List<Thread> threads = new ArrayList<>();
+            for (int u = 0; u < users; u++) {
+                Thread t = new Thread(() -> {
+                    while (true) {
+                        long due;
+                        if (open) {
+                            // Next slot of the global schedule, whichever thread is free
+                            due = start + sequence.getAndIncrement() * intervalNanos;
+                            if (due >= end) return;
+                            waitUntil(due);
+                        } else {
+                            due = Math.max(start, System.nanoTime());
+                            waitUntil(due);
+                            if (due >= end) return;
+                        }
+                        long sent = System.nanoTime();
+                        int i = mix.pick();
+                        boolean ok = send(http, mix.requests[i]);
+                        long done = System.nanoTime();
+                        if (record) {
+                            byRoute.get(mix.routes[i]).record(done - due, ok);
+                            all.record(done - due, ok);
+                            serviceTime.recordNanos(done - sent);
+                        }
+                    }
+                }, "load-" + name + "-" + u);
+                t.setDaemon(true);
+                threads.add(t);
+            }
+            threads.forEach(Thread::start);
+            for (Thread t : threads) t.join();
+            if (record) elapsedNanos = System.nanoTime() - start;
+        }
+
+        double throughput() {
+            return elapsedNanos == 0 ? 0 : all.requests() * 1e9 / elapsedNanos;
+        }
+
+        String summary() {
+            return String.format(Locale.ROOT,
+                    "%-14s %10.1f req/s  errors %d  p50 %.2fms  p90 %.2fms  p99 %.2fms  p99.9 %.2fms  max %.2fms",
+                    name, throughput(), all.errors(), all.quantileMillis(0.5), all.quantileMillis(0.9),
+                    all.quantileMillis(0.99), all.quantileMillis(0.999), all.maxMillis());
+        }
+    }
+
+    private static boolean send(HttpClient http, HttpRequest request) {
+        try {
+            return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 400;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void waitUntil(long deadlineNanos) {
+        long left;
+        while ((left = deadlineNanos - System.nanoTime()) > 0) LockSupport.parkNanos(left);
+    }
+
+    // Latency histogram (LatencyHistogram, ~25% bucket resolution) plus exact max and error count
+    static final class Stats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos, boolean ok) {
+            latency.recordNanos(nanos);
+            if (!ok) errors.increment();
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        long requests() {
+            return latency.count();
+        }
+
+        long errors() {
+            return errors.sum();
+        }
+
+        double quantileMillis(double q) {
+            return latency.quantileNanos(q) / 1e6;
+        }
+
+        double meanMillis() {
+            long n = latency.count();
+            return n == 0 ? 0 : latency.sumNanos() / 1e6 / n;
+        }
+
+        double maxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Report
+    // ------------------------------------------------------------
+
+    static String toJson(String target, long durationSeconds, List<Workload> workloads) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"target\": ").append(Json.quote(target))
+                .append(",\n  \"environment\": ").append(Json.quote(environment()))
+                .append(",\n  \"durationSeconds\": ").append(durationSeconds)
+                .append(",\n  \"workloads\": [");
+        for (int w = 0; w < workloads.size(); w++) {
+            Workload workload = workloads.get(w);
+            sb.append(w == 0 ? "\n" : ",\n")
+                    .append("    {\n      \"name\": ").append(Json.quote(workload.name))
+                    .append(",\n      \"mode\": ").append(Json.quote(workload.open ? "open" : "closed"))
+                    .append(",\n      \"concurrency\": ").append(workload.users);
+            if (workload.open) sb.append(",\n      \"targetRate\": ").append(number(workload.rate));
+            sb.append(",\n      \"throughput\": ").append(number(workload.throughput()))
+                    .append(",\n      \"latency\": ");
+            appendStats(sb, workload.all);
+            sb.append(",\n      \"serviceTime\": {\"p50Ms\": ")
+                    .append(number(workload.serviceTime.quantileNanos(0.5) / 1e6))
+                    .append(", \"p99Ms\": ").append(number(workload.serviceTime.quantileNanos(0.99) / 1e6))
+                    .append("},\n      \"routes\": {");
+            int r = 0;
+            for (Map.Entry<String, Stats> route : workload.byRoute.entrySet()) {
+                sb.append(r++ == 0 ? "\n" : ",\n").append("        ").append(Json.quote(route.getKey())).append(": ");
+                appendStats(sb, route.getValue());
+            }
+            sb.append("\n      }\n    }");
+        }
+        return sb.append("\n  ]\n}\n").toString();
+    }
+
+    // Where the numbers came from: a baseline only means something on the same kind of box
+    static String environment() {
+        return Runtime.getRuntime().availableProcessors() + " cpus, Java " + System.getProperty("java.version")
+                + ", " + System.getProperty("os.name") + " " + System.getProperty("os.arch");
+    }
+
+    private static void appendStats(StringBuilder sb, Stats stats) {
+        sb.append("{\"requests\": ").append(stats.requests())
+                .append(", \"errors\": ").append(stats.errors())
+                .append(", \"meanMs\": ").append(number(stats.meanMillis()))
+                .append(", \"p50Ms\": ").append(number(stats.quantileMillis(0.5)))
+                .append(", \"p90Ms\": ").append(number(stats.quantileMillis(0.9)))
+                .append(", \"p99Ms\": ").append(number(stats.quantileMillis(0.99)))
+                .append(", \"p999Ms\": ").append(number(stats.quantileMillis(0.999)))
+                .append(", \"maxMs\": ").append(number(stats.maxMillis()))
+                .append('}');
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
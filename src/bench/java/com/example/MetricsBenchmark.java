@@ -0,0 +1,47 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// ------------------------------------------------------------
+// /metrics exposition cost as the number of seen paths grows
+// ------------------------------------------------------------
+//
+// Paths are normalised to route contexts (RequestCounters), so the cost
+// should stay flat however many distinct paths a scanner sends.
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MetricsBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int distinctPaths;
+
+    private App app;
+
+    @Setup
+    public void setup() {
+        app = new App();
+        for (int i = 0; i < distinctPaths; i++) {
+            app.recordRequest("/scan/" + i);
+        }
+    }
+
+    @Benchmark
+    public String metricsText() {
+        return app.metricsText();
+    }
+}
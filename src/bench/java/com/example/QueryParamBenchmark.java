@@ -0,0 +1,72 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// ------------------------------------------------------------
+// Query string parsing on realistic and hostile inputs
+// ------------------------------------------------------------
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class QueryParamBenchmark {
+
+    @Param({"realistic", "hostile"})
+    public String shape;
+
+    private String query;
+    private ByteSink sink;
+
+    @Setup
+    public void setup() {
+        if ("realistic".equals(shape)) {
+            query = "utm_source=newsletter&utm_medium=email&name=Ann+Marie%21&mode=pirate";
+        } else {
+            // Thousands of junk params before the real ones, a run of bare '&'
+            // (parts without '='), plus a long encoded name
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 2000; i++) {
+                sb.append("k").append(i).append("=v&&=&");
+            }
+            for (int i = 0; i < 20000; i++) {
+                sb.append('&');
+            }
+            sb.append("mode=pirate&name=");
+            for (int i = 0; i < 200; i++) {
+                sb.append("%41+");
+            }
+            query = sb.toString();
+        }
+        sink = new ByteSink(1024);
+    }
+
+    @Benchmark
+    public String queryParam() {
+        return App.queryParam(query, "mode", "normal");
+    }
+
+    @Benchmark
+    public String queryParamDecoded() {
+        return App.queryParamDecoded(query, "name", "World");
+    }
+
+    @Benchmark
+    public int queryStringDecoded() {
+        long range = QueryString.valueRange(query, "name");
+        QueryString.appendDecoded(sink.reset(), query, QueryString.start(range), QueryString.end(range));
+        return sink.length();
+    }
+}
@@ -0,0 +1,121 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// ------------------------------------------------------------
+// Time from process launch to the first 200 from /healthz
+// ------------------------------------------------------------
+//
+// Not a JMH benchmark: each sample is a fresh JVM. Build the jar and the
+// CDS archive first, then run from the benchmark test classpath:
+//   mvn -Pcds,benchmarks package -DskipTests
+//   java -cp target/test-classes:target/classes com.example.StartupBenchmark \
+//        target/app.jar target/app.jsa [runs]
+//
+// Prints min / median / max milliseconds without and with the archive.
+
+public final class StartupBenchmark {
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: StartupBenchmark <app.jar> [app.jsa] [runs]");
+            System.exit(2);
+        }
+        String jar = args[0];
+        String archive = args.length > 1 ? args[1] : null;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        report("default", measure(jar, null, runs));
+        if (archive != null && new File(archive).exists()) {
+            report("appcds", measure(jar, archive, runs));
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Measurement
+    // ------------------------------------------------------------
+
+    private static long[] measure(String jar, String archive, int runs) throws Exception {
+        long[] millis = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            millis[i] = launchToFirstOk(jar, archive);
+        }
+        Arrays.sort(millis);
+        return millis;
+    }
+
+    private static long launchToFirstOk(String jar, String archive) throws Exception {
+        int port = freePort();
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+
+        List<String> cmd = new ArrayList<>();
+        cmd.add(java);
+        if (archive != null) cmd.add("-XX:SharedArchiveFile=" + archive);
+        cmd.add("-jar");
+        cmd.add(jar);
+
+        ProcessBuilder pb = new ProcessBuilder(cmd);
+        pb.environment().put("PORT", String.valueOf(port));
+        pb.redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD);
+
+        long started = System.nanoTime();
+        Process process = pb.start();
+        try {
+            while (!healthzOk(port)) {
+                if (!process.isAlive()) throw new IllegalStateException("App exited during startup");
+                Thread.sleep(1);
+            }
+            return (System.nanoTime() - started) / 1_000_000;
+        } finally {
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    // Raw socket so the measuring JVM's own HTTP client warm-up is not in the numbers
+    private static boolean healthzOk(int port) {
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /healthz HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            InputStream in = socket.getInputStream();
+            byte[] head = new byte[12];
+            int n = 0;
+            while (n < head.length) {
+                int r = in.read(head, n, head.length - n);
+                if (r < 0) return false;
+                n += r;
+            }
+            return new String(head, StandardCharsets.US_ASCII).startsWith("HTTP/1.1 200");
+        } catch (Exception notYet) {
+            return false;
+        }
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void report(String label, long[] millis) {
+        System.out.printf("%-8s runs=%d min=%dms median=%dms max=%dms%n",
+                label, millis.length, millis[0], millis[millis.length / 2], millis[millis.length - 1]);
+    }
+}
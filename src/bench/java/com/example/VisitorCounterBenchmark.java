@@ -0,0 +1,62 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// ------------------------------------------------------------
+// Visitor numbering throughput with and without persistence
+// ------------------------------------------------------------
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VisitorCounterBenchmark {
+
+    // Reservation block size for the persistent counter
+    @Param({"1000"})
+    public long block;
+
+    private final AtomicLong inMemory = new AtomicLong();
+
+    private Path file;
+    private PersistentVisitorCounter persistent;
+
+    @Setup(Level.Trial)
+    public void open() throws Exception {
+        file = Files.createTempFile("visitors", ".dat");
+        persistent = PersistentVisitorCounter.open(file, block, 1000);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws Exception {
+        persistent.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long inMemory() {
+        return inMemory.incrementAndGet();
+    }
+
+    @Benchmark
+    public long persistent() {
+        return persistent.next();
+    }
+}
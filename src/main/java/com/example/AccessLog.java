@@ -0,0 +1,411 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// ------------------------------------------------------------
+// Asynchronous structured access log
+// ------------------------------------------------------------
+//
+// Request threads never format or write anything: the route wrapper copies a
+// few fields (method, path, query, status, bytes, latency, visitor) into a
+// preallocated ring buffer and returns. One background thread drains it in
+// batches as JSON lines, one per request:
+//   {"ts":"...","method":"GET","path":"/greet","status":200,"bytes":312,
+//    "latency_ms":0.214,"mode":"pirate","visitor":42}
+// ("mode" is the requested greeting mode, "bytes" and "visitor" appear when
+// the handler reported them).
+//
+// The ring is a bounded multi-producer queue (one sequence number per slot):
+// claiming a slot is a single CAS, and when the drainer falls behind the
+// record is dropped and counted instead of blocking the request.
+//
+// ACCESS_LOG_SAMPLE_RATE keeps a random fraction of requests; failures
+// (5xx, or a handler that threw before responding) are always kept.
+//
+// Config: ACCESS_LOG, ACCESS_LOG_SAMPLE_RATE, ACCESS_LOG_BUFFER,
+// ACCESS_LOG_MAX_BYTES, ACCESS_LOG_MAX_FILES (see fromEnv()).
+
+final class AccessLog {
+
+    // Records written to the output in one go
+    private static final int BATCH = 256;
+    // Drainer sleep when the ring is empty
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private static final long NONE = -1;
+
+    // What the handler knows and the route wrapper does not (see note*())
+    private static final ThreadLocal<Note> NOTE = ThreadLocal.withInitial(Note::new);
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final OutputStream out;
+
+    // Ring: slot i holds a record when sequence[i] == position + 1,
+    // and is free for position p when sequence[i] == p
+    private final int mask;
+    private final AtomicLongArray sequence;
+    private final long[] timestamps;
+    private final long[] latencies;
+    private final int[] statuses;
+    private final long[] sizes;
+    private final long[] visitors;
+    private final String[] methods;
+    private final String[] paths;
+    private final String[] queries;
+
+    private final AtomicLong tail = new AtomicLong();
+    // Drainer-owned; volatile only so metrics can read the depth
+    private volatile long head;
+
+    private final LongAdder dropped = new LongAdder();
+    private volatile long written;
+
+    private final ByteSink batch = new ByteSink(BATCH * 160);
+    private volatile boolean running;
+    private Thread drainer;
+
+    // ------------------------------------------------------------
+    // Construction / lifecycle
+    // ------------------------------------------------------------
+
+    // Reads ACCESS_LOG ("off" (default), "stdout" or a file path),
+    // ACCESS_LOG_SAMPLE_RATE (1.0), ACCESS_LOG_BUFFER (8192 records) and, for
+    // files, ACCESS_LOG_MAX_BYTES (10 MiB) / ACCESS_LOG_MAX_FILES (5) for rotation
+    static AccessLog fromEnv() {
+        String target = System.getenv().getOrDefault("ACCESS_LOG", "off");
+        if (target.isEmpty() || "off".equalsIgnoreCase(target)) return disabled();
+
+        double rate = Double.parseDouble(System.getenv().getOrDefault("ACCESS_LOG_SAMPLE_RATE", "1.0"));
+        int capacity = Integer.parseInt(System.getenv().getOrDefault("ACCESS_LOG_BUFFER", "8192"));
+
+        OutputStream out;
+        if ("stdout".equalsIgnoreCase(target)) {
+            out = System.out;
+        } else {
+            long maxBytes = Long.parseLong(System.getenv().getOrDefault("ACCESS_LOG_MAX_BYTES", "10485760"));
+            int maxFiles = Integer.parseInt(System.getenv().getOrDefault("ACCESS_LOG_MAX_FILES", "5"));
+            out = new RotatingFile(Paths.get(target), maxBytes, maxFiles);
+        }
+        return new AccessLog(capacity, rate, out);
+    }
+
+    static AccessLog disabled() {
+        return new AccessLog(0, 0, null);
+    }
+
+    // capacity is rounded up to a power of two; 0 (or no output) = disabled
+    AccessLog(int capacity, double sampleRate, OutputStream out) {
+        this.enabled = capacity > 0 && out != null;
+        this.sampleRate = Math.max(0, Math.min(1, sampleRate));
+        this.out = out;
+
+        int size = enabled ? Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) : 1;
+        this.mask = size - 1;
+        this.sequence = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequence.set(i, i);
+        this.timestamps = new long[size];
+        this.latencies = new long[size];
+        this.statuses = new int[size];
+        this.sizes = new long[size];
+        this.visitors = new long[size];
+        this.methods = new String[size];
+        this.paths = new String[size];
+        this.queries = new String[size];
+    }
+
+    boolean enabled() {
+        return enabled;
+    }
+
+    void start() {
+        if (!enabled || running) return;
+        running = true;
+        drainer = new Thread(this::drainLoop, "access-log");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    // Writes out everything recorded so far, then stops the drainer
+    void close() {
+        if (!enabled) return;
+        Thread t = drainer;
+        running = false;
+        if (t != null) {
+            LockSupport.unpark(t);
+            try {
+                t.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            drainer = null;
+        } else {
+            while (drain() > 0) {
+                // Not started (tests): drain on the caller
+            }
+        }
+        if (out instanceof RotatingFile) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                System.out.println("Failed to close access log: " + e.getMessage());
+            }
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Request side (never blocks)
+    // ------------------------------------------------------------
+
+    // Called by the route wrapper before the handler runs
+    void begin() {
+        if (!enabled) return;
+        Note note = NOTE.get();
+        note.bytes = NONE;
+        note.visitor = NONE;
+    }
+
+    // Response body size, when the handler knows it
+    void noteBytes(long bytes) {
+        if (enabled) NOTE.get().bytes = bytes;
+    }
+
+    // Visitor number handed out (first of the range for batches)
+    void noteVisitor(long visitor) {
+        if (enabled) NOTE.get().visitor = visitor;
+    }
+
+    // Called by the route wrapper once the handler returned (or threw)
+    void record(HttpExchange ex, long startNanos) {
+        if (!enabled) return;
+        int status = ex.getResponseCode();
+        if (!keep(status)) return;
+
+        Note note = NOTE.get();
+        offer(ex.getRequestMethod(), ex.getRequestURI().getPath(), ex.getRequestURI().getRawQuery(),
+                status, note.bytes, note.visitor, System.nanoTime() - startNanos);
+    }
+
+    // Queues one record; false (counted as dropped) when the ring is full
+    boolean offer(String method, String path, String query, int status, long bytes, long visitor,
+                  long latencyNanos) {
+        long pos = tail.get();
+        int i;
+        while (true) {
+            i = (int) pos & mask;
+            long seq = sequence.get(i);
+            if (seq == pos) {
+                if (tail.compareAndSet(pos, pos + 1)) break;
+                pos = tail.get();
+            } else if (seq < pos) {
+                // Slot still holds the record from one lap ago: the drainer is behind
+                dropped.increment();
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+
+        timestamps[i] = System.currentTimeMillis();
+        latencies[i] = latencyNanos;
+        statuses[i] = status;
+        sizes[i] = bytes;
+        visitors[i] = visitor;
+        methods[i] = method;
+        paths[i] = path;
+        queries[i] = query;
+        sequence.set(i, pos + 1);
+        return true;
+    }
+
+    private boolean keep(int status) {
+        if (sampleRate >= 1 || status >= 500 || status < 0) return true;
+        return sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    // ------------------------------------------------------------
+    // Drainer (single thread)
+    // ------------------------------------------------------------
+
+    private void drainLoop() {
+        while (running) {
+            if (drain() == 0) LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        while (drain() > 0) {
+            // Stopping: write out what is left
+        }
+    }
+
+    // Writes up to one batch; returns the number of records taken
+    int drain() {
+        long pos = head;
+        int taken = 0;
+        batch.reset();
+        while (taken < BATCH) {
+            int i = (int) pos & mask;
+            if (sequence.get(i) != pos + 1) break;
+
+            appendRecord(batch, timestamps[i], methods[i], paths[i], queries[i], statuses[i],
+                    sizes[i], latencies[i], visitors[i]);
+            methods[i] = null;
+            paths[i] = null;
+            queries[i] = null;
+            sequence.lazySet(i, pos + mask + 1);
+            pos++;
+            taken++;
+        }
+        if (taken == 0) return 0;
+
+        head = pos;
+        try {
+            batch.writeTo(out);
+            out.flush();
+            written += taken;
+        } catch (IOException e) {
+            dropped.add(taken);
+        }
+        return taken;
+    }
+
+    static ByteSink appendRecord(ByteSink sink, long timestampMillis, String method, String path, String query,
+                                 int status, long bytes, long latencyNanos, long visitor) {
+        sink.appendAscii("{\"ts\":\"").appendAscii(Instant.ofEpochMilli(timestampMillis).toString())
+                .appendAscii("\",\"method\":\"");
+        GreetingBatch.appendJsonEscaped(sink, method);
+        sink.appendAscii("\",\"path\":\"");
+        GreetingBatch.appendJsonEscaped(sink, path);
+        sink.appendAscii("\",\"status\":").appendLong(status);
+        if (bytes != NONE) sink.appendAscii(",\"bytes\":").appendLong(bytes);
+
+        // Microsecond resolution, as milliseconds
+        long micros = TimeUnit.NANOSECONDS.toMicros(latencyNanos);
+        sink.appendAscii(",\"latency_ms\":").appendLong(micros / 1000).appendByte('.');
+        long fraction = micros % 1000;
+        if (fraction < 100) sink.appendByte('0');
+        if (fraction < 10) sink.appendByte('0');
+        sink.appendLong(fraction);
+
+        if (query != null && QueryString.valueRange(query, "mode") != QueryString.NOT_FOUND) {
+            String mode = App.queryParamDecoded(query, "mode", null);
+            if (mode != null) {
+                sink.appendAscii(",\"mode\":\"");
+                GreetingBatch.appendJsonEscaped(sink, mode);
+                sink.appendByte('"');
+            }
+        }
+        if (visitor != NONE) sink.appendAscii(",\"visitor\":").appendLong(visitor);
+        return sink.appendAscii("}\n");
+    }
+
+    // ------------------------------------------------------------
+    // Metrics
+    // ------------------------------------------------------------
+
+    void writeMetrics(MetricsWriter w) {
+        if (!enabled) return;
+        w.counter("access_log_records_total");
+        w.sample("access_log_records_total", "result", "written", written);
+        w.sample("access_log_records_total", "result", "dropped", dropped.sum());
+        w.gauge("access_log_buffer_depth", Math.max(0, tail.get() - head));
+        w.gauge("access_log_buffer_capacity", mask + 1);
+    }
+
+    long written() {
+        return written;
+    }
+
+    long dropped() {
+        return dropped.sum();
+    }
+
+    // ------------------------------------------------------------
+    // Internals
+    // ------------------------------------------------------------
+
+    private static final class Note {
+        long bytes = NONE;
+        long visitor = NONE;
+    }
+
+    // Appends to path; past maxBytes, path -> path.1 -> ... -> path.<maxFiles>
+    // (the oldest is deleted). Only rotates between writes, and the drainer
+    // writes whole lines, so no line is ever split across files.
+    static final class RotatingFile extends OutputStream {
+        private final Path path;
+        private final long maxBytes;
+        private final int maxFiles;
+        private OutputStream out;
+        private long size;
+
+        RotatingFile(Path path, long maxBytes, int maxFiles) {
+            this.path = path;
+            this.maxBytes = Math.max(1, maxBytes);
+            this.maxFiles = Math.max(1, maxFiles);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (out == null) open();
+            if (size > 0 && size + len > maxBytes) rotate();
+            out.write(b, off, len);
+            size += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (out != null) out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out != null) out.close();
+            out = null;
+        }
+
+        private void open() throws IOException {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            out = Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            size = Files.size(path);
+        }
+
+        private void rotate() throws IOException {
+            out.close();
+            Files.deleteIfExists(rotated(maxFiles));
+            for (int n = maxFiles - 1; n >= 1; n--) {
+                Path from = rotated(n);
+                if (Files.exists(from)) Files.move(from, rotated(n + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(path, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+            open();
+        }
+
+        Path rotated(int n) {
+            return path.resolveSibling(path.getFileName() + "." + n);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.net.InetSocketAddress;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// ------------------------------------------------------------
+// Admission control in front of the route handlers
+// ------------------------------------------------------------
+//
+// Checked in order, per request on a route in the normal lane:
+//   1. per-client token bucket   (ADMISSION_CLIENT_RATE / _BURST)
+//   2. per-route token bucket    (ADMISSION_ROUTE_LIMITS, e.g. "/greet=500:1000,/chaos=1:5")
+//   3. adaptive concurrency cap  (ADMISSION_ADAPTIVE, see ConcurrencyLimit)
+// A rejected request gets 429 with Retry-After. Everything is off by default.
+//
+// Priority lane: CRITICAL_ROUTES (the probes) skip all of this and are also
+// exempt from worker pool shedding, so an overloaded pod never fails its
+// liveness probe and gets restarted for being busy.
+//
+// LONG_RUNNING_ROUTES (JFR recordings) take seconds by design: the token
+// buckets still apply, but they skip the concurrency cap, so their latency
+// never reaches the adaptive window and they hold no slot while they run.
+//
+// Client buckets live in a map capped at ADMISSION_MAX_CLIENTS. When it is
+// full, buckets idle long enough to have refilled (no information lost) are
+// swept; clients that still don't fit share one overflow bucket, like the
+// "other" label of RequestCounters. Clients are keyed by remote IP, or by
+// the first X-Forwarded-For hop with ADMISSION_TRUST_FORWARDED=true (only
+// behind a proxy that sets it).
+
+final class AdmissionControl {
+
+    static final String[] CRITICAL_ROUTES = {"/healthz", "/readyz"};
+    static final String[] LONG_RUNNING_ROUTES = {"/debug/profile"};
+
+    // Returned by admit() when the request may proceed
+    static final int ADMITTED = 0;
+
+    // At most one full sweep of the client map per interval
+    private static final long SWEEP_INTERVAL_MILLIS = 1000;
+
+    private final double clientRate;
+    private final int clientBurst;
+    private final int maxClients;
+    private final long idleMillis;
+    private final Map<String, int[]> routeLimits;
+    private final ConcurrencyLimit concurrency;
+    private final boolean trustForwarded;
+
+    private final ConcurrentHashMap<String, TokenBucket> clients = new ConcurrentHashMap<>();
+    private final TokenBucket overflowClients;
+    private final AtomicBoolean sweeping = new AtomicBoolean(false);
+    private final AtomicLong lastSweepMillis = new AtomicLong(0);
+
+    private final LongAdder clientRejections = new LongAdder();
+    private final LongAdder routeRejections = new LongAdder();
+    private final LongAdder concurrencyRejections = new LongAdder();
+    private final LongAdder clientEvictions = new LongAdder();
+
+    // ------------------------------------------------------------
+    // Construction
+    // ------------------------------------------------------------
+
+    // Reads ADMISSION_CLIENT_RATE (req/s, 0 = off), ADMISSION_CLIENT_BURST (2 x rate),
+    // ADMISSION_MAX_CLIENTS (10000), ADMISSION_IDLE_SECONDS (60), ADMISSION_ROUTE_LIMITS,
+    // ADMISSION_ADAPTIVE (false), ADMISSION_MIN_CONCURRENCY (4), ADMISSION_MAX_CONCURRENCY (256),
+    // ADMISSION_TRUST_FORWARDED (false)
+    static AdmissionControl fromEnv() {
+        Map<String, String> env = System.getenv();
+        double clientRate = Double.parseDouble(env.getOrDefault("ADMISSION_CLIENT_RATE", "0"));
+        int clientBurst = Integer.parseInt(env.getOrDefault("ADMISSION_CLIENT_BURST",
+                String.valueOf((int) Math.ceil(clientRate * 2))));
+        int maxClients = Integer.parseInt(env.getOrDefault("ADMISSION_MAX_CLIENTS", "10000"));
+        long idleSeconds = Long.parseLong(env.getOrDefault("ADMISSION_IDLE_SECONDS", "60"));
+
+        ConcurrencyLimit concurrency = null;
+        if ("true".equalsIgnoreCase(env.get("ADMISSION_ADAPTIVE"))) {
+            concurrency = new ConcurrencyLimit(
+                    Integer.parseInt(env.getOrDefault("ADMISSION_MIN_CONCURRENCY", "4")),
+                    Integer.parseInt(env.getOrDefault("ADMISSION_MAX_CONCURRENCY", "256")));
+        }
+
+        return new AdmissionControl(clientRate, clientBurst, maxClients, idleSeconds * 1000,
+                parseRouteLimits(env.getOrDefault("ADMISSION_ROUTE_LIMITS", "")), concurrency,
+                "true".equalsIgnoreCase(env.get("ADMISSION_TRUST_FORWARDED")));
+    }
+
+    AdmissionControl(double clientRate, int clientBurst, int maxClients, long idleMillis,
+                     Map<String, int[]> routeLimits, ConcurrencyLimit concurrency, boolean trustForwarded) {
+        this.clientRate = clientRate;
+        this.clientBurst = Math.max(1, clientBurst);
+        this.maxClients = Math.max(1, maxClients);
+        this.idleMillis = Math.max(0, idleMillis);
+        this.routeLimits = routeLimits;
+        this.concurrency = concurrency;
+        this.trustForwarded = trustForwarded;
+        this.overflowClients = clientRate > 0
+                ? new TokenBucket(clientRate, this.clientBurst, System.currentTimeMillis())
+                : null;
+    }
+
+    // "/greet=500:1000,/chaos=1" -> {route: {rate, burst}}; burst defaults to the rate
+    static Map<String, int[]> parseRouteLimits(String spec) {
+        Map<String, int[]> limits = new LinkedHashMap<>();
+        for (String entry : spec.split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) continue;
+
+            int eq = entry.lastIndexOf('=');
+            if (eq <= 0) throw new IllegalArgumentException("Bad ADMISSION_ROUTE_LIMITS entry: " + entry);
+            String[] rateBurst = entry.substring(eq + 1).split(":", 2);
+            int rate = Integer.parseInt(rateBurst[0].trim());
+            int burst = rateBurst.length == 2 ? Integer.parseInt(rateBurst[1].trim()) : rate;
+            limits.put(entry.substring(0, eq).trim(), new int[] {rate, burst});
+        }
+        return limits;
+    }
+
+    // ------------------------------------------------------------
+    // Routes
+    // ------------------------------------------------------------
+
+    // Called once per route at startup
+    Route register(String route) {
+        for (String critical : CRITICAL_ROUTES) {
+            if (critical.equals(route)) return new Route(true, null, false);
+        }
+
+        int[] limit = routeLimits.get(route);
+        TokenBucket bucket = limit != null && limit[0] > 0
+                ? new TokenBucket(limit[0], limit[1], System.currentTimeMillis())
+                : null;
+        boolean adaptive = true;
+        for (String longRunning : LONG_RUNNING_ROUTES) {
+            if (longRunning.equals(route)) adaptive = false;
+        }
+        return new Route(false, bucket, adaptive);
+    }
+
+    final class Route {
+        private final boolean critical;
+        private final TokenBucket bucket;
+        private final boolean adaptive;
+
+        private Route(boolean critical, TokenBucket bucket, boolean adaptive) {
+            this.critical = critical;
+            this.bucket = bucket;
+            this.adaptive = adaptive;
+        }
+
+        // Priority lane: never rate limited, never shed
+        boolean critical() {
+            return critical;
+        }
+
+        // ADMITTED, or the Retry-After seconds for a 429. When ADMITTED,
+        // release() must be called once the request is done.
+        int admit(HttpExchange ex) {
+            return admit(clientRate > 0 && !critical ? clientKey(ex) : null);
+        }
+
+        int admit(String client) {
+            if (critical) return ADMITTED;
+
+            long now = System.currentTimeMillis();
+            if (clientRate > 0) {
+                TokenBucket clientBucket = clientBucket(client, now);
+                if (!clientBucket.tryAcquire(now)) {
+                    clientRejections.increment();
+                    return clientBucket.secondsUntilToken(now);
+                }
+            }
+            if (bucket != null && !bucket.tryAcquire(now)) {
+                routeRejections.increment();
+                return bucket.secondsUntilToken(now);
+            }
+            if (adaptive && concurrency != null && !concurrency.tryAcquire()) {
+                concurrencyRejections.increment();
+                return 1;
+            }
+            return ADMITTED;
+        }
+
+        void release(long latencyNanos) {
+            if (adaptive && concurrency != null) concurrency.release(latencyNanos);
+        }
+    }
+
+    // Bucket key for the request's client
+    String clientKey(HttpExchange ex) {
+        if (trustForwarded) {
+            String forwarded = ex.getRequestHeaders().getFirst("X-Forwarded-For");
+            if (forwarded != null && !forwarded.isEmpty()) {
+                int comma = forwarded.indexOf(',');
+                return (comma < 0 ? forwarded : forwarded.substring(0, comma)).trim();
+            }
+        }
+        InetSocketAddress remote = ex.getRemoteAddress();
+        return remote.getAddress() != null ? remote.getAddress().getHostAddress() : remote.getHostString();
+    }
+
+    // ------------------------------------------------------------
+    // Metrics
+    // ------------------------------------------------------------
+
+    void writeMetrics(MetricsWriter w) {
+        w.counter("admission_rejections_total");
+        w.sample("admission_rejections_total", "reason", "client", clientRejections.sum());
+        w.sample("admission_rejections_total", "reason", "route", routeRejections.sum());
+        w.sample("admission_rejections_total", "reason", "concurrency", concurrencyRejections.sum());
+        w.gauge("admission_clients", clients.size());
+        w.counter("admission_client_evictions_total", clientEvictions.sum());
+        if (concurrency != null) {
+            w.gauge("admission_concurrency_limit", concurrency.limit());
+            w.gauge("admission_concurrency_in_flight", concurrency.inFlight());
+        }
+    }
+
+    int clientCount() {
+        return clients.size();
+    }
+
+    // ------------------------------------------------------------
+    // Client buckets
+    // ------------------------------------------------------------
+
+    private TokenBucket clientBucket(String client, long now) {
+        TokenBucket bucket = clients.get(client);
+        if (bucket != null) return bucket;
+
+        if (clients.size() >= maxClients) {
+            sweepIdle(now);
+            if (clients.size() >= maxClients) return overflowClients;
+        }
+        return clients.computeIfAbsent(client, k -> new TokenBucket(clientRate, clientBurst, now));
+    }
+
+    // Drops buckets that have been idle long enough to be full again; one sweeper at a
+    // time, and not more often than SWEEP_INTERVAL_MILLIS (a full map stays O(1) per miss)
+    private void sweepIdle(long now) {
+        long last = lastSweepMillis.get();
+        if (now - last < SWEEP_INTERVAL_MILLIS || !lastSweepMillis.compareAndSet(last, now)) return;
+        if (!sweeping.compareAndSet(false, true)) return;
+        try {
+            for (Iterator<TokenBucket> it = clients.values().iterator(); it.hasNext(); ) {
+                TokenBucket bucket = it.next();
+                if (bucket.idleMillis(now) >= Math.max(idleMillis, bucket.refillMillis())) {
+                    it.remove();
+                    clientEvictions.increment();
+                }
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+}
@@ -5,21 +5,25 @@ package com.example;
 // ------------------------------------------------------------
 
 // Lightweight HTTP server included in the JDK (no Spring/Tomcat)
-import com.sun.net.httpserver.HttpServer;
 import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
 
 // Core Java imports
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.InetSocketAddress;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
 
 public class App {
 
@@ -40,11 +44,13 @@ public class App {
     private final String podName =
             System.getenv().getOrDefault("HOSTNAME", "local");
 
-    // Unique ID per running instance (useful in K8s / multi-replica scenarios)
-    private final String instanceId = UUID.randomUUID().toString();
+    // Unique ID per running instance (useful in K8s / multi-replica scenarios).
+    // Lazy: SecureRandom seeding is slow and not needed to answer probes.
+    private final Lazy<String> instanceId = Lazy.of(() -> UUID.randomUUID().toString());
 
     // Start time (used for uptime)
     private final Instant startedAt = Instant.now();
+    private final long startedAtMillis = startedAt.toEpochMilli();
 
     // ------------------------------------------------------------
     // Feature-flag–like runtime mode (optional global default)
@@ -57,22 +63,148 @@ public class App {
     // In-memory metrics and counters
     // ------------------------------------------------------------
 
-    // Total HTTP requests handled
-    private final AtomicLong requestsTotal = new AtomicLong(0);
+    // Total + per-route request counters (striped, bounded labels)
+    private final RequestCounters requestCounters = RequestCounters.fromEnv();
 
-    // Visitor counter specifically for /greet (per running instance)
-    private final AtomicLong greetVisitors = new AtomicLong(0);
+    // Optional shared /metrics payload for scrapers arriving close together
+    private final MetricsSnapshotCache metricsSnapshots = new MetricsSnapshotCache(
+            Long.parseLong(System.getenv().getOrDefault("METRICS_SNAPSHOT_MILLIS", "0")),
+            this::writeMetrics);
 
-    // Per-endpoint request counters
-    private final Map<String, AtomicLong> requestsByPath =
-            new ConcurrentHashMap<>();
+    // Latency histogram + in-flight gauge per registered route
+    private final Map<String, RouteStats> routeStats = new ConcurrentSkipListMap<>();
+
+    // Source of /greet visitor numbers (in-memory until start() reads the env)
+    private volatile VisitorSequence visitorSequence = new LocalVisitorSequence();
+
+    // Visitors greeted by this instance (striped; numbering itself is the sequence's job)
+    private final LongAdder greetVisitors = new LongAdder();
+
+    // Size limits for POST /greet/batch
+    private final GreetingBatch greetingBatch = GreetingBatch.fromEnv();
+
+    // Dashboard push stream: one publisher renders /version + /metrics for all viewers
+    private final EventStream events = EventStream.fromEnv(() -> versionJson(), this::metricsText);
+
+    // Rate limits, priority lanes and adaptive concurrency (ADMISSION_* env vars)
+    private final AdmissionControl admission = AdmissionControl.fromEnv();
+
+    // One JSON line per request, written off the request path (ACCESS_LOG_* env vars)
+    private final AccessLog accessLog = AccessLog.fromEnv();
+
+    // Faults injected through /chaos?action=inject (latency, CPU, GC, slow writes, pool)
+    private final ChaosFaults chaosFaults = ChaosFaults.fromEnv();
+
+    // JFR safepoint stream for /metrics (JVM_SAFEPOINT_METRICS, JDK 14+)
+    private final boolean safepointMetrics = JvmMetrics.safepointsFromEnv();
+
+    // /debug/profile JFR recordings + per-route CPU / allocation sampling (PROFILING_* env vars)
+    private final Profiler profiler;
+
+    // Request executor (created in start(); null for unit tests without a server)
+    private volatile WorkerPool workerPool;
+
+    // Running server (null until start())
+    private volatile HttpEngine server;
+
+    // Readiness + graceful shutdown (SHUTDOWN_* env vars)
+    private final Lifecycle lifecycle;
+
+    // ------------------------------------------------------------
+    // Response cache (bodies encoded once, not per request)
+    // ------------------------------------------------------------
+
+    // Built (and gzipped) on the first "/" request, not at startup
+    private final Lazy<CachedResponse> dashboardPage = Lazy.of(() ->
+            CachedResponse.of("text/html; charset=utf-8", dashboardHtml()));
+
+    private final CachedResponse healthzOk =
+            CachedResponse.of("text/plain; charset=utf-8", "ok\n");
+
+    private final CachedResponse readyzOk =
+            CachedResponse.of("text/plain; charset=utf-8", "ready\n");
+
+    private final CachedResponse readyzDraining =
+            CachedResponse.of("text/plain; charset=utf-8", "draining\n");
+
+    // /version is constant up to the uptime value; only uptime + mode are written per request
+    private final Lazy<byte[]> versionPrefix = Lazy.of(() -> (
+            "{\"service\":\"" + serviceName
+            + "\",\"version\":\"" + version
+            + "\",\"gitSha\":\"" + gitSha
+            + "\",\"podName\":\"" + podName
+            + "\",\"instanceId\":\"" + instanceId.get()
+            + "\",\"uptimeSeconds\":"
+    ).getBytes(StandardCharsets.UTF_8));
+
+    private static final byte[] VERSION_MODE_FIELD =
+            ",\"mode\":\"".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] VERSION_SUFFIX =
+            "\"}\n".getBytes(StandardCharsets.UTF_8);
+
+    // Greeting modes (built-in + GREETING_MODES_DIR), compiled with the instance constants
+    private final Lazy<GreetingModes> greetingModes = Lazy.of(() -> GreetingModes.fromEnv(Map.of(
+            "service", serviceName,
+            "version", version,
+            "gitSha", gitSha,
+            "pod", podName,
+            "instance", instanceId.get().substring(0, 8))));
+
+    // /greet body rendered from the compiled templates
+    private final Lazy<GreetingRenderer> greetingRenderer = Lazy.of(() -> new GreetingRenderer(greetingModes.get()));
+
+    public App() {
+        this(Lifecycle.fromEnv());
+    }
+
+    // Tests: shutdown timings without env vars
+    App(Lifecycle lifecycle) {
+        this(lifecycle, Profiler.fromEnv());
+    }
+
+    // Tests: profiling enabled without env vars
+    App(Lifecycle lifecycle, Profiler profiler) {
+        this.lifecycle = lifecycle;
+        this.profiler = profiler;
+    }
 
     // ------------------------------------------------------------
     // Application entry point
     // ------------------------------------------------------------
 
     public static void main(String[] args) throws Exception {
-        new App().start();
+        App app = new App();
+        app.start();
+
+        // SIGTERM (rolling updates) and System.exit (/chaos crash) drain instead of dropping requests
+        Runtime.getRuntime().addShutdownHook(new Thread(app::shutdownGracefully, "graceful-shutdown"));
+
+        // Class-data-sharing training run (see the "cds" profile and the Dockerfile):
+        // exercise every route once so their classes end up in the archive, then exit
+        if ("true".equalsIgnoreCase(System.getenv("APP_TRAINING_RUN"))) {
+            app.trainAndStop();
+        }
+    }
+
+    // Sends a few requests to each (non-destructive) route, then stops the server
+    void trainAndStop() throws IOException {
+        String[] paths = {"/", "/healthz", "/readyz", "/version", "/metrics", "/greet?name=cds&mode=pirate"};
+        try {
+            for (int round = 0; round < 3; round++) {
+                for (String path : paths) {
+                    HttpURLConnection conn = (HttpURLConnection)
+                            new URL("http://127.0.0.1:" + port() + path).openConnection();
+                    conn.setRequestProperty("Accept-Encoding", "gzip");
+                    try (InputStream in = conn.getInputStream()) {
+                        in.readAllBytes();
+                    }
+                }
+            }
+        } finally {
+            stop();
+        }
+        System.out.println("Training run complete");
     }
 
     // ------------------------------------------------------------
@@ -86,58 +218,82 @@ public class App {
                 System.getenv().getOrDefault("PORT", "8080")
         );
 
+        start(port);
+    }
+
+    // Port 0 binds an ephemeral port (tests/benchmarks); see port()
+    void start(int port) throws Exception {
+        start(port, HttpEngine.kindFromEnv());
+    }
+
+    // engine: "jdk" or "nio" (see HttpEngine)
+    void start(int port, String engine) throws Exception {
+
+        // Local, persistent or cluster-wide (leased) visitor numbering
+        visitorSequence = VisitorSequence.fromEnv();
+
         // Create server bound to port
-        HttpServer server =
-                HttpServer.create(new InetSocketAddress(port), 0);
+        HttpEngine server = HttpEngine.create(engine, port);
 
         // --------------------------------------------------------
         // Routes
         // --------------------------------------------------------
 
         // Root: interactive dashboard
-        server.createContext("/", ex ->
-                trackAndRespond(ex, 200, "text/html; charset=utf-8", dashboardHtml())
+        route(server, "/", ex ->
+                trackAndRespond(ex, 200, dashboardPage.get())
         );
 
         // Liveness probe (machine endpoint)
-        server.createContext("/healthz", ex ->
-                trackAndRespond(ex, 200, "text/plain; charset=utf-8", "ok\n")
+        route(server, "/healthz", ex ->
+                trackAndRespond(ex, 200, healthzOk)
         );
 
-        // Readiness probe (machine endpoint)
-        server.createContext("/readyz", ex ->
-                trackAndRespond(ex, 200, "text/plain; charset=utf-8", "ready\n")
-        );
+        // Readiness probe (machine endpoint); fails as soon as shutdown begins
+        route(server, "/readyz", ex -> {
+            if (lifecycle.running()) {
+                trackAndRespond(ex, 200, readyzOk);
+            } else {
+                trackAndRespond(ex, 503, readyzDraining);
+            }
+        });
 
         // Runtime/build info (used by dashboard + useful in deployments)
-        server.createContext("/version", ex ->
-                trackAndRespond(ex, 200, "application/json; charset=utf-8", versionJson())
+        route(server, "/version", ex ->
+                trackAndRespond(ex, 200, "application/json; charset=utf-8", versionJson(ByteSink.forThread()))
         );
 
         // Prometheus-ish metrics (used by dashboard)
-        server.createContext("/metrics", ex ->
-                trackAndRespond(ex, 200, "text/plain; charset=utf-8", metricsText())
-        );
+        route(server, "/metrics", this::respondMetrics);
 
-        // Greeting endpoint: contextual + increments visitor counter
-        server.createContext("/greet", ex -> {
-            // Name from query string, URL-decoded (handles spaces)
-            String name = queryParamDecoded(ex, "name", "World");
-
-            // Requested greeting mode per request; fall back to current global mode
-            String requestedMode = queryParam(ex, "mode", mode);
+        // Server-Sent Events: version + metric deltas for the dashboard
+        route(server, "/events", ex -> {
+            if (events.subscribe(ex)) {
+                track(ex);
+            } else {
+                ex.getResponseHeaders().add("Retry-After", "5");
+                trackAndRespond(ex, 503, "text/plain; charset=utf-8", "Too many event streams\n");
+            }
+        });
 
-            // Increment per-instance visitor counter
-            long visitorNumber = greetVisitors.incrementAndGet();
+        // Greeting endpoint: contextual + increments visitor counter
+        route(server, "/greet", ex -> {
+            // Increment visitor counter (persistent when configured)
+            long visitorNumber = nextVisitor();
+            accessLog.noteVisitor(visitorNumber);
 
-            // Build contextual greeting response
-            String body = buildGreeting(name, visitorNumber, requestedMode);
+            // Name + mode are read in place from the query; body goes to a reused buffer
+            ByteSink body = renderGreeting(
+                    ByteSink.forThread(), ex.getRequestURI().getQuery(), visitorNumber, uptimeSeconds());
 
             trackAndRespond(ex, 200, "text/plain; charset=utf-8", body);
         });
 
+        // Batch greetings: NDJSON records in, one NDJSON greeting per record out (streamed)
+        route(server, "/greet/batch", this::respondGreetBatch);
+
         // Chaos endpoint: simulate failures for testing K8s self-healing
-        server.createContext("/chaos", ex -> {
+        route(server, "/chaos", ex -> {
             String action = queryParam(ex, "action", "");
 
             if ("enable".equals(action)) {
@@ -146,12 +302,31 @@ public class App {
                 trackAndRespond(ex, 200, "text/plain; charset=utf-8", "Chaos mode enabled\n");
 
             } else if ("disable".equals(action)) {
-                // Disable chaos mode (return to normal)
+                // Disable chaos mode (return to normal), injected faults included
                 mode = "normal";
+                chaosFaults.clear();
                 trackAndRespond(ex, 200, "text/plain; charset=utf-8", "Chaos mode disabled\n");
 
+            } else if ("inject".equals(action)) {
+                // Add a fault (see ChaosFaults for the parameters); it expires after its TTL
+                try {
+                    ChaosFaults.Fault fault = chaosFaults.add(
+                            ex.getRequestURI().getRawQuery(), workerPool, workerPool.threads());
+                    trackAndRespond(ex, 200, "text/plain; charset=utf-8",
+                            "Injected " + fault.describe(System.currentTimeMillis()) + "\n");
+                } catch (IllegalArgumentException e) {
+                    trackAndRespond(ex, 400, "text/plain; charset=utf-8", e.getMessage() + "\n");
+                }
+
+            } else if ("clear".equals(action)) {
+                int cleared = chaosFaults.clear();
+                trackAndRespond(ex, 200, "text/plain; charset=utf-8", "Cleared " + cleared + " fault(s)\n");
+
+            } else if ("faults".equals(action)) {
+                trackAndRespond(ex, 200, "text/plain; charset=utf-8", chaosFaults.describe());
+
             } else if ("crash".equals(action)) {
-                // Simulate a crash (K8s will restart the pod)
+                // Simulate a crash (K8s will restart the pod); exit runs the graceful shutdown hook
                 trackAndRespond(ex, 200, "text/plain; charset=utf-8", "Crashing in 2 seconds...\n");
                 new Thread(() -> {
                     try { Thread.sleep(2000); } catch (Exception ignored) {}
@@ -164,13 +339,177 @@ public class App {
             }
         });
 
-        // Default executor is fine for a demo
-        server.setExecutor(null);
+        // JFR recording of the whole JVM (404 unless PROFILING_ENABLED=true); kept
+        // out of the adaptive concurrency limit (see AdmissionControl.LONG_RUNNING_ROUTES)
+        route(server, "/debug/profile", this::respondProfile);
+
+        // Bounded worker pool (see WorkerPool for WORKER_* env vars)
+        workerPool = WorkerPool.fromEnv();
+        server.setExecutor(workerPool);
+
+        // Safepoint metrics come from a JFR event stream (JVM_SAFEPOINT_METRICS)
+        if (safepointMetrics) JvmMetrics.shared().retainSafepoints();
 
         // Start accepting requests
+        accessLog.start();
+        events.start();
         server.start();
+        this.server = server;
+
+        System.out.println("Server started on port " + port() + " (" + engine + " engine)");
+    }
+
+    // Actual bound port (differs from the requested one when that was 0)
+    int port() {
+        return server.port();
+    }
+
+    // Stops immediately: open requests are cut off (tests, training run)
+    void stop() {
+        lifecycle.beginDrain();
+        events.stop();
+
+        HttpEngine running = server;
+        if (running != null) running.stop();
+
+        release();
+    }
+
+    // Readiness off, then stop accepting and let requests in flight finish (see Lifecycle)
+    void shutdownGracefully() {
+        if (!lifecycle.beginDrain()) return;
+        System.out.println("Shutting down: readiness off, draining for up to "
+                + lifecycle.drainTimeoutMillis() + "ms");
+
+        lifecycle.awaitReadinessDelay();
+        // Event streams never finish by themselves
+        events.stop();
+
+        HttpEngine running = server;
+        if (running != null) {
+            long inFlight = requestsInFlight();
+            long drainStart = System.nanoTime();
+            int abandoned = running.stop(lifecycle.drainTimeoutMillis());
+            lifecycle.drained(inFlight, System.nanoTime() - drainStart, abandoned);
+        }
+
+        release();
+
+        // Last scrape may predate the drain: leave the final totals in the log. One
+        // line, since stdout may also carry the JSON access log (ACCESS_LOG=stdout)
+        System.out.println(shutdownSummary());
+    }
+
+    String shutdownSummary() {
+        return "Shutdown: " + requestCounters.total() + " request(s), " + greetVisitors.sum()
+                + " visitor(s) greeted, " + lifecycle.describeDrain();
+    }
+
+    // Requests inside a route handler right now
+    long requestsInFlight() {
+        long total = 0;
+        for (RouteStats stats : routeStats.values()) total += stats.inFlight();
+        return total;
+    }
+
+    // Threads, watchers, the visitor store (forced to disk when persistent) and
+    // the access log (records still buffered are written out)
+    private void release() {
+        // Parked pool_exhaustion threads would keep the pool from terminating
+        chaosFaults.clear();
+
+        WorkerPool pool = workerPool;
+        if (pool != null) pool.shutdown();
+
+        accessLog.close();
+
+        // Its JFR thread is non-daemon: the last App stopping closes the stream
+        if (safepointMetrics) JvmMetrics.shared().releaseSafepoints();
+
+        GreetingModes modes = greetingModes.getIfPresent();
+        if (modes != null) modes.close();
+
+        try {
+            visitorSequence.close();
+        } catch (IOException e) {
+            System.out.println("Failed to close visitor sequence: " + e.getMessage());
+        }
+        lifecycle.stopped();
+    }
+
+    // ------------------------------------------------------------
+    // Route registration
+    // ------------------------------------------------------------
+
+    // Registers a context whose handler is timed per route, answers 503 when the
+    // worker pool is saturated and 429 when admission control turns it away.
+    // Priority-lane routes (probes) are always handled, even on the dispatcher.
+    private void route(HttpEngine server, String path, HttpHandler handler) {
+        requestCounters.registerRoute(path);
+        RouteStats stats = routeStats.computeIfAbsent(path, RouteStats::new);
+        AdmissionControl.Route lane = admission.register(path);
+
+        server.createContext(path, ex -> {
+            long start = stats.begin();
+            accessLog.begin();
+            boolean sampled = profiler.begin();
+            try {
+                // Draining: finish this request, but don't keep the connection
+                if (!lifecycle.running()) ex.getResponseHeaders().set("Connection", "close");
+
+                if (lane.critical()) {
+                    if (chaosFaults.armed()) chaosFaults.apply(path, ex);
+                    handler.handle(ex);
+                    return;
+                }
+                if (WorkerPool.isShedding()) {
+                    rejectOverloaded(ex);
+                    return;
+                }
+
+                int retryAfter = lane.admit(ex);
+                if (retryAfter != AdmissionControl.ADMITTED) {
+                    rejectRateLimited(ex, retryAfter);
+                    return;
+                }
+                try {
+                    if (chaosFaults.armed()) chaosFaults.apply(path, ex);
+                    handler.handle(ex);
+                } finally {
+                    lane.release(System.nanoTime() - start);
+                }
+            } finally {
+                if (sampled) profiler.finish(stats);
+                stats.finish(start);
+                accessLog.record(ex, start);
+            }
+        });
+    }
+
+    // Cheap backpressure response, runs on the dispatcher thread
+    private void rejectOverloaded(HttpExchange ex) throws IOException {
+        byte[] bytes = "Server busy, retry later\n".getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().add("Content-Type", "text/plain; charset=utf-8");
+        ex.getResponseHeaders().add("Retry-After", String.valueOf(workerPool.retryAfterSeconds()));
+        ex.sendResponseHeaders(503, bytes.length);
+        accessLog.noteBytes(bytes.length);
+
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
 
-        System.out.println("Server started on port " + port);
+    // 429 from admission control, also cheap enough for the dispatcher thread
+    private void rejectRateLimited(HttpExchange ex, int retryAfterSeconds) throws IOException {
+        byte[] bytes = "Too many requests, retry later\n".getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().add("Content-Type", "text/plain; charset=utf-8");
+        ex.getResponseHeaders().add("Retry-After", String.valueOf(retryAfterSeconds));
+        ex.sendResponseHeaders(429, bytes.length);
+        accessLog.noteBytes(bytes.length);
+
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(bytes);
+        }
     }
 
     // ------------------------------------------------------------
@@ -180,24 +519,115 @@ public class App {
     // Builds a contextual greeting message
     private String buildGreeting(String name, long visitorNumber, String requestedMode) {
         long uptimeSeconds = Duration.between(startedAt, Instant.now()).getSeconds();
+        return buildGreeting(name, visitorNumber, requestedMode, uptimeSeconds);
+    }
 
-        boolean pirate = "pirate".equalsIgnoreCase(requestedMode);
+    // String rendering from the compiled template (also each /greet/batch record);
+    // GreetingRenderer must stay byte-identical to it. Unknown modes render with
+    // the default mode (see GreetingModes).
+    String buildGreeting(String name, long visitorNumber, String requestedMode, long uptimeSeconds) {
+        return greetingModes.get().resolve(requestedMode).expand(name, visitorNumber, mode, uptimeSeconds);
+    }
+
+    // Allocation-free equivalent of buildGreeting for a raw /greet query string
+    ByteSink renderGreeting(ByteSink sink, String query, long visitorNumber, long uptimeSeconds) {
+        return greetingRenderer.get().render(sink, query, visitorNumber, mode, uptimeSeconds);
+    }
 
-        String opening = pirate
-                ? "Ahoy, " + name + "! 🏴‍☠️"
-                : "Hello, " + name + "! 👋";
+    long nextVisitor() {
+        greetVisitors.increment();
+        return visitorSequence.next();
+    }
+
+    // First of count consecutive visitor numbers
+    long reserveVisitors(int count) {
+        greetVisitors.add(count);
+        return visitorSequence.reserve(count);
+    }
 
-        // Multi-line, readable "verification-style" output for demos
-        return opening + "\n"
-                + "You are visitor #" + visitorNumber + "\n"
-                + "Service: " + serviceName + "\n"
-                + "Greeting Mode: " + requestedMode + "\n"
-                + "App Mode: " + mode + "\n"
-                + "Version: " + version + "\n"
-                + "Git SHA: " + gitSha + "\n"
-                + "Pod: " + podName + "\n"
-                + "Instance: " + instanceId.substring(0, 8) + "\n"
-                + "Uptime: " + uptimeSeconds + "s\n";
+    // Whole seconds since start, without allocating Duration/Instant
+    long uptimeSeconds() {
+        return (System.currentTimeMillis() - startedAtMillis) / 1000;
+    }
+
+    // ------------------------------------------------------------
+    // Batch greetings
+    // ------------------------------------------------------------
+
+    // Reads the (bounded) body, reserves one visitor range for all records, then
+    // renders and streams each record in order. The body is held so the range can be
+    // sized up front; output is chunked and flushed as it fills, never held whole.
+    private void respondGreetBatch(HttpExchange ex) throws IOException {
+        if (!"POST".equals(ex.getRequestMethod())) {
+            ex.getResponseHeaders().add("Allow", "POST");
+            trackAndRespond(ex, 405, "text/plain; charset=utf-8", "Use POST with an NDJSON body\n");
+            return;
+        }
+
+        String declared = ex.getRequestHeaders().getFirst("Content-Length");
+        if (declared != null && Long.parseLong(declared.trim()) > greetingBatch.maxBytes()) {
+            trackAndRespond(ex, 413, "text/plain; charset=utf-8", batchTooLarge());
+            return;
+        }
+
+        byte[] body;
+        try (InputStream in = ex.getRequestBody()) {
+            body = in.readNBytes(greetingBatch.maxBytes() + 1);
+        }
+        int len = body.length;
+        int records = GreetingBatch.countRecords(body, len);
+        if (len > greetingBatch.maxBytes() || records > greetingBatch.maxRecords()) {
+            trackAndRespond(ex, 413, "text/plain; charset=utf-8", batchTooLarge());
+            return;
+        }
+
+        track(ex);
+        long visitor = records > 0 ? reserveVisitors(records) : 0;
+        if (records > 0) accessLog.noteVisitor(visitor);
+        long uptime = uptimeSeconds();
+
+        ex.getResponseHeaders().add("Content-Type", GreetingBatch.CONTENT_TYPE);
+        // Length 0 = chunked transfer encoding
+        ex.sendResponseHeaders(200, 0);
+
+        ByteSink sink = ByteSink.forThread();
+        String[] fields = new String[2];
+        long sent = 0;
+        try (OutputStream os = ex.getResponseBody()) {
+            int line = 0;
+            for (int from = 0; from < len; ) {
+                int to = GreetingBatch.lineEnd(body, from, len);
+                line++;
+                if (!GreetingBatch.isBlank(body, from, to)) {
+                    if (GreetingBatch.parseRecord(body, from, to, fields)) {
+                        String name = fields[GreetingBatch.NAME] != null ? fields[GreetingBatch.NAME] : "World";
+                        String requestedMode = fields[GreetingBatch.MODE] != null ? fields[GreetingBatch.MODE] : mode;
+                        GreetingBatch.appendGreeting(sink, visitor,
+                                buildGreeting(name, visitor, requestedMode, uptime));
+                    } else {
+                        // Its reserved number is skipped, never reused
+                        GreetingBatch.appendInvalid(sink, line);
+                    }
+                    visitor++;
+
+                    if (sink.length() >= 8192) {
+                        sink.writeTo(os);
+                        sent += sink.length();
+                        sink.reset();
+                    }
+                }
+                from = to + 1;
+            }
+            sink.writeTo(os);
+            sent += sink.length();
+        } finally {
+            accessLog.noteBytes(sent);
+        }
+    }
+
+    private String batchTooLarge() {
+        return "Batch too large (max " + greetingBatch.maxBytes() + " bytes, "
+                + greetingBatch.maxRecords() + " records)\n";
     }
 
     // ------------------------------------------------------------
@@ -214,39 +644,164 @@ public class App {
     // Version endpoint payload
     // ------------------------------------------------------------
 
-    private String versionJson() {
+    // Renders into the given sink: cached prefix + uptime digits + current mode
+    ByteSink versionJson(ByteSink sink) {
         long uptime = Duration.between(startedAt, Instant.now()).getSeconds();
 
-        return String.format(
-                "{\"service\":\"%s\",\"version\":\"%s\",\"gitSha\":\"%s\",\"podName\":\"%s\",\"instanceId\":\"%s\",\"uptimeSeconds\":%d,\"mode\":\"%s\"}\n",
-                serviceName, version, gitSha, podName, instanceId, uptime, mode
-        );
+        return sink.append(versionPrefix.get())
+                .appendLong(uptime)
+                .append(VERSION_MODE_FIELD)
+                .appendUtf8(mode)
+                .append(VERSION_SUFFIX);
+    }
+
+    String versionJson() {
+        return new String(versionJson(new ByteSink(256)).toByteArray(), StandardCharsets.UTF_8);
     }
 
     // ------------------------------------------------------------
     // Metrics output
     // ------------------------------------------------------------
 
-    private String metricsText() {
-        long uptime = Duration.between(startedAt, Instant.now()).getSeconds();
+    // Whole exposition as a String (Prometheus text); /metrics itself streams
+    String metricsText() {
+        MetricsWriter w = MetricsWriter.buffered(MetricsWriter.Format.PROMETHEUS);
+        writeMetrics(w);
+        w.finish();
+        return w.text();
+    }
+
+    void writeMetrics(MetricsWriter w) {
+        w.gauge("service_uptime_seconds", uptimeSeconds());
+        w.counter("requests_total", requestCounters.total());
+        w.counter("greet_visitors_total", greetVisitors.sum());
+        visitorSequence.writeMetrics(w);
+
+        // One line per route context plus "other" (favicon, scanners, typos)
+        requestCounters.writeMetrics(w);
+
+        // Per-route latency histograms and in-flight gauges
+        if (!routeStats.isEmpty()) {
+            w.histogram("http_request_duration_seconds");
+            for (RouteStats stats : routeStats.values()) {
+                stats.latency().writeMetrics(w, "http_request_duration_seconds", stats.route());
+            }
+            w.gauge("http_requests_in_flight");
+            for (RouteStats stats : routeStats.values()) {
+                w.sample("http_requests_in_flight", "route", stats.route(), stats.inFlight());
+            }
+        }
+
+        // CPU time and allocation of the sampled requests, per route
+        if (profiler.enabled() && !routeStats.isEmpty()) {
+            w.counter("http_request_cpu_seconds_total");
+            for (RouteStats stats : routeStats.values()) {
+                w.sample("http_request_cpu_seconds_total", "route", stats.route(),
+                        LatencyHistogram.formatSeconds(stats.cpuNanos()));
+            }
+            w.counter("http_request_allocated_bytes_total");
+            for (RouteStats stats : routeStats.values()) {
+                w.sample("http_request_allocated_bytes_total", "route", stats.route(), stats.allocatedBytes());
+            }
+            w.counter("http_request_resource_samples_total");
+            for (RouteStats stats : routeStats.values()) {
+                w.sample("http_request_resource_samples_total", "route", stats.route(), stats.resourceSamples());
+            }
+        }
+
+        // Loaded greeting modes (only once /greet has loaded them)
+        GreetingModes modes = greetingModes.getIfPresent();
+        if (modes != null) modes.writeMetrics(w);
 
-        StringBuilder sb = new StringBuilder();
-        sb.append("service_uptime_seconds ").append(uptime).append("\n");
-        sb.append("requests_total ").append(requestsTotal.get()).append("\n");
-        sb.append("greet_visitors_total ").append(greetVisitors.get()).append("\n");
+        // Connected dashboards
+        events.writeMetrics(w);
 
-        for (Map.Entry<String, AtomicLong> e : requestsByPath.entrySet()) {
-            // Skip the browser favicon noise to keep output clean
-            if ("/favicon.ico".equals(e.getKey())) continue;
+        // Rate limiting / load shedding decisions
+        admission.writeMetrics(w);
 
-            sb.append("requests_by_path{path=\"")
-              .append(e.getKey())
-              .append("\"} ")
-              .append(e.getValue().get())
-              .append("\n");
+        // Readiness state and the last drain
+        lifecycle.writeMetrics(w);
+
+        // Access log throughput and drops (when enabled)
+        accessLog.writeMetrics(w);
+
+        // Injected faults, active and applied
+        chaosFaults.writeMetrics(w);
+
+        // Worker pool saturation gauges
+        WorkerPool pool = workerPool;
+        if (pool != null) pool.writeMetrics(w);
+
+        // GC, allocation, heap / off-heap, threads, safepoints
+        JvmMetrics.shared().writeMetrics(w);
+        profiler.writeMetrics(w);
+
+        if (metricsSnapshots.enabled()) metricsSnapshots.writeMetrics(w);
+    }
+
+    // Streams the exposition (chunked) or serves a shared snapshot; format follows Accept
+    private void respondMetrics(HttpExchange ex) throws IOException {
+        track(ex);
+
+        MetricsWriter.Format format = MetricsWriter.Format.negotiate(ex.getRequestHeaders().get("Accept"));
+        ex.getResponseHeaders().add("Content-Type", format.contentType());
+
+        if (metricsSnapshots.enabled()) {
+            byte[] body = metricsSnapshots.get(format);
+            ex.sendResponseHeaders(200, body.length);
+            accessLog.noteBytes(body.length);
+            try (OutputStream os = ex.getResponseBody()) {
+                os.write(body);
+            }
+            return;
         }
 
-        return sb.toString();
+        // Length 0 = chunked transfer encoding
+        ex.sendResponseHeaders(200, 0);
+        try (OutputStream os = ex.getResponseBody()) {
+            MetricsWriter w = MetricsWriter.streaming(os, format);
+            writeMetrics(w);
+            w.finish();
+        }
+    }
+
+    // Records for ?seconds=N and sends the .jfr file (see Profiler)
+    private void respondProfile(HttpExchange ex) throws IOException {
+        if (!profiler.enabled()) {
+            trackAndRespond(ex, 404, "text/plain; charset=utf-8", "Not found\n");
+            return;
+        }
+
+        String query = ex.getRequestURI().getQuery();
+        Path file;
+        try {
+            file = profiler.record(queryParam(query, "seconds", "10"), queryParam(query, "settings", "profile"));
+        } catch (IllegalArgumentException e) {
+            trackAndRespond(ex, 400, "text/plain; charset=utf-8", e.getMessage() + "\n");
+            return;
+        } catch (IllegalStateException e) {
+            trackAndRespond(ex, 409, "text/plain; charset=utf-8", e.getMessage() + "\n");
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            trackAndRespond(ex, 503, "text/plain; charset=utf-8", "Recording interrupted\n");
+            return;
+        }
+
+        try {
+            track(ex);
+            long size = Files.size(file);
+            ex.getResponseHeaders().add("Content-Type", "application/octet-stream");
+            ex.getResponseHeaders().add("Content-Disposition", "attachment; filename=\""
+                    + serviceName + "-" + podName + "-" + System.currentTimeMillis() + ".jfr\"");
+            ex.sendResponseHeaders(200, size);
+            accessLog.noteBytes(size);
+            try (OutputStream os = ex.getResponseBody()) {
+                Files.copy(file, os);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
     }
 
     // ------------------------------------------------------------
@@ -293,6 +848,7 @@ public class App {
             + "      <code>/readyz</code>\n"
             + "      <code>/version</code>\n"
             + "      <code>/metrics</code>\n"
+            + "      <code>/events</code>\n"
             + "      <code>/greet?name=John&mode=pirate</code>\n"
             + "      <code>/chaos?action=crash</code>\n"
             + "    </div>\n"
@@ -334,8 +890,7 @@ public class App {
             + "  <div class=\"badge\" id=\"badge\">Visitor #–</div>\n"
             + "\n"
             + "<script>\n"
-            + "async function refresh() {\n"
-            + "  const v = JSON.parse(await (await fetch('/version')).text());\n"
+            + "function showVersion(v) {\n"
             + "  document.getElementById('version').innerHTML =\n"
             + "    '<div class=\"row\"><span class=\"label\">Service:</span> <span class=\"value\">' + v.service + '</span></div>' +\n"
             + "    '<div class=\"row\"><span class=\"label\">Version:</span> <span class=\"value\">' + v.version + '</span></div>' +\n"
@@ -344,9 +899,38 @@ public class App {
             + "    '<div class=\"row\"><span class=\"label\">Instance:</span> <span class=\"value\">' + v.instanceId + '</span></div>' +\n"
             + "    '<div class=\"row\"><span class=\"label\">Uptime:</span> <span class=\"value\">' + v.uptimeSeconds + 's</span></div>' +\n"
             + "    '<div class=\"row\"><span class=\"label\">App Mode:</span> <span class=\"value\">' + v.mode + '</span></div>';\n"
+            + "}\n"
             + "\n"
+            + "// Polling fallback (no EventSource, or /events refused the connection)\n"
+            + "let polling = false;\n"
+            + "async function refresh() {\n"
+            + "  showVersion(JSON.parse(await (await fetch('/version')).text()));\n"
             + "  document.getElementById('metrics').textContent = await (await fetch('/metrics')).text();\n"
             + "}\n"
+            + "function startPolling() {\n"
+            + "  if (polling) return;\n"
+            + "  polling = true;\n"
+            + "  setInterval(refresh, 2000);\n"
+            + "  refresh();\n"
+            + "}\n"
+            + "\n"
+            + "// Push updates: full state first, then only changed lines (keyed by series)\n"
+            + "const metricLines = new Map();\n"
+            + "function subscribe() {\n"
+            + "  if (!window.EventSource) { startPolling(); return; }\n"
+            + "  const es = new EventSource('/events');\n"
+            + "  es.addEventListener('version', e => showVersion(JSON.parse(e.data)));\n"
+            + "  es.addEventListener('metrics', e => {\n"
+            + "    for (const line of e.data.split('\\n')) {\n"
+            + "      const i = line.lastIndexOf(' ');\n"
+            + "      metricLines.set(i > 0 ? line.slice(0, i) : line, line);\n"
+            + "    }\n"
+            + "    document.getElementById('metrics').textContent = Array.from(metricLines.values()).join('\\n');\n"
+            + "  });\n"
+            + "  es.onerror = () => {\n"
+            + "    if (es.readyState === EventSource.CLOSED) startPolling();\n"
+            + "  };\n"
+            + "}\n"
             + "\n"
             + "async function greet() {\n"
             + "  const name = encodeURIComponent(document.getElementById('name').value || 'World');\n"
@@ -355,17 +939,16 @@ public class App {
             + "  document.getElementById('greeting').textContent = text;\n"
             + "  const match = text.match(/visitor #(\\d+)/);\n"
             + "  if (match) document.getElementById('badge').textContent = 'Visitor #' + match[1];\n"
-            + "  await refresh();\n"
+            + "  if (polling) await refresh();\n"
             + "}\n"
             + "\n"
             + "async function chaos(action) {\n"
             + "  const text = await (await fetch('/chaos?action=' + action)).text();\n"
             + "  document.getElementById('chaos').textContent = text;\n"
-            + "  await refresh();\n"
+            + "  if (polling) await refresh();\n"
             + "}\n"
             + "\n"
-            + "setInterval(refresh, 2000);\n"
-            + "refresh();\n"
+            + "subscribe();\n"
             + "</script>\n"
             + "</body>\n"
             + "</html>\n";
@@ -378,32 +961,61 @@ public class App {
     private void trackAndRespond(HttpExchange ex, int status, String contentType, String body)
             throws IOException {
 
-        // Total request count
-        requestsTotal.incrementAndGet();
-
-        // Per-path request count
-        String path = ex.getRequestURI().getPath();
-        requestsByPath
-                .computeIfAbsent(path, k -> new AtomicLong(0))
-                .incrementAndGet();
+        track(ex);
 
         // Write HTTP response
         byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
         ex.getResponseHeaders().add("Content-Type", contentType);
         ex.sendResponseHeaders(status, bytes.length);
+        accessLog.noteBytes(bytes.length);
 
         try (OutputStream os = ex.getResponseBody()) {
             os.write(bytes);
         }
     }
 
+    // Same, for bodies already rendered into a (per-thread) sink
+    private void trackAndRespond(HttpExchange ex, int status, String contentType, ByteSink body)
+            throws IOException {
+
+        track(ex);
+
+        ex.getResponseHeaders().add("Content-Type", contentType);
+        ex.sendResponseHeaders(status, body.length());
+        accessLog.noteBytes(body.length());
+
+        try (OutputStream os = ex.getResponseBody()) {
+            body.writeTo(os);
+        }
+    }
+
+    // Same, for pre-encoded static bodies (handles ETag / gzip)
+    private void trackAndRespond(HttpExchange ex, int status, CachedResponse cached)
+            throws IOException {
+
+        track(ex);
+        accessLog.noteBytes(cached.send(ex, status));
+    }
+
+    private void track(HttpExchange ex) {
+        recordRequest(ex.getRequestURI().getPath());
+    }
+
+    // Total + per-route count (path is normalised to its route context)
+    void recordRequest(String path) {
+        requestCounters.record(path);
+    }
+
     // ------------------------------------------------------------
     // Query string helpers
     // ------------------------------------------------------------
 
     // Basic query param (no decoding)
     private static String queryParam(HttpExchange ex, String key, String defaultVal) {
-        String q = ex.getRequestURI().getQuery();
+        return queryParam(ex.getRequestURI().getQuery(), key, defaultVal);
+    }
+
+    static String queryParam(String q, String key, String defaultVal) {
         if (q == null) return defaultVal;
 
         for (String part : q.split("&")) {
@@ -414,10 +1026,10 @@ public class App {
     }
 
     // URL-decoded query param (supports spaces and special characters)
-    private static String queryParamDecoded(HttpExchange ex, String key, String defaultVal) {
+    static String queryParamDecoded(String q, String key, String defaultVal) {
         try {
             // Decode with UTF-8 (Java 11 safe)
-            return URLDecoder.decode(queryParam(ex, key, defaultVal), "UTF-8");
+            return URLDecoder.decode(queryParam(q, key, defaultVal), "UTF-8");
         } catch (Exception e) {
             return defaultVal;
         }
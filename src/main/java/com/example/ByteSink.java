@@ -0,0 +1,171 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+// ------------------------------------------------------------
+// Reusable, growable byte buffer for rendering response bodies
+// ------------------------------------------------------------
+//
+// Meant to be kept per thread (see ByteSink.forThread()) and reset between
+// requests, so hot paths can render without allocating Strings or byte[].
+
+final class ByteSink {
+
+    private static final ThreadLocal<ByteSink> PER_THREAD =
+            ThreadLocal.withInitial(() -> new ByteSink(1024));
+
+    // Max digits of a long, including sign
+    private static final int LONG_DIGITS = 20;
+
+    // Buffers that grew past this are not kept around between requests
+    private static final int MAX_RETAINED = 256 * 1024;
+
+    private byte[] buf;
+    private int len;
+
+    ByteSink(int initialCapacity) {
+        this.buf = new byte[Math.max(16, initialCapacity)];
+    }
+
+    // Current thread's sink, already reset
+    static ByteSink forThread() {
+        ByteSink sink = PER_THREAD.get();
+        if (sink.buf.length > MAX_RETAINED) {
+            sink = new ByteSink(1024);
+            PER_THREAD.set(sink);
+        }
+        sink.reset();
+        return sink;
+    }
+
+    // ------------------------------------------------------------
+    // Writing
+    // ------------------------------------------------------------
+
+    ByteSink reset() {
+        len = 0;
+        return this;
+    }
+
+    ByteSink append(byte[] bytes) {
+        return append(bytes, 0, bytes.length);
+    }
+
+    ByteSink append(byte[] bytes, int off, int count) {
+        ensure(count);
+        System.arraycopy(bytes, off, buf, len, count);
+        len += count;
+        return this;
+    }
+
+    ByteSink appendByte(int b) {
+        ensure(1);
+        buf[len++] = (byte) b;
+        return this;
+    }
+
+    // Decimal digits without going through Long.toString
+    ByteSink appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            return appendAscii("-9223372036854775808");
+        }
+        ensure(LONG_DIGITS);
+        if (value < 0) {
+            buf[len++] = '-';
+            value = -value;
+        }
+        int start = len;
+        do {
+            buf[len++] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+
+        // Digits were written least-significant first
+        for (int i = start, j = len - 1; i < j; i++, j--) {
+            byte tmp = buf[i];
+            buf[i] = buf[j];
+            buf[j] = tmp;
+        }
+        return this;
+    }
+
+    // Caller guarantees the text is 7-bit ASCII
+    ByteSink appendAscii(CharSequence text) {
+        int n = text.length();
+        ensure(n);
+        for (int i = 0; i < n; i++) {
+            buf[len++] = (byte) text.charAt(i);
+        }
+        return this;
+    }
+
+    // UTF-8 encodes the given range without an intermediate byte[]
+    ByteSink appendUtf8(CharSequence text, int from, int to) {
+        ensure((to - from) * 3);
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buf[len++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[len++] = (byte) (0xC0 | (c >> 6));
+                buf[len++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < to
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, text.charAt(++i));
+                buf[len++] = (byte) (0xF0 | (cp >> 18));
+                buf[len++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[len++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[len++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Lone surrogate: same replacement String.getBytes(UTF_8) uses
+                buf[len++] = '?';
+            } else {
+                buf[len++] = (byte) (0xE0 | (c >> 12));
+                buf[len++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[len++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return this;
+    }
+
+    ByteSink appendUtf8(CharSequence text) {
+        return appendUtf8(text, 0, text.length());
+    }
+
+    // ------------------------------------------------------------
+    // Reading
+    // ------------------------------------------------------------
+
+    int length() {
+        return len;
+    }
+
+    // Backing array; only the first length() bytes are valid
+    byte[] array() {
+        return buf;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buf, len);
+    }
+
+    void writeTo(OutputStream os) throws IOException {
+        os.write(buf, 0, len);
+    }
+
+    // ------------------------------------------------------------
+    // Internals
+    // ------------------------------------------------------------
+
+    private void ensure(int extra) {
+        if (len + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+// ------------------------------------------------------------
+// Pre-encoded response body for static routes
+// ------------------------------------------------------------
+//
+// The body is encoded to UTF-8 (and gzip) exactly once. Serving it is a
+// header lookup plus one write of a shared byte[]; conditional requests
+// with a matching If-None-Match get an empty 304. Each content-coding has
+// its own strong ETag (the gzip one ends in "-gz"), so a cache never
+// revalidates one variant with the other's bytes. On the NIO engine the
+// body goes out from a read-only direct copy without touching the heap.
+
+final class CachedResponse {
+
+    // Below this size gzip framing costs more than it saves
+    private static final int GZIP_MIN_BYTES = 512;
+
+    private final String contentType;
+    private final byte[] identity;
+    private final byte[] gzipped;   // null when not worth compressing
+    private final String etag;
+    private final String gzippedEtag;
+
+    // Read-only direct copies for NioExchange.sendBody (duplicated per request)
+    private final ByteBuffer identityDirect;
+    private final ByteBuffer gzippedDirect;
+
+    private CachedResponse(String contentType, byte[] identity, byte[] gzipped, String etag) {
+        this.contentType = contentType;
+        this.identity = identity;
+        this.gzipped = gzipped;
+        this.etag = etag;
+        this.gzippedEtag = etag.substring(0, etag.length() - 1) + "-gz\"";
+        this.identityDirect = direct(identity);
+        this.gzippedDirect = gzipped != null ? direct(gzipped) : null;
+    }
+
+    static CachedResponse of(String contentType, String body) {
+        byte[] identity = body.getBytes(StandardCharsets.UTF_8);
+        byte[] gzipped = identity.length >= GZIP_MIN_BYTES ? gzip(identity) : null;
+        return new CachedResponse(contentType, identity, gzipped, etagOf(identity));
+    }
+
+    // ------------------------------------------------------------
+    // Serving
+    // ------------------------------------------------------------
+
+    // Writes the response (or a 304) and returns the number of body bytes sent
+    int send(HttpExchange ex, int status) throws IOException {
+        boolean gzip = gzipped != null && acceptsGzip(ex);
+        String tag = gzip ? gzippedEtag : etag;
+
+        // On the 304 too: it is the variant a cache stores the validator for
+        if (gzipped != null) ex.getResponseHeaders().add("Vary", "Accept-Encoding");
+        ex.getResponseHeaders().add("ETag", tag);
+
+        if (status == 200 && matchesIfNoneMatch(ex, tag)) {
+            ex.sendResponseHeaders(304, -1);
+            ex.close();
+            return 0;
+        }
+
+        ex.getResponseHeaders().add("Content-Type", contentType);
+
+        byte[] bytes = identity;
+        ByteBuffer direct = identityDirect;
+        if (gzip) {
+            ex.getResponseHeaders().add("Content-Encoding", "gzip");
+            bytes = gzipped;
+            direct = gzippedDirect;
+        }
+
+        if (ex instanceof NioExchange) {
+            ((NioExchange) ex).sendBody(status, direct.duplicate());
+            return bytes.length;
+        }
+
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(bytes);
+        }
+        return bytes.length;
+    }
+
+    String contentType() {
+        return contentType;
+    }
+
+    // Tag of the identity variant
+    String etag() {
+        return etag;
+    }
+
+    byte[] bytes() {
+        return identity;
+    }
+
+    // ------------------------------------------------------------
+    // Internals
+    // ------------------------------------------------------------
+
+    private static boolean matchesIfNoneMatch(HttpExchange ex, String etag) {
+        List<String> values = ex.getRequestHeaders().get("If-None-Match");
+        if (values == null) return false;
+
+        for (String value : values) {
+            for (String candidate : value.split(",")) {
+                String tag = candidate.trim();
+                // Weak comparison: a gzip-transformed W/ tag still matches
+                if (tag.startsWith("W/")) tag = tag.substring(2);
+                if (tag.equals("*") || tag.equals(etag)) return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(HttpExchange ex) {
+        return acceptsGzip(ex.getRequestHeaders().get("Accept-Encoding"));
+    }
+
+    // An explicit gzip (or x-gzip) entry decides, otherwise "*" does; q=0 means
+    // "not acceptable" (RFC 9110 12.5.3), so "gzip;q=0" gets the identity body
+    static boolean acceptsGzip(List<String> values) {
+        if (values == null) return false;
+
+        double gzip = -1;
+        double any = -1;
+        for (String value : values) {
+            for (String entry : value.split(",")) {
+                String[] params = entry.split(";");
+                String coding = params[0].trim().toLowerCase(Locale.ROOT);
+                double q = qValue(params);
+                if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                    gzip = Math.max(gzip, q);
+                } else if (coding.equals("*")) {
+                    any = Math.max(any, q);
+                }
+            }
+        }
+        return gzip >= 0 ? gzip > 0 : any > 0;
+    }
+
+    // 1 when absent; a malformed weight counts as 0 (identity is always safe)
+    private static double qValue(String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].trim();
+            if (!param.regionMatches(true, 0, "q=", 0, 2)) continue;
+            try {
+                return Double.parseDouble(param.substring(2).trim());
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 1;
+    }
+
+    private static ByteBuffer direct(byte[] bytes) {
+        ByteBuffer buf = ByteBuffer.allocateDirect(bytes.length);
+        buf.put(bytes).flip();
+        return buf.asReadOnlyBuffer();
+    }
+
+    private static String etagOf(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return "\"" + Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(bytes.length) + "\"";
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(bytes);
+        } catch (IOException e) {
+            // In-memory stream: cannot happen, serve identity only
+            return null;
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,417 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// ------------------------------------------------------------
+// Injectable faults for /chaos (incident rehearsals, load tests)
+// ------------------------------------------------------------
+//
+//   /chaos?action=inject&fault=<type>[&route=/greet][&percent=25][&ttl=60]...
+//
+//   latency          sleep before the handler: ms (100), dist=fixed|uniform|
+//                    exponential|pareto (mean ms), max_ms (10 x ms)
+//   cpu              busy-spin before the handler: ms (50)
+//   alloc            allocate and drop mb (16) MiB before the handler (GC storms)
+//   slow_write       trickle the response body at bps (1024) bytes per second
+//   pool_exhaustion  park threads (all) worker threads for the whole TTL;
+//                    pool-wide, route and percent do not apply
+//
+// route defaults to "*" (every route but /chaos itself, which must stay
+// reachable to clear faults), percent to 100 and ttl to 60 seconds (capped
+// by CHAOS_MAX_TTL_SECONDS). Faults stack; each expires on its own, and
+// /chaos?action=clear (or disable) removes them all at once.
+//
+// The route wrapper only calls apply() while armed() is true, so with no
+// fault active the request path pays one volatile read.
+
+final class ChaosFaults {
+
+    static final int LATENCY = 0;
+    static final int CPU = 1;
+    static final int ALLOC = 2;
+    static final int SLOW_WRITE = 3;
+    static final int POOL_EXHAUSTION = 4;
+
+    static final String[] TYPES = {"latency", "cpu", "alloc", "slow_write", "pool_exhaustion"};
+    static final String[] DISTRIBUTIONS = {"fixed", "uniform", "exponential", "pareto"};
+
+    static final String ALL_ROUTES = "*";
+    private static final String CHAOS_ROUTE = "/chaos";
+
+    // Pareto shape: finite mean, heavy tail
+    private static final double PARETO_ALPHA = 1.5;
+    private static final int ALLOC_CHUNK = 64 * 1024;
+
+    private static final Fault[] NONE = new Fault[0];
+
+    private final long maxTtlMillis;
+
+    // Copy-on-write; replaced whole under the lock, read lock-free per request
+    private volatile Fault[] active = NONE;
+    private volatile boolean armed;
+
+    private final LongAdder[] injections = new LongAdder[TYPES.length];
+    private final AtomicInteger heldThreads = new AtomicInteger();
+
+    // Keeps allocations and spin results observable so the JIT cannot drop them
+    static volatile Object sink;
+
+    // ------------------------------------------------------------
+    // Construction
+    // ------------------------------------------------------------
+
+    // Reads CHAOS_MAX_TTL_SECONDS (default 3600)
+    static ChaosFaults fromEnv() {
+        return new ChaosFaults(TimeUnit.SECONDS.toMillis(
+                Long.parseLong(System.getenv().getOrDefault("CHAOS_MAX_TTL_SECONDS", "3600"))));
+    }
+
+    ChaosFaults(long maxTtlMillis) {
+        this.maxTtlMillis = Math.max(1, maxTtlMillis);
+        for (int i = 0; i < injections.length; i++) injections[i] = new LongAdder();
+    }
+
+    // ------------------------------------------------------------
+    // Control (/chaos)
+    // ------------------------------------------------------------
+
+    // Parses and activates a fault from the /chaos query; IllegalArgumentException
+    // for unknown types or bad values. pool runs the pool_exhaustion threads.
+    Fault add(String query, Executor pool, int poolThreads) {
+        Fault fault = Fault.parse(query, maxTtlMillis, poolThreads, System.currentTimeMillis());
+        synchronized (this) {
+            Fault[] next = new Fault[active.length + 1];
+            System.arraycopy(active, 0, next, 0, active.length);
+            next[active.length] = fault;
+            publish(next);
+        }
+        if (fault.type == POOL_EXHAUSTION) hold(fault, pool);
+        return fault;
+    }
+
+    // Removes every fault and releases held worker threads; returns how many were active
+    synchronized int clear() {
+        Fault[] removed = active;
+        publish(NONE);
+        for (Fault f : removed) f.released.countDown();
+        return removed.length;
+    }
+
+    boolean armed() {
+        return armed;
+    }
+
+    // Active (unexpired) faults, one description per line
+    String describe() {
+        expire(System.currentTimeMillis());
+        StringBuilder sb = new StringBuilder();
+        for (Fault f : active) sb.append(f.describe(System.currentTimeMillis())).append('\n');
+        return sb.length() == 0 ? "No faults active\n" : sb.toString();
+    }
+
+    // ------------------------------------------------------------
+    // Request path (only while armed)
+    // ------------------------------------------------------------
+
+    // Applies the faults matching the route, before its handler runs
+    void apply(String route, HttpExchange ex) throws IOException {
+        long now = System.currentTimeMillis();
+        boolean expired = false;
+        for (Fault f : active) {
+            if (now >= f.expiresAtMillis) {
+                expired = true;
+                continue;
+            }
+            if (f.type == POOL_EXHAUSTION || !f.applies(route)) continue;
+
+            injections[f.type].increment();
+            switch (f.type) {
+                case LATENCY:
+                    sleep(f.sampleLatencyMillis());
+                    break;
+                case CPU:
+                    burn(f.millis);
+                    break;
+                case ALLOC:
+                    allocate(f.bytes);
+                    break;
+                case SLOW_WRITE:
+                    ex.setStreams(null, new TrickleOutputStream(ex.getResponseBody(), f.bytes));
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (expired) expire(now);
+    }
+
+    // ------------------------------------------------------------
+    // Metrics
+    // ------------------------------------------------------------
+
+    void writeMetrics(MetricsWriter w) {
+        expire(System.currentTimeMillis());
+        int[] counts = new int[TYPES.length];
+        for (Fault f : active) counts[f.type]++;
+
+        w.gauge("chaos_faults_active");
+        for (int t = 0; t < TYPES.length; t++) w.sample("chaos_faults_active", "fault", TYPES[t], counts[t]);
+        w.counter("chaos_fault_injections_total");
+        for (int t = 0; t < TYPES.length; t++) {
+            w.sample("chaos_fault_injections_total", "fault", TYPES[t], injections[t].sum());
+        }
+        w.gauge("chaos_worker_threads_held", heldThreads.get());
+    }
+
+    int heldThreads() {
+        return heldThreads.get();
+    }
+
+    // ------------------------------------------------------------
+    // Internals
+    // ------------------------------------------------------------
+
+    private void publish(Fault[] next) {
+        active = next;
+        armed = next.length > 0;
+    }
+
+    private synchronized void expire(long now) {
+        List<Fault> live = new ArrayList<>();
+        for (Fault f : active) {
+            if (now < f.expiresAtMillis) {
+                live.add(f);
+            } else {
+                f.released.countDown();
+            }
+        }
+        if (live.size() != active.length) publish(live.toArray(NONE));
+    }
+
+    // Occupies worker threads until the fault expires or is cleared
+    private void hold(Fault fault, Executor pool) {
+        for (int i = 0; i < fault.threads; i++) {
+            pool.execute(() -> {
+                // A saturated pool runs the task on the submitting thread: don't park /chaos itself
+                if (WorkerPool.isShedding()) return;
+                heldThreads.incrementAndGet();
+                injections[POOL_EXHAUSTION].increment();
+                try {
+                    long left = fault.expiresAtMillis - System.currentTimeMillis();
+                    if (left > 0) fault.released.await(left, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    heldThreads.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void burn(long millis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        long x = deadline;
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < 1000; i++) x = x * 6364136223846793005L + 1442695040888963407L;
+        }
+        sink = x;
+    }
+
+    private static void allocate(long bytes) {
+        byte[][] chunks = new byte[(int) Math.max(1, bytes / ALLOC_CHUNK)][];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = new byte[ALLOC_CHUNK];
+            // Touch every page so the memory is really committed
+            for (int p = 0; p < ALLOC_CHUNK; p += 4096) chunks[i][p] = (byte) i;
+        }
+        sink = chunks;
+        sink = null;
+    }
+
+    // ------------------------------------------------------------
+    // One fault
+    // ------------------------------------------------------------
+
+    static final class Fault {
+        final int type;
+        final String route;
+        final double percent;
+        final long expiresAtMillis;
+
+        final long millis;     // latency mean / cpu burn per request
+        final int distribution;
+        final long maxMillis;
+        final long bytes;      // alloc size / slow_write bytes per second
+        final int threads;     // pool_exhaustion
+
+        final CountDownLatch released = new CountDownLatch(1);
+
+        private Fault(int type, String route, double percent, long expiresAtMillis, long millis,
+                      int distribution, long maxMillis, long bytes, int threads) {
+            this.type = type;
+            this.route = route;
+            this.percent = percent;
+            this.expiresAtMillis = expiresAtMillis;
+            this.millis = millis;
+            this.distribution = distribution;
+            this.maxMillis = maxMillis;
+            this.bytes = bytes;
+            this.threads = threads;
+        }
+
+        static Fault parse(String query, long maxTtlMillis, int poolThreads, long nowMillis) {
+            int type = indexOf(TYPES, App.queryParam(query, "fault", ""), "fault");
+            String route = App.queryParamDecoded(query, "route", ALL_ROUTES);
+            double percent = number(query, "percent", "100", 0, 100);
+            long ttlMillis = (long) (number(query, "ttl", "60", 0.001, Double.MAX_VALUE) * 1000);
+
+            long millis = (long) number(query, "ms", type == CPU ? "50" : "100", 0, 60_000);
+            int distribution = indexOf(DISTRIBUTIONS, App.queryParam(query, "dist", "fixed"), "dist");
+            long maxMillis = (long) number(query, "max_ms", String.valueOf(millis * 10), millis, 600_000);
+            long bytes = type == ALLOC
+                    ? (long) (number(query, "mb", "16", 0.0625, 1024) * 1024 * 1024)
+                    : (long) number(query, "bps", "1024", 1, Integer.MAX_VALUE);
+            int threads = (int) number(query, "threads", String.valueOf(poolThreads), 1, poolThreads);
+
+            return new Fault(type, route, percent, nowMillis + Math.min(ttlMillis, maxTtlMillis),
+                    millis, distribution, maxMillis, bytes, threads);
+        }
+
+        boolean applies(String requestRoute) {
+            if (ALL_ROUTES.equals(route) ? CHAOS_ROUTE.equals(requestRoute) : !route.equals(requestRoute)) {
+                return false;
+            }
+            return percent >= 100 || ThreadLocalRandom.current().nextDouble(100) < percent;
+        }
+
+        long sampleLatencyMillis() {
+            double u = ThreadLocalRandom.current().nextDouble();
+            double sample;
+            switch (distribution) {
+                case 1:  sample = 2 * millis * u; break;
+                case 2:  sample = -millis * Math.log(1 - u); break;
+                case 3:  sample = millis * (PARETO_ALPHA - 1) / PARETO_ALPHA / Math.pow(1 - u, 1 / PARETO_ALPHA); break;
+                default: sample = millis; break;
+            }
+            return Math.min(maxMillis, Math.round(sample));
+        }
+
+        String describe(long nowMillis) {
+            StringBuilder sb = new StringBuilder(TYPES[type]);
+            switch (type) {
+                case LATENCY:
+                    sb.append(' ').append(DISTRIBUTIONS[distribution]).append(' ').append(millis)
+                            .append("ms (max ").append(maxMillis).append("ms)");
+                    break;
+                case CPU:
+                    sb.append(' ').append(millis).append("ms");
+                    break;
+                case ALLOC:
+                    sb.append(' ').append(bytes / 1024).append("KiB");
+                    break;
+                case SLOW_WRITE:
+                    sb.append(' ').append(bytes).append(" bytes/s");
+                    break;
+                default:
+                    sb.append(' ').append(threads).append(" threads");
+                    break;
+            }
+            if (type != POOL_EXHAUSTION) {
+                sb.append(" on ").append(route).append(" (")
+                        .append(percent == Math.rint(percent) ? String.valueOf((long) percent) : String.valueOf(percent))
+                        .append("%)");
+            }
+            long left = Math.max(0, expiresAtMillis - nowMillis);
+            return sb.append(", ").append((left + 999) / 1000).append("s left").toString();
+        }
+
+        private static int indexOf(String[] names, String value, String param) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(value.toLowerCase(Locale.ROOT))) return i;
+            }
+            throw new IllegalArgumentException("Unknown " + param + " '" + value + "' (one of "
+                    + String.join(", ", names) + ")");
+        }
+
+        private static double number(String query, String param, String defaultValue, double min, double max) {
+            String raw = App.queryParam(query, param, defaultValue);
+            double value;
+            try {
+                value = Double.parseDouble(raw);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad " + param + ": " + raw);
+            }
+            if (!(value >= min && value <= max)) {
+                throw new IllegalArgumentException(param + " must be between " + min + " and " + max);
+            }
+            return value;
+        }
+    }
+
+    // ------------------------------------------------------------
+    // slow_write: paced response body
+    // ------------------------------------------------------------
+
+    // Writes in tenth-of-a-second slices, flushing each and pausing before the
+    // next, so the client really sees the body arrive at bytesPerSecond
+    static final class TrickleOutputStream extends FilterOutputStream {
+        private final int slice;
+        private final long sliceNanos;
+        private boolean started;
+
+        TrickleOutputStream(OutputStream out, long bytesPerSecond) {
+            super(out);
+            this.slice = (int) Math.max(1, Math.min(64 * 1024, bytesPerSecond / 10));
+            this.sliceNanos = TimeUnit.SECONDS.toNanos(1) * slice / bytesPerSecond;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(slice, len);
+                if (started && !Thread.currentThread().isInterrupted()) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(sliceNanos * n / slice);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                started = true;
+                out.write(b, off, n);
+                out.flush();
+                off += n;
+                len -= n;
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// ------------------------------------------------------------
+// Adaptive concurrency limit (latency gradient)
+// ------------------------------------------------------------
+//
+// Caps the requests being handled at once. The cap follows observed
+// latency: every WINDOW completed requests, the window's average latency is
+// compared with the no-load baseline, the lowest average seen:
+//
+//   gradient = clamp(baseline * TOLERANCE / average, 0.5, 1.0)
+//   limit    = smooth(limit * gradient + sqrt(limit))
+//
+// While latency stays within TOLERANCE of the baseline the limit grows (by
+// ~sqrt(limit) per window, up to max); when requests slow down because the
+// pod is saturated, it shrinks and the surplus is rejected up front instead
+// of queueing behind the slow ones. The baseline creeps up by BASELINE_DRIFT
+// per window (and drops to any lower average at once), so it follows a
+// lasting change in the workload within minutes (a 250x slowdown takes
+// ~550 windows) while overload, seen as latency far above it, keeps the
+// limit down instead of being adopted as the new normal.
+//
+// acquire()/release() are a CAS and an add; only the thread closing a
+// window does the (tiny) floating point update.
+
+final class ConcurrencyLimit {
+
+    private static final int WINDOW = 100;
+    private static final double BASELINE_DRIFT = 0.01;
+    private static final double TOLERANCE = 2.0;
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private volatile int limit;
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+
+    // Current window (a few samples racing a reset are simply dropped)
+    private final AtomicLong windowNanos = new AtomicLong(0);
+    private final AtomicInteger windowCount = new AtomicInteger(0);
+
+    // Written only by the thread closing a window
+    private double baselineNanos = Double.MAX_VALUE;
+
+    ConcurrencyLimit(int minLimit, int maxLimit) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = this.maxLimit;
+    }
+
+    // ------------------------------------------------------------
+    // Admission
+    // ------------------------------------------------------------
+
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) return false;
+            if (inFlight.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    // Must follow every successful tryAcquire(), with the request's latency
+    void release(long latencyNanos) {
+        inFlight.decrementAndGet();
+
+        windowNanos.addAndGet(latencyNanos);
+        if (windowCount.incrementAndGet() == WINDOW) {
+            long total = windowNanos.getAndSet(0);
+            windowCount.set(0);
+            synchronized (this) {
+                update(total / WINDOW);
+            }
+        }
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    // ------------------------------------------------------------
+    // Internals
+    // ------------------------------------------------------------
+
+    private void update(long averageNanos) {
+        if (averageNanos <= 0) return;
+
+        baselineNanos = Math.min(averageNanos, baselineNanos * (1 + BASELINE_DRIFT));
+
+        double gradient = Math.max(0.5, Math.min(1.0, baselineNanos * TOLERANCE / averageNanos));
+        double target = limit * gradient + Math.sqrt(limit);
+        double smoothed = limit * (1 - SMOOTHING) + target * SMOOTHING;
+
+        limit = (int) Math.max(minLimit, Math.min(maxLimit, Math.round(smoothed)));
+    }
+}
@@ -0,0 +1,384 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// ------------------------------------------------------------
+// Server-Sent Events for the dashboard (/events)
+// ------------------------------------------------------------
+//
+// One publisher thread renders /version and /metrics once per tick, no
+// matter how many dashboards are open, and diffs them against the previous
+// tick. Only what changed is encoded (once) and fanned out:
+//   event: version   - the /version JSON, when it differs
+//   event: metrics   - the exposition lines whose value changed
+// A newly connected client first gets the full state of the next tick.
+//
+// Each client has a small bounded queue drained by a shared writer pool, so
+// the publisher never blocks on a socket. A client whose queue is full is
+// evicted: if a writer is stuck in a blocking write to it, that writer is
+// interrupted, which closes the (interruptible) socket channel and frees the
+// thread. EventSource reconnects on its own and starts from a full state.
+//
+// Config: EVENTS_INTERVAL_MILLIS, EVENTS_MAX_CLIENTS, EVENTS_CLIENT_QUEUE,
+// EVENTS_WRITER_THREADS (see fromEnv()).
+
+final class EventStream {
+
+    static final String CONTENT_TYPE = "text/event-stream; charset=utf-8";
+
+    // Comment line sent when nothing else went out for this long (detects dead peers)
+    private static final long KEEP_ALIVE_NANOS = TimeUnit.SECONDS.toNanos(15);
+    private static final byte[] KEEP_ALIVE = ascii(": keep-alive\n\n");
+
+    private final long intervalMillis;
+    private final int maxClients;
+    private final int queueCapacity;
+    private final int writerThreads;
+
+    private final Supplier<String> versionJson;
+    private final Supplier<String> metricsText;
+
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+    private final Queue<Client> joining = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger connected = new AtomicInteger(0);
+    private final AtomicBoolean wakeScheduled = new AtomicBoolean(false);
+
+    private volatile ScheduledExecutorService publisher;
+    private volatile ExecutorService writers;
+
+    // Publisher-thread state: last values sent
+    private String lastVersion;
+    private Map<String, String> lastMetrics = new HashMap<>();
+    private long lastSentNanos = System.nanoTime();
+
+    private final AtomicLong published = new AtomicLong(0);
+    private final AtomicLong evictions = new AtomicLong(0);
+
+    // ------------------------------------------------------------
+    // Construction / lifecycle
+    // ------------------------------------------------------------
+
+    // Reads EVENTS_INTERVAL_MILLIS (default 1000), EVENTS_MAX_CLIENTS (1000),
+    // EVENTS_CLIENT_QUEUE (16) and EVENTS_WRITER_THREADS (max(2, cores))
+    static EventStream fromEnv(Supplier<String> versionJson, Supplier<String> metricsText) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        long interval = Long.parseLong(System.getenv().getOrDefault("EVENTS_INTERVAL_MILLIS", "1000"));
+        int maxClients = Integer.parseInt(System.getenv().getOrDefault("EVENTS_MAX_CLIENTS", "1000"));
+        int queue = Integer.parseInt(System.getenv().getOrDefault("EVENTS_CLIENT_QUEUE", "16"));
+        int writers = Integer.parseInt(
+                System.getenv().getOrDefault("EVENTS_WRITER_THREADS", String.valueOf(Math.max(2, cores))));
+        return new EventStream(interval, maxClients, queue, writers, versionJson, metricsText);
+    }
+
+    EventStream(long intervalMillis, int maxClients, int queueCapacity, int writerThreads,
+                Supplier<String> versionJson, Supplier<String> metricsText) {
+        this.intervalMillis = Math.max(10, intervalMillis);
+        this.maxClients = Math.max(1, maxClients);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.writerThreads = Math.max(1, writerThreads);
+        this.versionJson = versionJson;
+        this.metricsText = metricsText;
+    }
+
+    void start() {
+        writers = Executors.newFixedThreadPool(writerThreads, daemonThreads("events-writer-"));
+        publisher = Executors.newSingleThreadScheduledExecutor(daemonThreads("events-publisher"));
+        publisher.scheduleWithFixedDelay(this::tick, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        ScheduledExecutorService p = publisher;
+        if (p != null) p.shutdownNow();
+        ExecutorService w = writers;
+        if (w != null) w.shutdownNow();
+        for (Client client : clients) client.evict();
+    }
+
+    // ------------------------------------------------------------
+    // Subscription
+    // ------------------------------------------------------------
+
+    // Starts an event stream on the exchange and returns without closing it;
+    // false (nothing sent) when the client limit is reached or not started
+    boolean subscribe(HttpExchange ex) throws IOException {
+        if (publisher == null) return false;
+        if (connected.incrementAndGet() > maxClients) {
+            connected.decrementAndGet();
+            return false;
+        }
+
+        ex.getResponseHeaders().add("Content-Type", CONTENT_TYPE);
+        ex.getResponseHeaders().add("Cache-Control", "no-cache");
+        // Length 0 = chunked transfer encoding, kept open
+        ex.sendResponseHeaders(200, 0);
+
+        joining.add(new Client(ex));
+
+        // Publish right away instead of waiting up to a whole interval
+        if (wakeScheduled.compareAndSet(false, true)) {
+            try {
+                publisher.execute(this::tick);
+            } catch (RuntimeException shutDown) {
+                wakeScheduled.set(false);
+            }
+        }
+        return true;
+    }
+
+    int clientCount() {
+        return connected.get();
+    }
+
+    // ------------------------------------------------------------
+    // Metrics
+    // ------------------------------------------------------------
+
+    void writeMetrics(MetricsWriter w) {
+        w.gauge("events_clients", connected.get());
+        w.counter("events_published_total", published.get());
+        w.counter("events_evictions_total", evictions.get());
+    }
+
+    // ------------------------------------------------------------
+    // Publisher (single thread)
+    // ------------------------------------------------------------
+
+    private void tick() {
+        wakeScheduled.set(false);
+        try {
+            publish();
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; next tick retries
+            System.out.println("Event publish failed: " + e);
+        }
+    }
+
+    private void publish() {
+        if (clients.isEmpty() && joining.isEmpty()) {
+            // Nobody listening: render nothing, and forget state so the next client gets it all
+            lastVersion = null;
+            lastMetrics = new HashMap<>();
+            return;
+        }
+
+        String version = versionJson.get().trim();
+        Map<String, String> metrics = parseExposition(metricsText.get());
+
+        // Deltas for clients that already have the previous state
+        StringBuilder delta = new StringBuilder();
+        if (!version.equals(lastVersion)) appendEvent(delta, "version", version);
+        appendMetricsEvent(delta, metrics, lastMetrics);
+
+        if (delta.length() > 0) {
+            fanOut(delta.toString().getBytes(StandardCharsets.UTF_8));
+        } else if (System.nanoTime() - lastSentNanos > KEEP_ALIVE_NANOS) {
+            fanOut(KEEP_ALIVE);
+        }
+
+        // Full state for clients that joined since the last tick
+        if (!joining.isEmpty()) {
+            StringBuilder full = new StringBuilder("retry: 2000\n");
+            appendEvent(full, "version", version);
+            appendMetricsEvent(full, metrics, new HashMap<>());
+            byte[] bytes = full.toString().getBytes(StandardCharsets.UTF_8);
+            published.incrementAndGet();
+
+            Client client;
+            while ((client = joining.poll()) != null) {
+                clients.add(client);
+                client.offer(bytes);
+            }
+        }
+
+        lastVersion = version;
+        lastMetrics = metrics;
+    }
+
+    private void fanOut(byte[] event) {
+        published.incrementAndGet();
+        lastSentNanos = System.nanoTime();
+        for (Client client : clients) client.offer(event);
+    }
+
+    // "series value" lines keyed by series (everything before the last space), in order;
+    // # HELP / # TYPE lines key the same way and so are sent once
+    static Map<String, String> parseExposition(String text) {
+        Map<String, String> lines = new LinkedHashMap<>();
+        int from = 0;
+        int n = text.length();
+        while (from < n) {
+            int to = text.indexOf('\n', from);
+            if (to < 0) to = n;
+            if (to > from) {
+                String line = text.substring(from, to);
+                int space = line.lastIndexOf(' ');
+                lines.put(space > 0 ? line.substring(0, space) : line, line);
+            }
+            from = to + 1;
+        }
+        return lines;
+    }
+
+    private static void appendMetricsEvent(StringBuilder out, Map<String, String> now, Map<String, String> before) {
+        int start = out.length();
+        for (Map.Entry<String, String> e : now.entrySet()) {
+            if (e.getValue().equals(before.get(e.getKey()))) continue;
+            if (out.length() == start) out.append("event: metrics\n");
+            out.append("data: ").append(e.getValue()).append('\n');
+        }
+        if (out.length() > start) out.append('\n');
+    }
+
+    private static void appendEvent(StringBuilder out, String name, String data) {
+        out.append("event: ").append(name).append('\n');
+        for (String line : data.split("\n")) out.append("data: ").append(line).append('\n');
+        out.append('\n');
+    }
+
+    // ------------------------------------------------------------
+    // Clients
+    // ------------------------------------------------------------
+
+    private final class Client implements Runnable {
+        private final HttpExchange ex;
+        private final OutputStream out;
+        private final ArrayBlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+
+        // Writer thread currently inside a write for this client (null when idle)
+        private volatile Thread writing;
+
+        Client(HttpExchange ex) {
+            this.ex = ex;
+            this.out = ex.getResponseBody();
+        }
+
+        // Publisher thread: never blocks
+        void offer(byte[] event) {
+            if (closed.get()) return;
+            if (!queue.offer(event)) {
+                evictions.incrementAndGet();
+                evict();
+                return;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true)) return;
+            try {
+                writers.execute(this);
+            } catch (RuntimeException shutDown) {
+                scheduled.set(false);
+                evict();
+            }
+        }
+
+        // Writer thread: drains the queue, then re-checks for events that raced in
+        @Override
+        public void run() {
+            writing = Thread.currentThread();
+            try {
+                byte[] event;
+                while (!closed.get() && (event = queue.poll()) != null) {
+                    out.write(event);
+                }
+                if (!closed.get()) out.flush();
+            } catch (IOException e) {
+                // Peer went away, or the channel was closed by evict()
+                evict();
+            } finally {
+                // Under the lock evict() interrupts with, so an interrupt meant for this
+                // client never reaches the thread's next task
+                synchronized (this) {
+                    writing = null;
+                    Thread.interrupted();
+                }
+                scheduled.set(false);
+            }
+
+            if (closed.get()) {
+                close();
+            } else if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+
+        void evict() {
+            if (!closed.compareAndSet(false, true)) return;
+            clients.remove(this);
+            joining.remove(this);
+            connected.decrementAndGet();
+            queue.clear();
+
+            boolean interrupted;
+            synchronized (this) {
+                Thread stuck = writing;
+                interrupted = stuck != null;
+                // Closes the blocked socket channel, see the class comment
+                if (interrupted) stuck.interrupt();
+            }
+            if (interrupted) {
+                return;
+            } else if (scheduled.compareAndSet(false, true)) {
+                // Idle: end the response politely on a writer thread
+                try {
+                    writers.execute(this);
+                } catch (RuntimeException shutDown) {
+                    close();
+                }
+            }
+        }
+
+        private void close() {
+            try {
+                ex.close();
+            } catch (RuntimeException ignored) {
+                // Channel already gone
+            }
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Internals
+    // ------------------------------------------------------------
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger(0);
+        return r -> {
+            Thread t = new Thread(r, prefix.endsWith("-") ? prefix + counter.incrementAndGet() : prefix);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,284 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import java.nio.charset.StandardCharsets;
+
+// ------------------------------------------------------------
+// NDJSON framing for POST /greet/batch
+// ------------------------------------------------------------
+//
+// Input: one flat JSON object per line, e.g.
+//   {"name":"John","mode":"pirate"}
+// Both fields are optional strings (or null); missing ones fall back to
+// "World" and the app mode, exactly like /greet. Unknown fields are ignored,
+// blank lines are skipped.
+//
+// Output: one line per record, in input order
+//   {"visitor":42,"greeting":"Ahoy, John! ..."}
+// or, for a line that is not a valid record,
+//   {"line":3,"error":"invalid record"}
+//
+// Limits (GREET_BATCH_MAX_BYTES, GREET_BATCH_MAX_RECORDS) bound the request
+// body; anything larger is answered with 413 before a visitor is reserved.
+
+final class GreetingBatch {
+
+    static final String CONTENT_TYPE = "application/x-ndjson; charset=utf-8";
+
+    private static final byte[] VISITOR_FIELD = ascii("{\"visitor\":");
+    private static final byte[] GREETING_FIELD = ascii(",\"greeting\":\"");
+    private static final byte[] LINE_FIELD = ascii("{\"line\":");
+    private static final byte[] INVALID_SUFFIX = ascii(",\"error\":\"invalid record\"}\n");
+    private static final byte[] RECORD_SUFFIX = ascii("\"}\n");
+    private static final byte[] HEX = ascii("0123456789abcdef");
+
+    // Field indexes in the array filled by parseRecord()
+    static final int NAME = 0;
+    static final int MODE = 1;
+
+    private final int maxBytes;
+    private final int maxRecords;
+
+    // ------------------------------------------------------------
+    // Construction
+    // ------------------------------------------------------------
+
+    // Reads GREET_BATCH_MAX_BYTES (default 1 MiB) and GREET_BATCH_MAX_RECORDS (default 10000)
+    static GreetingBatch fromEnv() {
+        int maxBytes = Integer.parseInt(
+                System.getenv().getOrDefault("GREET_BATCH_MAX_BYTES", String.valueOf(1 << 20)));
+        int maxRecords = Integer.parseInt(
+                System.getenv().getOrDefault("GREET_BATCH_MAX_RECORDS", "10000"));
+        return new GreetingBatch(maxBytes, maxRecords);
+    }
+
+    GreetingBatch(int maxBytes, int maxRecords) {
+        this.maxBytes = Math.max(1, maxBytes);
+        this.maxRecords = Math.max(1, maxRecords);
+    }
+
+    int maxBytes() {
+        return maxBytes;
+    }
+
+    int maxRecords() {
+        return maxRecords;
+    }
+
+    // ------------------------------------------------------------
+    // Input
+    // ------------------------------------------------------------
+
+    // Non-blank lines in body[0, len): the size of the visitor range to reserve
+    static int countRecords(byte[] body, int len) {
+        int records = 0;
+        boolean content = false;
+        for (int i = 0; i < len; i++) {
+            byte b = body[i];
+            if (b == '\n') {
+                if (content) records++;
+                content = false;
+            } else if (!isSpace(b)) {
+                content = true;
+            }
+        }
+        return content ? records + 1 : records;
+    }
+
+    // End (exclusive) of the line starting at from, not including the '\n'
+    static int lineEnd(byte[] body, int from, int len) {
+        int i = from;
+        while (i < len && body[i] != '\n') i++;
+        return i;
+    }
+
+    static boolean isBlank(byte[] body, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!isSpace(body[i])) return false;
+        }
+        return true;
+    }
+
+    // Parses one flat JSON object from body[from, to) into fields[NAME] / fields[MODE]
+    // (null when absent). Returns false if the line is not such an object.
+    static boolean parseRecord(byte[] body, int from, int to, String[] fields) {
+        fields[NAME] = null;
+        fields[MODE] = null;
+
+        Cursor c = new Cursor(body, from, to);
+        if (!c.consume('{')) return false;
+        if (c.consume('}')) return c.atEnd();
+
+        while (true) {
+            String key = c.string();
+            if (key == null || !c.consume(':')) return false;
+
+            String value;
+            if (c.consumeLiteral("null")) {
+                value = null;
+            } else {
+                value = c.string();
+                if (value == null) return false;
+            }
+
+            if ("name".equals(key)) fields[NAME] = value;
+            else if ("mode".equals(key)) fields[MODE] = value;
+
+            if (c.consume(',')) continue;
+            return c.consume('}') && c.atEnd();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Output
+    // ------------------------------------------------------------
+
+    static ByteSink appendGreeting(ByteSink sink, long visitorNumber, String greeting) {
+        sink.append(VISITOR_FIELD).appendLong(visitorNumber).append(GREETING_FIELD);
+        appendJsonEscaped(sink, greeting);
+        return sink.append(RECORD_SUFFIX);
+    }
+
+    static ByteSink appendInvalid(ByteSink sink, int lineNumber) {
+        return sink.append(LINE_FIELD).appendLong(lineNumber).append(INVALID_SUFFIX);
+    }
+
+    // JSON string body (without quotes); non-ASCII is written as UTF-8
+    static void appendJsonEscaped(ByteSink sink, String text) {
+        int n = text.length();
+        int run = 0;
+        for (int i = 0; i < n; i++) {
+            char ch = text.charAt(i);
+            if (ch >= 0x20 && ch != '"' && ch != '\\') continue;
+
+            sink.appendUtf8(text, run, i);
+            run = i + 1;
+            switch (ch) {
+                case '"':  sink.appendByte('\\').appendByte('"'); break;
+                case '\\': sink.appendByte('\\').appendByte('\\'); break;
+                case '\n': sink.appendByte('\\').appendByte('n'); break;
+                case '\r': sink.appendByte('\\').appendByte('r'); break;
+                case '\t': sink.appendByte('\\').appendByte('t'); break;
+                default:
+                    sink.appendByte('\\').appendByte('u').appendByte('0').appendByte('0')
+                        .appendByte(HEX[ch >> 4]).appendByte(HEX[ch & 0xF]);
+            }
+        }
+        sink.appendUtf8(text, run, n);
+    }
+
+    // ------------------------------------------------------------
+    // Internals
+    // ------------------------------------------------------------
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Minimal reader for the flat objects above (strings, null, whitespace)
+    private static final class Cursor {
+        private final byte[] body;
+        private final int end;
+        private int pos;
+
+        Cursor(byte[] body, int from, int to) {
+            this.body = body;
+            this.pos = from;
+            this.end = to;
+        }
+
+        boolean atEnd() {
+            skipSpace();
+            return pos == end;
+        }
+
+        boolean consume(char expected) {
+            skipSpace();
+            if (pos < end && body[pos] == expected) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        boolean consumeLiteral(String literal) {
+            skipSpace();
+            int n = literal.length();
+            if (end - pos < n) return false;
+            for (int i = 0; i < n; i++) {
+                if (body[pos + i] != literal.charAt(i)) return false;
+            }
+            pos += n;
+            return true;
+        }
+
+        // Quoted JSON string, or null if malformed
+        String string() {
+            if (!consume('"')) return null;
+
+            // Fast path: no escapes, decode the UTF-8 slice directly
+            int start = pos;
+            while (pos < end && body[pos] != '"' && body[pos] != '\\') {
+                if ((body[pos] & 0xFF) < 0x20) return null;
+                pos++;
+            }
+            if (pos >= end) return null;
+            if (body[pos] == '"') {
+                return new String(body, start, pos++ - start, StandardCharsets.UTF_8);
+            }
+
+            StringBuilder sb = new StringBuilder(new String(body, start, pos - start, StandardCharsets.UTF_8));
+            int run = pos;
+            while (pos < end) {
+                byte b = body[pos];
+                if (b == '"') {
+                    sb.append(new String(body, run, pos++ - run, StandardCharsets.UTF_8));
+                    return sb.toString();
+                }
+                if ((b & 0xFF) < 0x20) return null;
+                if (b != '\\') {
+                    pos++;
+                    continue;
+                }
+
+                sb.append(new String(body, run, pos - run, StandardCharsets.UTF_8));
+                if (++pos >= end) return null;
+                switch (body[pos++]) {
+                    case '"':  sb.append('"'); break;
+                    case '\\': sb.append('\\'); break;
+                    case '/':  sb.append('/'); break;
+                    case 'b':  sb.append('\b'); break;
+                    case 'f':  sb.append('\f'); break;
+                    case 'n':  sb.append('\n'); break;
+                    case 'r':  sb.append('\r'); break;
+                    case 't':  sb.append('\t'); break;
+                    case 'u':
+                        if (end - pos < 4) return null;
+                        int cp = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(body[pos++], 16);
+                            if (digit < 0) return null;
+                            cp = (cp << 4) | digit;
+                        }
+                        sb.append((char) cp);
+                        break;
+                    default:
+                        return null;
+                }
+                run = pos;
+            }
+            return null;
+        }
+
+        private void skipSpace() {
+            while (pos < end && isSpace(body[pos])) pos++;
+        }
+    }
+}
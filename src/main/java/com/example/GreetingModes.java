@@ -0,0 +1,294 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// ------------------------------------------------------------
+// Registry of greeting modes
+// ------------------------------------------------------------
+//
+// Built-in modes (BUILT_IN) ship as classpath resources under /greetings/.
+// With GREETING_MODES_DIR set, every <mode>.tmpl file in that directory is
+// added on top (a file named like a built-in replaces it). Mode names are
+// case-insensitive; an unknown or missing mode renders with
+// GREETING_DEFAULT_MODE ("normal"), and {mode} shows the mode actually used.
+//
+// Hot reload: a watcher thread recompiles the whole set when the directory
+// changes and swaps it in with one volatile write. Requests already holding
+// a template finish with it; a set that fails to compile is logged and the
+// previous one stays live.
+//
+// Lookups go through an open-addressing table hashed case-insensitively,
+// straight from the query string range: no substring, no lower-casing, and
+// the same cost with two modes or two thousand.
+
+final class GreetingModes {
+
+    static final String[] BUILT_IN = {"normal", "pirate"};
+    static final String EXTENSION = ".tmpl";
+
+    private static final String RESOURCE_DIR = "/greetings/";
+
+    // Editors write in bursts (truncate, write, rename); reload once they settle
+    private static final long SETTLE_MILLIS = 100;
+
+    private final Path dir;
+    private final String defaultMode;
+    private final Map<String, String> constants;
+
+    private volatile Table table;
+
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder reloadFailures = new LongAdder();
+
+    private WatchService watchService;
+
+    // ------------------------------------------------------------
+    // Construction
+    // ------------------------------------------------------------
+
+    // Reads GREETING_MODES_DIR (unset = built-ins only) and GREETING_DEFAULT_MODE;
+    // watches the directory for changes when one is given
+    static GreetingModes fromEnv(Map<String, String> constants) {
+        String dir = System.getenv("GREETING_MODES_DIR");
+        GreetingModes modes = new GreetingModes(
+                dir == null || dir.isEmpty() ? null : Paths.get(dir),
+                System.getenv().getOrDefault("GREETING_DEFAULT_MODE", "normal"),
+                constants);
+        if (modes.dir != null) modes.watch();
+        return modes;
+    }
+
+    // Compiles the initial set; configuration errors surface here, not per request
+    GreetingModes(Path dir, String defaultMode, Map<String, String> constants) {
+        this.dir = dir;
+        this.defaultMode = defaultMode.toLowerCase(Locale.ROOT);
+        this.constants = constants;
+        try {
+            this.table = load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load greeting modes from " + dir, e);
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Lookup
+    // ------------------------------------------------------------
+
+    // Template for the mode, or the default one (null = default)
+    GreetingTemplate resolve(String mode) {
+        return mode == null ? table.fallback : table.find(mode, 0, mode.length());
+    }
+
+    // Template for text[from, to), or the default one
+    GreetingTemplate resolve(String text, int from, int to) {
+        return table.find(text, from, to);
+    }
+
+    int size() {
+        return table.size;
+    }
+
+    // ------------------------------------------------------------
+    // Reloading
+    // ------------------------------------------------------------
+
+    // Recompiles everything and swaps it in; false (old set kept) on any error
+    boolean reload() {
+        try {
+            table = load();
+            reloads.increment();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            reloadFailures.increment();
+            System.out.println("Greeting modes not reloaded, keeping the previous set: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private synchronized void watch() {
+        try {
+            watchService = dir.getFileSystem().newWatchService();
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot watch greeting modes in " + dir, e);
+        }
+
+        WatchService service = watchService;
+        Thread watcher = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = service.take();
+                    TimeUnit.MILLISECONDS.sleep(SETTLE_MILLIS);
+                    key.pollEvents();
+                    key.reset();
+
+                    // Events that arrived while settling belong to the same change
+                    WatchKey more;
+                    while ((more = service.poll()) != null) {
+                        more.pollEvents();
+                        more.reset();
+                    }
+                    reload();
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // Closed: stop watching
+            }
+        }, "greeting-modes-watch");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    // Stops watching the directory
+    synchronized void close() {
+        if (watchService == null) return;
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+            // Closing anyway
+        }
+        watchService = null;
+    }
+
+    // ------------------------------------------------------------
+    // Metrics
+    // ------------------------------------------------------------
+
+    void writeMetrics(MetricsWriter w) {
+        w.gauge("greeting_modes", size());
+        w.counter("greeting_mode_reloads_total");
+        w.sample("greeting_mode_reloads_total", "result", "ok", reloads.sum());
+        w.sample("greeting_mode_reloads_total", "result", "failed", reloadFailures.sum());
+    }
+
+    // ------------------------------------------------------------
+    // Loading
+    // ------------------------------------------------------------
+
+    private Table load() throws IOException {
+        Map<String, String> sources = new LinkedHashMap<>();
+        for (String mode : BUILT_IN) sources.put(mode, builtIn(mode));
+
+        if (dir != null) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+                for (Path file : files) {
+                    String fileName = file.getFileName().toString();
+                    String mode = fileName.substring(0, fileName.length() - EXTENSION.length())
+                            .toLowerCase(Locale.ROOT);
+                    if (!isValidName(mode)) {
+                        throw new IllegalArgumentException("Bad greeting mode file name: " + fileName);
+                    }
+                    sources.put(mode, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return compile(sources, constants, defaultMode);
+    }
+
+    // Compiles mode -> template source into a lookup table
+    static Table compile(Map<String, String> sources, Map<String, String> constants, String defaultMode) {
+        Map<String, GreetingTemplate> byName = new LinkedHashMap<>();
+        for (Map.Entry<String, String> e : sources.entrySet()) {
+            String mode = e.getKey().toLowerCase(Locale.ROOT);
+            byName.put(mode, GreetingTemplate.compile(mode, e.getValue(), constants));
+        }
+
+        GreetingTemplate fallback = byName.get(defaultMode);
+        if (fallback == null) throw new IllegalArgumentException("Default greeting mode not found: " + defaultMode);
+        return new Table(byName, fallback);
+    }
+
+    private static String builtIn(String mode) throws IOException {
+        try (InputStream in = GreetingModes.class.getResourceAsStream(RESOURCE_DIR + mode + EXTENSION)) {
+            if (in == null) throw new IOException("Missing built-in greeting mode: " + mode);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // Mode names travel in query strings: keep them to [a-z0-9_-]
+    private static boolean isValidName(String mode) {
+        if (mode.isEmpty()) return false;
+        for (int i = 0; i < mode.length(); i++) {
+            char c = mode.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '_' || c == '-')) return false;
+        }
+        return true;
+    }
+
+    // ------------------------------------------------------------
+    // Lookup table (immutable; replaced whole on reload)
+    // ------------------------------------------------------------
+
+    static final class Table {
+        final Map<String, GreetingTemplate> byName;
+        final GreetingTemplate fallback;
+        final int size;
+
+        // Linear probing, at most half full; hashes kept alongside so a probe
+        // only compares names when the full hash matches
+        private final GreetingTemplate[] slots;
+        private final int[] hashes;
+        private final int mask;
+
+        Table(Map<String, GreetingTemplate> byName, GreetingTemplate fallback) {
+            this.byName = byName;
+            this.fallback = fallback;
+            this.size = byName.size();
+
+            int capacity = Integer.highestOneBit(Math.max(2, size) * 2 - 1) << 1;
+            this.slots = new GreetingTemplate[capacity];
+            this.hashes = new int[capacity];
+            this.mask = capacity - 1;
+            for (GreetingTemplate t : byName.values()) {
+                int h = hash(t.mode(), 0, t.mode().length());
+                int i = h & mask;
+                while (slots[i] != null) i = (i + 1) & mask;
+                slots[i] = t;
+                hashes[i] = h;
+            }
+        }
+
+        GreetingTemplate find(String text, int from, int to) {
+            int h = hash(text, from, to);
+            for (int i = h & mask; slots[i] != null; i = (i + 1) & mask) {
+                GreetingTemplate t = slots[i];
+                if (hashes[i] == h && t.mode().length() == to - from
+                        && text.regionMatches(true, from, t.mode(), 0, to - from)) {
+                    return t;
+                }
+            }
+            return fallback;
+        }
+
+        // ASCII case-insensitive (names are [a-z0-9_-], anything else just misses)
+        private static int hash(String text, int from, int to) {
+            int h = 0;
+            for (int i = from; i < to; i++) h = 31 * h + lower(text.charAt(i));
+            return h ^ (h >>> 16);
+        }
+
+        private static char lower(char c) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Allocation-free /greet renderer
+// ------------------------------------------------------------
+//
+// Produces exactly the bytes of App.buildGreeting(...).getBytes(UTF_8) by
+// walking the compiled GreetingTemplate: literal segments (instance
+// constants already folded in) are copied as they are, and only the slots
+// (name, visitor number, modes, uptime digits) are written per request.
+
+final class GreetingRenderer {
+
+    private final GreetingModes modes;
+
+    GreetingRenderer(GreetingModes modes) {
+        this.modes = modes;
+    }
+
+    // ------------------------------------------------------------
+    // Rendering
+    // ------------------------------------------------------------
+
+    // Reads name/mode straight out of the query (as returned by URI.getQuery());
+    // a missing name renders "World", a missing mode falls back to the app mode
+    // and an unknown one to the default mode, like /greet.
+    ByteSink render(ByteSink sink, String query, long visitorNumber, String appMode, long uptimeSeconds) {
+        long nameRange = QueryString.valueRange(query, "name");
+        long modeRange = QueryString.valueRange(query, "mode");
+
+        GreetingTemplate template = modeRange != QueryString.NOT_FOUND
+                ? modes.resolve(query, QueryString.start(modeRange), QueryString.end(modeRange))
+                : modes.resolve(appMode);
+
+        int slots = template.slotCount();
+        for (int i = 0; i < slots; i++) {
+            sink.append(template.segment(i));
+            switch (template.slot(i)) {
+                case GreetingTemplate.NAME:
+                    appendName(sink, query, nameRange);
+                    break;
+                case GreetingTemplate.VISITOR:
+                    sink.appendLong(visitorNumber);
+                    break;
+                case GreetingTemplate.MODE:
+                    sink.appendAscii(template.mode());
+                    break;
+                case GreetingTemplate.APP_MODE:
+                    sink.appendUtf8(appMode);
+                    break;
+                case GreetingTemplate.UPTIME:
+                    sink.appendLong(uptimeSeconds);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown template slot " + template.slot(i));
+            }
+        }
+        return sink.append(template.segment(slots));
+    }
+
+    // ------------------------------------------------------------
+    // Internals
+    // ------------------------------------------------------------
+
+    private static void appendName(ByteSink sink, String query, long range) {
+        if (range == QueryString.NOT_FOUND) {
+            sink.appendAscii("World");
+            return;
+        }
+
+        int from = QueryString.start(range);
+        int to = QueryString.end(range);
+        if (!QueryString.appendDecoded(sink, query, from, to)) {
+            // Rare (hostile or double-encoded input): take the exact URLDecoder path
+            sink.appendUtf8(App.queryParamDecoded(query, "name", "World"));
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// ------------------------------------------------------------
+// One greeting mode, compiled
+// ------------------------------------------------------------
+//
+// Template text with {placeholders}; "{{" is a literal brace. Per-request
+// values become slots (NAME, VISITOR, MODE, APP_MODE, UPTIME); everything
+// else, including instance constants such as {service} or {pod}, is folded
+// into UTF-8 literal segments at compile time. Rendering is then
+//   segment(0) slot(0) segment(1) slot(1) ... segment(n)
+// with no parsing or lookups per request: into a ByteSink by
+// GreetingRenderer, into a String by expand() (/greet/batch, HTML, JSON).
+
+final class GreetingTemplate {
+
+    static final int NAME = 0;
+    static final int VISITOR = 1;
+    static final int MODE = 2;
+    static final int APP_MODE = 3;
+    static final int UPTIME = 4;
+
+    private static final String[] SLOT_NAMES = {"name", "visitor", "mode", "appMode", "uptime"};
+
+    private final String mode;
+    private final String source;
+    private final byte[][] segments;
+    private final String[] literals;   // the same segments, as Strings for expand()
+    private final int[] slots;
+
+    private GreetingTemplate(String mode, String source, String[] literals, int[] slots) {
+        this.mode = mode;
+        this.source = source;
+        this.literals = literals;
+        this.slots = slots;
+        this.segments = new byte[literals.length][];
+        for (int i = 0; i < literals.length; i++) segments[i] = literals[i].getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Throws IllegalArgumentException for unknown placeholders or an unclosed '{'
+    static GreetingTemplate compile(String mode, String source, Map<String, String> constants) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c != '{') {
+                literal.append(c);
+                i++;
+                continue;
+            }
+            if (i + 1 < source.length() && source.charAt(i + 1) == '{') {
+                literal.append('{');
+                i += 2;
+                continue;
+            }
+
+            int close = source.indexOf('}', i + 1);
+            if (close < 0) throw new IllegalArgumentException("Unclosed '{' in greeting mode " + mode);
+            String placeholder = source.substring(i + 1, close);
+            i = close + 1;
+
+            int slot = slotOf(placeholder);
+            if (slot >= 0) {
+                literals.add(literal.toString());
+                slots.add(slot);
+                literal.setLength(0);
+            } else if (constants.containsKey(placeholder)) {
+                literal.append(constants.get(placeholder));
+            } else {
+                throw new IllegalArgumentException(
+                        "Unknown placeholder {" + placeholder + "} in greeting mode " + mode);
+            }
+        }
+        literals.add(literal.toString());
+
+        int[] slotArray = new int[slots.size()];
+        for (int s = 0; s < slotArray.length; s++) slotArray[s] = slots.get(s);
+        return new GreetingTemplate(mode, source, literals.toArray(new String[0]), slotArray);
+    }
+
+    // ------------------------------------------------------------
+    // Compiled form
+    // ------------------------------------------------------------
+
+    // Canonical (lower-case) mode name, also what {mode} renders
+    String mode() {
+        return mode;
+    }
+
+    // Template text as loaded (the tests expand it independently as a reference)
+    String source() {
+        return source;
+    }
+
+    int slotCount() {
+        return slots.length;
+    }
+
+    // Literal before slot i (i == slotCount() is the tail)
+    byte[] segment(int i) {
+        return segments[i];
+    }
+
+    int slot(int i) {
+        return slots[i];
+    }
+
+    // ------------------------------------------------------------
+    // String rendering
+    // ------------------------------------------------------------
+
+    // Same walk as GreetingRenderer, into a String; the renderer must produce
+    // exactly these bytes. String.join sizes the result once (with the emoji
+    // the templates are UTF-16), where a StringBuilder would grow, inflate
+    // and copy it again.
+    String expand(String name, long visitorNumber, String appMode, long uptimeSeconds) {
+        String[] parts = new String[literals.length + slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            parts[2 * i] = literals[i];
+            switch (slots[i]) {
+                case NAME:     parts[2 * i + 1] = name; break;
+                case VISITOR:  parts[2 * i + 1] = Long.toString(visitorNumber); break;
+                case MODE:     parts[2 * i + 1] = mode; break;
+                case APP_MODE: parts[2 * i + 1] = appMode; break;
+                case UPTIME:   parts[2 * i + 1] = Long.toString(uptimeSeconds); break;
+                default:       throw new IllegalStateException("Unknown template slot " + slots[i]);
+            }
+        }
+        parts[parts.length - 1] = literals[slots.length];
+        return String.join("", parts);
+    }
+
+    private static int slotOf(String placeholder) {
+        for (int s = 0; s < SLOT_NAMES.length; s++) {
+            if (SLOT_NAMES[s].equals(placeholder)) return s;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+// ------------------------------------------------------------
+// HTTP transport behind App's routes
+// ------------------------------------------------------------
+//
+// Routes stay plain com.sun.net.httpserver HttpHandlers; an engine only
+// decides how bytes get from the socket to them and back:
+//   jdk - com.sun.net.httpserver.HttpServer (default)
+//   nio - NioHttpEngine: selector event loops, one per core
+// Picked with HTTP_ENGINE. Context matching is the JDK's: the longest
+// registered path that prefixes the request path wins.
+
+interface HttpEngine {
+
+    void createContext(String path, HttpHandler handler);
+
+    // Runs the handlers (null = on the engine's own threads)
+    void setExecutor(Executor executor);
+
+    void start();
+
+    // Closes the listener and all connections immediately
+    default void stop() {
+        stop(0);
+    }
+
+    // Closes the listener at once, gives exchanges in progress up to drainMillis
+    // to finish, then closes all connections. Returns the exchanges still
+    // running when the deadline passed (0 = nothing was cut off).
+    int stop(long drainMillis);
+
+    // Bound port (resolves port 0)
+    int port();
+
+    static String kindFromEnv() {
+        return System.getenv().getOrDefault("HTTP_ENGINE", "jdk");
+    }
+
+    static HttpEngine create(String kind, int port) throws IOException {
+        if ("nio".equalsIgnoreCase(kind)) {
+            int cores = Runtime.getRuntime().availableProcessors();
+            int loops = Integer.parseInt(
+                    System.getenv().getOrDefault("NIO_EVENT_LOOPS", String.valueOf(cores)));
+            return new NioHttpEngine(port, loops);
+        }
+        if (!"jdk".equalsIgnoreCase(kind)) {
+            throw new IllegalArgumentException("Unknown HTTP_ENGINE: " + kind + " (expected jdk or nio)");
+        }
+        return new JdkHttpEngine(port);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// ------------------------------------------------------------
+// HttpEngine on the JDK's built-in HttpServer
+// ------------------------------------------------------------
+//
+// Draining: HttpServer.stop(n) closes the listener and keeps serving open
+// connections, but on JDK 17 it waits the full n seconds even once nothing
+// is running. So stop(drainMillis) runs it on a helper thread, watches its
+// own count of in-flight exchanges, and cuts the wait short with stop(0).
+//
+// An exchange counts from the moment the dispatcher hands it to the executor
+// (so requests still waiting in the worker queue hold the drain open) until
+// its task returns. With no executor set, exchanges run on the dispatcher.
+
+final class JdkHttpEngine implements HttpEngine {
+
+    private static final long DRAIN_POLL_MILLIS = 10;
+
+    private final HttpServer server;
+
+    // Exchanges submitted and not yet finished (SSE handlers return once subscribed)
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+
+    // Where exchanges actually run; null means the dispatcher thread
+    private volatile Executor executor;
+
+    JdkHttpEngine(int port) throws IOException {
+        // Without TCP_NODELAY, headers and body go out as two small segments and
+        // keep-alive clients stall ~40ms on delayed ACKs (see HttpRoundTripBenchmark).
+        // Read once, when the server class initialises.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.server.setExecutor(this::submit);
+    }
+
+    @Override
+    public void createContext(String path, HttpHandler handler) {
+        server.createContext(path, handler);
+    }
+
+    @Override
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    // The server's executor: counts the exchange before it can queue anywhere
+    private void submit(Runnable exchange) {
+        inFlight.incrementAndGet();
+        Runnable counted = () -> {
+            try {
+                exchange.run();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        };
+
+        Executor target = executor;
+        if (target == null) {
+            counted.run();
+            return;
+        }
+        try {
+            target.execute(counted);
+        } catch (RuntimeException e) {
+            // Never ran, so it will never count itself down
+            inFlight.decrementAndGet();
+            throw e;
+        }
+    }
+
+    @Override
+    public void start() {
+        server.start();
+    }
+
+    @Override
+    public int stop(long drainMillis) {
+        if (drainMillis <= 0) {
+            server.stop(0);
+            return inFlight.get();
+        }
+
+        Thread closer = new Thread(
+                () -> server.stop((int) TimeUnit.MILLISECONDS.toSeconds(drainMillis + 999)), "http-drain");
+        closer.setDaemon(true);
+        closer.start();
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainMillis);
+        try {
+            while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(DRAIN_POLL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        int abandoned = inFlight.get();
+        server.stop(0);
+        try {
+            closer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return abandoned;
+    }
+
+    @Override
+    public int port() {
+        return server.getAddress().getPort();
+    }
+}
@@ -0,0 +1,269 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import jdk.jfr.EventSettings;
+import jdk.jfr.consumer.RecordedEvent;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.function.Consumer;
+
+// ------------------------------------------------------------
+// JVM runtime metrics: GC, allocation, heap / off-heap, threads, safepoints
+// ------------------------------------------------------------
+//
+// Everything except the GC listener is read from the platform MXBeans when
+// /metrics is rendered, so the request path pays nothing. The listener runs
+// on the JMX notification thread after each collection and derives:
+//
+//   jvm_gc_allocated_bytes_total  young-generation growth between collections
+//                                 (the whole heap for single-generation
+//                                 collectors); rate() of it is the allocation
+//                                 rate, advancing once per collection
+//   jvm_gc_pause_max_seconds      longest single collection since startup
+//
+// Safepoint time has no MXBean outside HotSpot internals, so it comes from a
+// JFR event stream with only jdk.SafepointBegin / jdk.SafepointEnd enabled
+// (JDK 14+; on older runtimes the jvm_safepoint_* series are absent). It is
+// on unless JVM_SAFEPOINT_METRICS=false. JFR takes ~150ms to start, so the
+// stream opens on a background thread; its own thread is non-daemon, so the
+// last running App closes it (retain/releaseSafepoints) and the JVM can exit.
+// Both the listener and the stream are JVM-wide, hence one shared instance.
+
+final class JvmMetrics {
+
+    private static final Lazy<JvmMetrics> SHARED = Lazy.of(JvmMetrics::new);
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final List<BufferPoolMXBean> bufferPools =
+            ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class);
+
+    // Written by the GC notification thread only; read by scrapes
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final LongAccumulator maxPauseMillis = new LongAccumulator(Math::max, 0);
+    private long youngAfterLastGc;
+
+    // Safepoint totals (exported once the JFR stream has run)
+    private volatile boolean safepointsTracked;
+    private AutoCloseable safepointStream;
+    private int safepointUsers;
+    private final AtomicLong safepoints = new AtomicLong();
+    private final AtomicLong safepointNanos = new AtomicLong();
+    private final AtomicLong safepointSyncNanos = new AtomicLong();
+    private long safepointId = -1;
+    private long safepointStartNanos;
+
+    // ------------------------------------------------------------
+    // Construction
+    // ------------------------------------------------------------
+
+    static JvmMetrics shared() {
+        return SHARED.get();
+    }
+
+    private JvmMetrics() {
+        for (GarbageCollectorMXBean gc : collectors) {
+            if (gc instanceof NotificationEmitter) {
+                ((NotificationEmitter) gc).addNotificationListener((notification, handback) -> {
+                    if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION
+                            .equals(notification.getType())) {
+                        onCollection(GarbageCollectionNotificationInfo.from(
+                                (CompositeData) notification.getUserData()));
+                    }
+                }, null, null);
+            }
+        }
+    }
+
+    // Reads JVM_SAFEPOINT_METRICS (true)
+    static boolean safepointsFromEnv() {
+        return Boolean.parseBoolean(System.getenv().getOrDefault("JVM_SAFEPOINT_METRICS", "true"));
+    }
+
+    // Opens the safepoint stream for the first user, off the caller's thread
+    synchronized void retainSafepoints() {
+        if (safepointUsers++ > 0) return;
+        Thread opener = new Thread(this::openSafepointStream, "safepoint-metrics");
+        opener.setDaemon(true);
+        opener.start();
+    }
+
+    // Closes the stream when the last user is gone
+    synchronized void releaseSafepoints() {
+        if (safepointUsers == 0 || --safepointUsers > 0) return;
+        closeQuietly(safepointStream);
+        safepointStream = null;
+    }
+
+    synchronized boolean safepointStreamRunning() {
+        return safepointStream != null;
+    }
+
+    private void openSafepointStream() {
+        try {
+            // RecordingStream is JDK 14+; reflection keeps the build Java 11 compatible
+            Class<?> type = Class.forName("jdk.jfr.consumer.RecordingStream");
+            Object stream = type.getConstructor().newInstance();
+            for (String event : new String[] {"jdk.SafepointBegin", "jdk.SafepointEnd"}) {
+                ((EventSettings) type.getMethod("enable", String.class).invoke(stream, event))
+                        .withThreshold(Duration.ZERO);
+            }
+            Consumer<RecordedEvent> onBegin = this::onSafepointBegin;
+            Consumer<RecordedEvent> onEnd = this::onSafepointEnd;
+            type.getMethod("onEvent", String.class, Consumer.class).invoke(stream, "jdk.SafepointBegin", onBegin);
+            type.getMethod("onEvent", String.class, Consumer.class).invoke(stream, "jdk.SafepointEnd", onEnd);
+
+            synchronized (this) {
+                // Released while opening, or a newer opener already won
+                if (safepointUsers == 0 || safepointStream != null) {
+                    closeQuietly((AutoCloseable) stream);
+                    return;
+                }
+                type.getMethod("startAsync").invoke(stream);
+                safepointStream = (AutoCloseable) stream;
+                safepointsTracked = true;
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.out.println("Safepoint metrics unavailable: " + e);
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable stream) {
+        if (stream == null) return;
+        try {
+            stream.close();
+        } catch (Exception ignored) {
+            // Stopping anyway
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Event handlers
+    // ------------------------------------------------------------
+
+    private void onCollection(GarbageCollectionNotificationInfo info) {
+        maxPauseMillis.accumulate(info.getGcInfo().getDuration());
+
+        long before = youngUsage(info.getGcInfo().getMemoryUsageBeforeGc());
+        long after = youngUsage(info.getGcInfo().getMemoryUsageAfterGc());
+        synchronized (this) {
+            allocatedBytes.addAndGet(Math.max(0, before - youngAfterLastGc));
+            youngAfterLastGc = after;
+        }
+    }
+
+    // Eden when the collector has one, otherwise every heap pool it reports
+    private static long youngUsage(Map<String, MemoryUsage> pools) {
+        long eden = 0;
+        long all = 0;
+        boolean hasEden = false;
+        for (Map.Entry<String, MemoryUsage> e : pools.entrySet()) {
+            all += e.getValue().getUsed();
+            if (e.getKey().contains("Eden")) {
+                eden += e.getValue().getUsed();
+                hasEden = true;
+            }
+        }
+        return hasEden ? eden : all;
+    }
+
+    // The stream delivers one event at a time, in order: begin, (operation), end
+    private void onSafepointBegin(RecordedEvent e) {
+        safepointId = e.getLong("safepointId");
+        safepointStartNanos = nanos(e.getStartTime());
+        safepointSyncNanos.addAndGet(e.getDuration().toNanos());
+    }
+
+    private void onSafepointEnd(RecordedEvent e) {
+        if (e.getLong("safepointId") != safepointId) return;
+        safepoints.incrementAndGet();
+        safepointNanos.addAndGet(Math.max(0, nanos(e.getEndTime()) - safepointStartNanos));
+        safepointId = -1;
+    }
+
+    private static long nanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    // ------------------------------------------------------------
+    // Metrics
+    // ------------------------------------------------------------
+
+    long allocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    long safepoints() {
+        return safepoints.get();
+    }
+
+    void writeMetrics(MetricsWriter w) {
+        w.counter("jvm_gc_collections_total");
+        for (GarbageCollectorMXBean gc : collectors) {
+            w.sample("jvm_gc_collections_total", "gc", gc.getName(), Math.max(0, gc.getCollectionCount()));
+        }
+        w.counter("jvm_gc_collection_seconds_total");
+        for (GarbageCollectorMXBean gc : collectors) {
+            w.sample("jvm_gc_collection_seconds_total", "gc", gc.getName(),
+                    LatencyHistogram.formatSeconds(Math.max(0, gc.getCollectionTime()) * 1_000_000L));
+        }
+        w.gauge("jvm_gc_pause_max_seconds").sample("jvm_gc_pause_max_seconds",
+                LatencyHistogram.formatSeconds(maxPauseMillis.get() * 1_000_000L));
+        w.counter("jvm_gc_allocated_bytes_total", allocatedBytes.get());
+
+        MemoryUsage heap = memory.getHeapMemoryUsage();
+        MemoryUsage nonHeap = memory.getNonHeapMemoryUsage();
+        w.gauge("jvm_memory_used_bytes")
+                .sample("jvm_memory_used_bytes", "area", "heap", heap.getUsed())
+                .sample("jvm_memory_used_bytes", "area", "nonheap", nonHeap.getUsed());
+        w.gauge("jvm_memory_committed_bytes")
+                .sample("jvm_memory_committed_bytes", "area", "heap", heap.getCommitted())
+                .sample("jvm_memory_committed_bytes", "area", "nonheap", nonHeap.getCommitted());
+        w.gauge("jvm_memory_max_bytes").sample("jvm_memory_max_bytes", "area", "heap", heap.getMax());
+
+        // Off-heap: direct buffers (NIO engine) and mapped files (persistent visitor store)
+        w.gauge("jvm_buffer_pool_used_bytes");
+        for (BufferPoolMXBean pool : bufferPools) {
+            w.sample("jvm_buffer_pool_used_bytes", "pool", pool.getName(), pool.getMemoryUsed());
+        }
+        w.gauge("jvm_buffer_pool_capacity_bytes");
+        for (BufferPoolMXBean pool : bufferPools) {
+            w.sample("jvm_buffer_pool_capacity_bytes", "pool", pool.getName(), pool.getTotalCapacity());
+        }
+        w.gauge("jvm_buffer_pool_buffers");
+        for (BufferPoolMXBean pool : bufferPools) {
+            w.sample("jvm_buffer_pool_buffers", "pool", pool.getName(), pool.getCount());
+        }
+
+        w.gauge("jvm_threads_live", threads.getThreadCount());
+        w.gauge("jvm_threads_daemon", threads.getDaemonThreadCount());
+        w.gauge("jvm_threads_peak", threads.getPeakThreadCount());
+        w.counter("jvm_threads_started_total", threads.getTotalStartedThreadCount());
+
+        if (safepointsTracked) {
+            w.counter("jvm_safepoints_total", safepoints.get());
+            w.counter("jvm_safepoint_seconds_total").sample("jvm_safepoint_seconds_total",
+                    LatencyHistogram.formatSeconds(safepointNanos.get()));
+            w.counter("jvm_safepoint_sync_seconds_total").sample("jvm_safepoint_sync_seconds_total",
+                    LatencyHistogram.formatSeconds(safepointSyncNanos.get()));
+        }
+    }
+}
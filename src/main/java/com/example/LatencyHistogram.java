@@ -0,0 +1,156 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import java.util.concurrent.atomic.LongAdder;
+
+// ------------------------------------------------------------
+// Fixed-memory, lock-free latency histogram
+// ------------------------------------------------------------
+//
+// HDR-style log-linear layout over microseconds: each power-of-two range
+// ("magnitude") is split into SUB_BUCKETS linear slots, giving ~25% worst
+// case relative error with a constant 27 x 4 slots regardless of traffic.
+// Slots are LongAdders, so concurrent recorders do not share a cache line.
+//
+// Exported in Prometheus histogram format with one "le" boundary per
+// magnitude (64us .. ~16.8s); those boundaries fall exactly on slot edges,
+// so cumulative bucket counts are exact to the microsecond.
+
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // 2^26 us ~= 67s; anything slower is clamped into the top slot
+    private static final int MAGNITUDES = 27;
+
+    // Exported "le" boundaries: 2^6 us .. 2^24 us
+    private static final int FIRST_EXPORTED_MAGNITUDE = 6;
+    private static final int LAST_EXPORTED_MAGNITUDE = 24;
+
+    private static final String[] LE_LABELS = new String[LAST_EXPORTED_MAGNITUDE + 1];
+
+    static {
+        for (int m = FIRST_EXPORTED_MAGNITUDE; m <= LAST_EXPORTED_MAGNITUDE; m++) {
+            LE_LABELS[m] = formatSeconds((1L << m) * 1000L);
+        }
+    }
+
+    private final LongAdder[] slots = new LongAdder[MAGNITUDES * SUB_BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+
+    LatencyHistogram() {
+        for (int i = 0; i < slots.length; i++) slots[i] = new LongAdder();
+    }
+
+    // ------------------------------------------------------------
+    // Recording
+    // ------------------------------------------------------------
+
+    void recordNanos(long nanos) {
+        if (nanos < 0) nanos = 0;
+        slots[slotIndex(nanos / 1000)].increment();
+        count.increment();
+        sumNanos.add(nanos);
+    }
+
+    // Slot for a value in microseconds. Values below SUB_BUCKETS map linearly;
+    // above, the top SUB_BUCKET_BITS below the leading bit pick the sub-slot.
+    static int slotIndex(long micros) {
+        if (micros < SUB_BUCKETS) return (int) micros;
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);   // >= SUB_BUCKET_BITS
+        int sub = (int) (micros >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        int index = (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+        return Math.min(index, MAGNITUDES * SUB_BUCKETS - 1);
+    }
+
+    // Exclusive upper bound (in microseconds) of a slot
+    static long slotUpperBoundMicros(int index) {
+        int row = index / SUB_BUCKETS;
+        int sub = index % SUB_BUCKETS;
+        if (row == 0) return sub + 1;
+
+        int magnitude = row + SUB_BUCKET_BITS - 1;
+        long step = 1L << (magnitude - SUB_BUCKET_BITS);
+        return (1L << magnitude) + (sub + 1) * step;
+    }
+
+    // ------------------------------------------------------------
+    // Reading
+    // ------------------------------------------------------------
+
+    long count() {
+        return count.sum();
+    }
+
+    long sumNanos() {
+        return sumNanos.sum();
+    }
+
+    // Upper bound of the slot holding the given quantile (0..1), in nanoseconds
+    long quantileNanos(double quantile) {
+        long[] snapshot = new long[slots.length];
+        long total = 0;
+        for (int i = 0; i < slots.length; i++) {
+            snapshot[i] = slots[i].sum();
+            total += snapshot[i];
+        }
+        if (total == 0) return 0;
+
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= Math.max(1, rank)) return slotUpperBoundMicros(i) * 1000L;
+        }
+        return slotUpperBoundMicros(snapshot.length - 1) * 1000L;
+    }
+
+    // Histogram samples for one route (caller writes the family header)
+    void writeMetrics(MetricsWriter w, String name, String route) {
+        String bucket = name + "_bucket";
+        long cumulative = 0;
+        int slot = 0;
+
+        for (int m = FIRST_EXPORTED_MAGNITUDE; m <= LAST_EXPORTED_MAGNITUDE; m++) {
+            long boundMicros = 1L << m;
+            while (slot < slots.length && slotUpperBoundMicros(slot) <= boundMicros) {
+                cumulative += slots[slot++].sum();
+            }
+            w.sample(bucket, "route", route, "le", LE_LABELS[m], cumulative);
+        }
+
+        // Read count after the slots so +Inf is never below the last bucket
+        long total = Math.max(count.sum(), cumulative);
+        w.sample(bucket, "route", route, "le", "+Inf", total);
+        w.sample(name + "_sum", "route", route, formatSeconds(sumNanos.sum()));
+        w.sample(name + "_count", "route", route, total);
+    }
+
+    // Nanoseconds as a plain decimal seconds string, no exponent
+    // (microsecond precision). Arithmetic only: JvmMetrics calls it for
+    // several series on every scrape.
+    static String formatSeconds(long nanos) {
+        long micros = nanos / 1000;
+        long whole = micros / 1_000_000;
+        int frac = (int) (micros % 1_000_000);
+        if (frac == 0) return Long.toString(whole);
+
+        int digits = 6;
+        while (frac % 10 == 0) {
+            frac /= 10;
+            digits--;
+        }
+        int width = 1;
+        for (int d = frac; d >= 10; d /= 10) width++;
+
+        StringBuilder sb = new StringBuilder(20).append(whole).append('.');
+        for (int i = width; i < digits; i++) sb.append('0');   // leading zeros of the fraction
+        return sb.append(frac).toString();
+    }
+}
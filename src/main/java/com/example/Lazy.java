@@ -0,0 +1,49 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import java.util.function.Supplier;
+
+// ------------------------------------------------------------
+// Thread-safe lazily computed value
+// ------------------------------------------------------------
+//
+// Used to keep non-critical work (dashboard encoding, UUID generation,
+// metric registries) off the startup path: the supplier runs once, on
+// first use, and later reads are a single volatile load.
+
+final class Lazy<T> implements Supplier<T> {
+
+    private Supplier<T> supplier;
+    private volatile T value;
+
+    private Lazy(Supplier<T> supplier) {
+        this.supplier = supplier;
+    }
+
+    static <T> Lazy<T> of(Supplier<T> supplier) {
+        return new Lazy<>(supplier);
+    }
+
+    @Override
+    public T get() {
+        T v = value;
+        if (v != null) return v;
+
+        synchronized (this) {
+            if (value == null) {
+                value = supplier.get();
+                // Let the supplier (and whatever it captured) be collected
+                supplier = null;
+            }
+            return value;
+        }
+    }
+
+    // The value if it has been computed, null otherwise (never runs the supplier)
+    T getIfPresent() {
+        return value;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+// ------------------------------------------------------------
+// Cluster-wide visitor numbers via block leasing on a shared file
+// ------------------------------------------------------------
+//
+// The lease file holds the next number nobody has leased yet. An instance
+// takes the file lock, reads that value, writes value + leaseSize, forces
+// it to disk and releases the lock; it then owns that range outright and
+// hands numbers out of it with a plain AtomicLong. Coordination happens
+// once per leaseSize visitors, never per request.
+//
+// Every instance (pod, process) pointing at the same file gets disjoint
+// ranges, so numbers are unique across the fleet. They are not globally
+// ordered: each instance counts up inside its own lease. Unused numbers of
+// a lease are lost when the instance stops.
+//
+// The file must be on storage all instances can lock (same host, or a
+// shared volume whose filesystem honours fcntl locks).
+
+final class LeasedVisitorSequence implements VisitorSequence {
+
+    private static final long MAGIC = 0x4C45415345303031L;   // "LEASE001"
+    private static final int VALUE_OFFSET = 8;
+
+    private final FileChannel channel;
+    private final long leaseSize;
+
+    // Current lease; replaced as a whole so next() never sees a half-updated range
+    private volatile Lease lease;
+
+    private final AtomicLong leases = new AtomicLong(0);
+    private final AtomicLong leaseWaitNanos = new AtomicLong(0);
+
+    private static final class Lease {
+        final long start;   // first number (inclusive)
+        final long end;     // last number (inclusive)
+        final AtomicLong cursor;
+
+        Lease(long start, long end) {
+            this.start = start;
+            this.end = end;
+            this.cursor = new AtomicLong(start - 1);
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Construction
+    // ------------------------------------------------------------
+
+    static LeasedVisitorSequence open(Path file, long leaseSize) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new LeasedVisitorSequence(channel, leaseSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private LeasedVisitorSequence(FileChannel channel, long leaseSize) throws IOException {
+        this.channel = channel;
+        this.leaseSize = Math.max(1, leaseSize);
+        this.lease = leaseBlock(this.leaseSize);
+    }
+
+    // ------------------------------------------------------------
+    // Counting
+    // ------------------------------------------------------------
+
+    @Override
+    public long next() {
+        while (true) {
+            Lease current = lease;
+            long n = current.cursor.incrementAndGet();
+            if (n <= current.end) return n;
+
+            // Exhausted: one thread leases the next block, the others retry on it
+            synchronized (this) {
+                if (lease == current) lease = leaseOrFail(leaseSize);
+            }
+        }
+    }
+
+    @Override
+    public long reserve(int count) {
+        // A range at least as large as a lease gets a lease of its own
+        if (count >= leaseSize) return leaseOrFail(count).start;
+
+        while (true) {
+            Lease current = lease;
+            long first = current.cursor.getAndAdd(count) + 1;
+            if (first + count - 1 <= current.end) return first;
+
+            // Does not fit in what is left: the remainder is skipped, as after a restart
+            synchronized (this) {
+                if (lease == current) lease = leaseOrFail(leaseSize);
+            }
+        }
+    }
+
+    @Override
+    public void writeMetrics(MetricsWriter w) {
+        Lease current = lease;
+        w.gauge("visitor_lease_start", current.start);
+        w.gauge("visitor_lease_end", current.end);
+        w.counter("visitor_leases_total", leases.get());
+        w.counter("visitor_lease_wait_nanoseconds_total", leaseWaitNanos.get());
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // ------------------------------------------------------------
+    // Internals
+    // ------------------------------------------------------------
+
+    private Lease leaseOrFail(long count) {
+        try {
+            return leaseBlock(count);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to lease visitor numbers", e);
+        }
+    }
+
+    // Atomically claims [next, next + count) in the shared file. File locks are
+    // per process, so the class lock keeps two instances in one JVM from
+    // overlapping (which FileChannel.lock() would reject).
+    private Lease leaseBlock(long count) throws IOException {
+        long started = System.nanoTime();
+
+        synchronized (LeasedVisitorSequence.class) {
+            return leaseBlockLocked(count, started);
+        }
+    }
+
+    private Lease leaseBlockLocked(long count, long started) throws IOException {
+        FileLock lock = channel.lock();
+        try {
+            ByteBuffer buf = ByteBuffer.allocate(16);
+            channel.read(buf, 0);
+            buf.flip();
+
+            long next = 1;
+            if (buf.remaining() == 16 && buf.getLong(0) == MAGIC) {
+                next = buf.getLong(VALUE_OFFSET);
+            }
+
+            buf.clear();
+            buf.putLong(MAGIC).putLong(next + count).flip();
+            while (buf.hasRemaining()) {
+                channel.write(buf, buf.position());
+            }
+            // Durable before any number of the range is used
+            channel.force(false);
+
+            leases.incrementAndGet();
+            leaseWaitNanos.addAndGet(System.nanoTime() - started);
+            return new Lease(next, next + count - 1);
+        } finally {
+            lock.release();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// ------------------------------------------------------------
+// Server lifecycle: running -> draining -> stopped
+// ------------------------------------------------------------
+//
+// Graceful shutdown (App.shutdownGracefully, run by the JVM shutdown hook on
+// SIGTERM and on System.exit, e.g. /chaos?action=crash):
+//   1. /readyz answers 503 and responses carry "Connection: close"
+//   2. wait SHUTDOWN_READINESS_DELAY_MILLIS, still serving, so the
+//      Service stops routing here before the listener goes away
+//   3. stop accepting and drain requests in flight, for at most
+//      SHUTDOWN_DRAIN_TIMEOUT_MILLIS
+//   4. release resources, flush the visitor store, log the final metrics
+// Steps 2 + 3 must fit in the pod's terminationGracePeriodSeconds.
+
+final class Lifecycle {
+
+    static final int RUNNING = 0;
+    static final int DRAINING = 1;
+    static final int STOPPED = 2;
+
+    private final long readinessDelayMillis;
+    private final long drainTimeoutMillis;
+
+    private final AtomicInteger state = new AtomicInteger(RUNNING);
+
+    // Last drain (all zero until one happened)
+    private volatile long drainMillis;
+    private volatile long inFlightAtDrain;
+    private volatile long abandoned;
+
+    // Reads SHUTDOWN_READINESS_DELAY_MILLIS (default 0) and SHUTDOWN_DRAIN_TIMEOUT_MILLIS (default 20000)
+    static Lifecycle fromEnv() {
+        Map<String, String> env = System.getenv();
+        return new Lifecycle(
+                Long.parseLong(env.getOrDefault("SHUTDOWN_READINESS_DELAY_MILLIS", "0")),
+                Long.parseLong(env.getOrDefault("SHUTDOWN_DRAIN_TIMEOUT_MILLIS", "20000")));
+    }
+
+    Lifecycle(long readinessDelayMillis, long drainTimeoutMillis) {
+        this.readinessDelayMillis = Math.max(0, readinessDelayMillis);
+        this.drainTimeoutMillis = Math.max(0, drainTimeoutMillis);
+    }
+
+    // ------------------------------------------------------------
+    // State
+    // ------------------------------------------------------------
+
+    // Ready for new traffic (what /readyz reports)
+    boolean running() {
+        return state.get() == RUNNING;
+    }
+
+    // True for the one caller that gets to run the shutdown
+    boolean beginDrain() {
+        return state.compareAndSet(RUNNING, DRAINING);
+    }
+
+    // Step 2: keep serving while load balancers notice /readyz
+    void awaitReadinessDelay() {
+        if (readinessDelayMillis == 0) return;
+        try {
+            TimeUnit.MILLISECONDS.sleep(readinessDelayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    long drainTimeoutMillis() {
+        return drainTimeoutMillis;
+    }
+
+    void drained(long inFlightAtStart, long elapsedNanos, int abandonedRequests) {
+        inFlightAtDrain = inFlightAtStart;
+        drainMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        abandoned = abandonedRequests;
+    }
+
+    void stopped() {
+        state.set(STOPPED);
+    }
+
+    // ------------------------------------------------------------
+    // Metrics
+    // ------------------------------------------------------------
+
+    void writeMetrics(MetricsWriter w) {
+        w.gauge("lifecycle_state", state.get());
+        w.gauge("shutdown_readiness_delay_milliseconds", readinessDelayMillis);
+        w.gauge("shutdown_drain_timeout_milliseconds", drainTimeoutMillis);
+        w.gauge("shutdown_drain_milliseconds", drainMillis);
+        w.gauge("shutdown_drain_in_flight_requests", inFlightAtDrain);
+        w.gauge("shutdown_drain_abandoned_requests", abandoned);
+    }
+
+    String describeDrain() {
+        return "drained " + inFlightAtDrain + " in-flight request(s) in " + drainMillis + "ms, "
+                + abandoned + " cut off";
+    }
+}
@@ -0,0 +1,29 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// ------------------------------------------------------------
+// In-memory visitor numbers (per running instance)
+// ------------------------------------------------------------
+//
+// Deliberately a single AtomicLong, not striped: every visitor must get a
+// unique number, which a LongAdder cannot hand out.
+
+final class LocalVisitorSequence implements VisitorSequence {
+
+    private final AtomicLong counter = new AtomicLong(0);
+
+    @Override
+    public long next() {
+        return counter.incrementAndGet();
+    }
+
+    @Override
+    public long reserve(int count) {
+        return counter.getAndAdd(count) + 1;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// ------------------------------------------------------------
+// Short-lived shared /metrics payloads
+// ------------------------------------------------------------
+//
+// With METRICS_SNAPSHOT_MILLIS > 0, scrapes that arrive within that window
+// reuse one rendered body (per format) instead of each rendering their own.
+// Only one thread renders at a time; concurrent scrapers wait for it and
+// then share the result.
+
+final class MetricsSnapshotCache {
+
+    private final long windowNanos;
+    private final Consumer<MetricsWriter> renderer;
+
+    // One slot + render lock per MetricsWriter.Format
+    private final Snapshot[] snapshots = new Snapshot[MetricsWriter.Format.values().length];
+    private final Object[] locks = new Object[snapshots.length];
+
+    private final AtomicLong renders = new AtomicLong(0);
+    private final AtomicLong hits = new AtomicLong(0);
+
+    private static final class Snapshot {
+        final long renderedAtNanos;
+        final byte[] body;
+
+        Snapshot(long renderedAtNanos, byte[] body) {
+            this.renderedAtNanos = renderedAtNanos;
+            this.body = body;
+        }
+    }
+
+    MetricsSnapshotCache(long windowMillis, Consumer<MetricsWriter> renderer) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, windowMillis));
+        this.renderer = renderer;
+        for (int i = 0; i < locks.length; i++) locks[i] = new Object();
+    }
+
+    boolean enabled() {
+        return windowNanos > 0;
+    }
+
+    // Fresh-enough body for the format, rendering it if needed
+    byte[] get(MetricsWriter.Format format) {
+        int slot = format.ordinal();
+
+        // Racy read is fine: Snapshot fields are final, so we see null or a whole one
+        Snapshot current = snapshots[slot];
+        if (isFresh(current)) {
+            hits.incrementAndGet();
+            return current.body;
+        }
+
+        synchronized (locks[slot]) {
+            // Another scraper may have rendered while we waited
+            current = snapshots[slot];
+            if (isFresh(current)) {
+                hits.incrementAndGet();
+                return current.body;
+            }
+
+            MetricsWriter w = MetricsWriter.buffered(format);
+            renderer.accept(w);
+            w.finish();
+
+            Snapshot fresh = new Snapshot(System.nanoTime(), w.bytes());
+            snapshots[slot] = fresh;
+            renders.incrementAndGet();
+            return fresh.body;
+        }
+    }
+
+    void writeMetrics(MetricsWriter w) {
+        w.counter("metrics_snapshot_renders_total", renders.get());
+        w.counter("metrics_snapshot_hits_total", hits.get());
+    }
+
+    // ------------------------------------------------------------
+    // Internals
+    // ------------------------------------------------------------
+
+    private boolean isFresh(Snapshot snapshot) {
+        return snapshot != null && System.nanoTime() - snapshot.renderedAtNanos < windowNanos;
+    }
+}
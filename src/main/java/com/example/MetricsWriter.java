@@ -0,0 +1,222 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// ------------------------------------------------------------
+// Incremental Prometheus / OpenMetrics text writer
+// ------------------------------------------------------------
+//
+// Samples are encoded straight into a byte buffer that is flushed to the
+// response stream every FLUSH_BYTES, so a scrape never materialises the
+// whole exposition as a String. Streaming writers borrow the per-thread
+// ByteSink; buffered writers (metricsText(), snapshots) own theirs.
+//
+// Metric names are passed in their Prometheus form. In OpenMetrics mode
+// counter families drop the "_total" suffix and every counter sample gets
+// it, as the spec requires, and the body ends with "# EOF".
+
+final class MetricsWriter {
+
+    enum Format {
+        PROMETHEUS("text/plain; version=0.0.4; charset=utf-8"),
+        OPENMETRICS("application/openmetrics-text; version=1.0.0; charset=utf-8");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        String contentType() {
+            return contentType;
+        }
+
+        // OpenMetrics only when the scraper asks for it
+        static Format negotiate(List<String> acceptHeaders) {
+            if (acceptHeaders != null) {
+                for (String accept : acceptHeaders) {
+                    if (accept.contains("application/openmetrics-text")) return OPENMETRICS;
+                }
+            }
+            return PROMETHEUS;
+        }
+    }
+
+    private static final int FLUSH_BYTES = 8 * 1024;
+
+    private final Format format;
+    private final OutputStream out;     // null for buffered writers
+    private final ByteSink buf;
+
+    // Prometheus name / OpenMetrics family of the counter being written, if any
+    private String counterName;
+    private String counterFamily;
+
+    private MetricsWriter(Format format, OutputStream out, ByteSink buf) {
+        this.format = format;
+        this.out = out;
+        this.buf = buf;
+    }
+
+    // Writes through to the stream, reusing the current thread's buffer
+    static MetricsWriter streaming(OutputStream out, Format format) {
+        return new MetricsWriter(format, out, ByteSink.forThread());
+    }
+
+    // Keeps the whole exposition in memory (see bytes()/text())
+    static MetricsWriter buffered(Format format) {
+        return new MetricsWriter(format, null, new ByteSink(4096));
+    }
+
+    Format format() {
+        return format;
+    }
+
+    // ------------------------------------------------------------
+    // Families
+    // ------------------------------------------------------------
+
+    MetricsWriter counter(String name) {
+        counterName = name;
+        counterFamily = name.endsWith("_total") ? name.substring(0, name.length() - "_total".length()) : name;
+        return typeLine(format == Format.OPENMETRICS ? counterFamily : name, "counter");
+    }
+
+    MetricsWriter gauge(String name) {
+        counterName = null;
+        return typeLine(name, "gauge");
+    }
+
+    MetricsWriter histogram(String name) {
+        counterName = null;
+        return typeLine(name, "histogram");
+    }
+
+    // ------------------------------------------------------------
+    // Samples
+    // ------------------------------------------------------------
+
+    MetricsWriter sample(String name, long value) {
+        name(name);
+        return value(value);
+    }
+
+    MetricsWriter sample(String name, String decimal) {
+        name(name);
+        buf.appendByte(' ').appendAscii(decimal).appendByte('\n');
+        return maybeFlush();
+    }
+
+    MetricsWriter sample(String name, String label, String labelValue, long value) {
+        name(name);
+        buf.appendByte('{');
+        label(label, labelValue);
+        buf.appendByte('}');
+        return value(value);
+    }
+
+    MetricsWriter sample(String name, String label, String labelValue, String decimal) {
+        name(name);
+        buf.appendByte('{');
+        label(label, labelValue);
+        buf.appendByte('}').appendByte(' ').appendAscii(decimal).appendByte('\n');
+        return maybeFlush();
+    }
+
+    MetricsWriter sample(String name, String label1, String value1,
+                         String label2, String value2, long value) {
+        name(name);
+        buf.appendByte('{');
+        label(label1, value1);
+        buf.appendByte(',');
+        label(label2, value2);
+        buf.appendByte('}');
+        return value(value);
+    }
+
+    // Shorthand for a single unlabelled counter / gauge
+    MetricsWriter counter(String name, long value) {
+        return counter(name).sample(name, value);
+    }
+
+    MetricsWriter gauge(String name, long value) {
+        return gauge(name).sample(name, value);
+    }
+
+    // ------------------------------------------------------------
+    // Completion
+    // ------------------------------------------------------------
+
+    // Terminates the exposition and pushes any buffered bytes to the stream
+    void finish() {
+        if (format == Format.OPENMETRICS) buf.appendAscii("# EOF\n");
+        if (out != null) flush();
+    }
+
+    byte[] bytes() {
+        return buf.toByteArray();
+    }
+
+    String text() {
+        return new String(buf.array(), 0, buf.length(), StandardCharsets.UTF_8);
+    }
+
+    // ------------------------------------------------------------
+    // Internals
+    // ------------------------------------------------------------
+
+    private MetricsWriter typeLine(String family, String type) {
+        buf.appendAscii("# TYPE ").appendAscii(family).appendByte(' ').appendAscii(type).appendByte('\n');
+        return maybeFlush();
+    }
+
+    private void name(String name) {
+        if (format == Format.OPENMETRICS && counterName != null && counterName.equals(name)) {
+            buf.appendAscii(counterFamily).appendAscii("_total");
+        } else {
+            buf.appendAscii(name);
+        }
+    }
+
+    private void label(String label, String value) {
+        buf.appendAscii(label).appendAscii("=\"");
+
+        // Escape quote, backslash and newline; copy everything else in runs
+        int runStart = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '"' && c != '\\' && c != '\n') continue;
+
+            buf.appendUtf8(value, runStart, i).appendByte('\\').appendByte(c == '\n' ? 'n' : c);
+            runStart = i + 1;
+        }
+        buf.appendUtf8(value, runStart, value.length()).appendByte('"');
+    }
+
+    private MetricsWriter value(long value) {
+        buf.appendByte(' ').appendLong(value).appendByte('\n');
+        return maybeFlush();
+    }
+
+    private MetricsWriter maybeFlush() {
+        if (out != null && buf.length() >= FLUSH_BYTES) flush();
+        return this;
+    }
+
+    private void flush() {
+        try {
+            buf.writeTo(out);
+            buf.reset();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
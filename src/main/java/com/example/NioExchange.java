@@ -0,0 +1,533 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpPrincipal;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// ------------------------------------------------------------
+// HttpExchange for NioHttpEngine
+// ------------------------------------------------------------
+//
+// Same contract as the JDK's exchanges (sendResponseHeaders length: > 0
+// fixed, 0 chunked, or delimited by closing the connection for HTTP/1.0
+// clients, which cannot read chunks; -1 none; close() ends the response), so
+// handlers cannot tell the engines apart. The request body is already fully
+// read.
+//
+// The response is staged in the connection's direct buffer: headers first,
+// then body bytes (or 8-digit-framed chunks), flushed when full, on flush()
+// and on close(). Large fixed-length writes skip the staging copy.
+
+final class NioExchange extends HttpExchange {
+
+    // Writes at least this large go out directly instead of through staging
+    private static final int DIRECT_WRITE_BYTES = 4096;
+
+    private static final boolean[] UNSTABLE_1 = {false};
+    private static final boolean[] UNSTABLE_2 = {false, false};
+    private static final boolean[] STAGED_THEN_STABLE = {false, true};
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final NioHttpEngine.Connection conn;
+    private final String method;
+    private final URI uri;
+    private final String protocol;
+    private final Headers requestHeaders;
+    private final byte[] body;
+    private final Context context;
+    private final boolean keepAlive;
+
+    private final Headers responseHeaders = new Headers();
+    private final ResponseStream response = new ResponseStream();
+    private volatile int responseCode = -1;
+
+    private Map<String, Object> attributes;
+    private InputStream requestStream;
+    private OutputStream responseStream;
+
+    NioExchange(NioHttpEngine.Connection conn, String method, URI uri, String protocol,
+                Headers requestHeaders, byte[] body, Context context, boolean keepAlive) {
+        this.conn = conn;
+        this.method = method;
+        this.uri = uri;
+        this.protocol = protocol;
+        this.requestHeaders = requestHeaders;
+        this.body = body;
+        this.context = context;
+        this.keepAlive = keepAlive;
+    }
+
+    // ------------------------------------------------------------
+    // Dispatch (executor thread)
+    // ------------------------------------------------------------
+
+    void run() {
+        if (context == null) {
+            failBeforeHandler(404, "Not Found");
+            return;
+        }
+        try {
+            context.getHandler().handle(this);
+        } catch (Throwable t) {
+            // As with HttpServer: the connection does not survive a failing handler
+            if (responseCode == -1) {
+                failBeforeHandler(500, "Internal Server Error");
+            } else {
+                conn.close();
+            }
+        }
+    }
+
+    // Plain-text error with "Connection: close", for requests no handler answered
+    void failBeforeHandler(int status, String reason) {
+        responseCode = status;
+        rejectRequest(conn, status, reason);
+    }
+
+    static void rejectRequest(NioHttpEngine.Connection conn, int status, String reason) {
+        byte[] text = (status + " " + reason + "\n").getBytes(StandardCharsets.US_ASCII);
+        String head = "HTTP/1.1 " + status + " " + reason + "\r\n"
+                + "Content-type: text/plain; charset=utf-8\r\n"
+                + "Content-length: " + text.length + "\r\n"
+                + "Connection: close\r\n\r\n";
+        try {
+            conn.write(new ByteBuffer[] {
+                    ByteBuffer.wrap(head.getBytes(StandardCharsets.US_ASCII)), ByteBuffer.wrap(text)}, UNSTABLE_2);
+            conn.responseComplete(false);
+        } catch (IOException e) {
+            conn.close();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Zero-copy bodies (see CachedResponse)
+    // ------------------------------------------------------------
+
+    // Sends a complete response whose body buffer is never modified; the socket
+    // reads it in place, together with the staged headers, in one gathering write
+    void sendBody(int status, ByteBuffer body) throws IOException {
+        if (responseStream != null) {
+            // Body stream wrapped (setStreams, e.g. a chaos slow_write): go through the wrapper
+            byte[] bytes = new byte[body.remaining()];
+            body.get(bytes);
+            sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+            try (OutputStream os = responseStream) {
+                os.write(bytes);
+            }
+            return;
+        }
+        if (!body.hasRemaining()) {
+            sendResponseHeaders(status, -1);
+            return;
+        }
+        sendResponseHeaders(status, body.remaining());
+        response.finishWith(body);
+    }
+
+    // ------------------------------------------------------------
+    // HttpExchange
+    // ------------------------------------------------------------
+
+    @Override
+    public Headers getRequestHeaders() {
+        return requestHeaders;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return method;
+    }
+
+    @Override
+    public HttpContext getHttpContext() {
+        return context;
+    }
+
+    @Override
+    public void close() {
+        if (responseCode == -1) {
+            // Nothing was sent: there is no valid way to continue on this connection
+            conn.close();
+            return;
+        }
+        try {
+            response.close();
+        } catch (IOException e) {
+            conn.close();
+        }
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        if (requestStream == null) requestStream = new ByteArrayInputStream(body);
+        return requestStream;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return responseStream != null ? responseStream : response;
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+        response.begin(rCode, responseLength);
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return conn.remoteAddress();
+    }
+
+    @Override
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return conn.localAddress();
+    }
+
+    @Override
+    public String getProtocol() {
+        return protocol;
+    }
+
+    @Override
+    public synchronized Object getAttribute(String name) {
+        return attributes != null ? attributes.get(name) : null;
+    }
+
+    @Override
+    public synchronized void setAttribute(String name, Object value) {
+        if (attributes == null) attributes = new ConcurrentHashMap<>();
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null) requestStream = i;
+        if (o != null) responseStream = o;
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+
+    // ------------------------------------------------------------
+    // Response body
+    // ------------------------------------------------------------
+
+    private final class ResponseStream extends OutputStream {
+        private static final int NONE = 0;
+        private static final int FIXED = 1;
+        private static final int CHUNKED = 2;
+        private static final int UNTIL_CLOSE = 3;
+
+        // Room kept for a chunk header ("%08x\r\n")
+        private static final int CHUNK_HEADER = 10;
+
+        private ByteBuffer staging;
+        private int mode = -1;
+        // Request allows it and the handler did not answer "Connection: close"
+        private boolean keepOpen;
+        private long remaining;
+        private int chunkStart = -1;
+        private boolean closed;
+
+        synchronized void begin(int rCode, long length) throws IOException {
+            if (mode != -1) throw new IOException("headers already sent");
+
+            boolean noBody = length == -1 || rCode == 304 || rCode == 204 || rCode < 200
+                    || "HEAD".equalsIgnoreCase(method);
+            mode = noBody ? NONE : length > 0 ? FIXED : "HTTP/1.1".equals(protocol) ? CHUNKED : UNTIL_CLOSE;
+            remaining = length;
+            responseCode = rCode;
+            keepOpen = keepAlive && mode != UNTIL_CLOSE
+                    && !"close".equalsIgnoreCase(responseHeaders.getFirst("Connection"));
+            staging = conn.staging();
+
+            putAscii("HTTP/1.1 ");
+            putAscii(Integer.toString(rCode));
+            putAscii(" ");
+            putAscii(reasonPhrase(rCode));
+            putAscii("\r\n");
+            for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+                for (String value : header.getValue()) {
+                    putAscii(header.getKey());
+                    putAscii(": ");
+                    putAscii(value);
+                    putAscii("\r\n");
+                }
+            }
+            if (mode == CHUNKED) {
+                putAscii("Transfer-encoding: chunked\r\n");
+            } else if (mode != UNTIL_CLOSE && rCode != 304 && rCode != 204 && rCode >= 200) {
+                putAscii("Content-length: ");
+                putAscii(Long.toString(Math.max(0, length)));
+                putAscii("\r\n");
+            }
+            if (!keepOpen && !responseHeaders.containsKey("Connection")) putAscii("Connection: close\r\n");
+            putAscii("\r\n");
+
+            if (mode == NONE) {
+                closed = true;
+                flushStaging();
+                conn.responseComplete(keepOpen);
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            if (mode == -1) throw new IOException("response headers not sent yet");
+            if (closed) throw new IOException("stream is closed");
+            if (len == 0) return;
+
+            if (mode == NONE) throw new IOException("response has no body");
+            if (mode == FIXED) {
+                if (len > remaining) throw new IOException("too many bytes to write to stream");
+                remaining -= len;
+                writeFixed(b, off, len);
+            } else if (mode == CHUNKED) {
+                writeChunked(b, off, len);
+            } else {
+                // Close-delimited: the bytes as they are, no framing
+                writeFixed(b, off, len);
+            }
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            if (closed || mode == -1 || mode == NONE) return;
+            if (mode == CHUNKED) closeChunk();
+            flushStaging();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (closed || mode == -1) return;
+            closed = true;
+
+            if (mode == CHUNKED) {
+                closeChunk();
+                if (staging.remaining() < LAST_CHUNK.length) flushStaging();
+                staging.put(LAST_CHUNK);
+            }
+            flushStaging();
+
+            if (mode == FIXED && remaining > 0) {
+                conn.responseComplete(false);
+                throw new IOException("insufficient bytes written to stream");
+            }
+            conn.responseComplete(keepOpen);
+        }
+
+        // Headers (and anything staged) plus a stable body, then done
+        synchronized void finishWith(ByteBuffer stableBody) throws IOException {
+            if (mode != FIXED || closed) return;   // HEAD / 304: begin() already finished
+            closed = true;
+            remaining = 0;
+
+            staging.flip();
+            conn.write(new ByteBuffer[] {staging, stableBody}, STAGED_THEN_STABLE);
+            staging.clear();
+            conn.responseComplete(keepOpen);
+        }
+
+        // ------------------------------------------------------------
+        // Internals
+        // ------------------------------------------------------------
+
+        private void writeFixed(byte[] b, int off, int len) throws IOException {
+            if (len >= DIRECT_WRITE_BYTES) {
+                staging.flip();
+                conn.write(new ByteBuffer[] {staging, ByteBuffer.wrap(b, off, len)}, UNSTABLE_2);
+                staging.clear();
+                return;
+            }
+            while (len > 0) {
+                if (!staging.hasRemaining()) flushStaging();
+                int n = Math.min(len, staging.remaining());
+                staging.put(b, off, n);
+                off += n;
+                len -= n;
+            }
+        }
+
+        private void writeChunked(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (chunkStart < 0) openChunk();
+                int room = staging.remaining() - CRLF.length;
+                if (room <= 0) {
+                    closeChunk();
+                    flushStaging();
+                    continue;
+                }
+                int n = Math.min(room, len);
+                staging.put(b, off, n);
+                off += n;
+                len -= n;
+            }
+        }
+
+        private void openChunk() throws IOException {
+            if (staging.remaining() < CHUNK_HEADER + 1 + CRLF.length) flushStaging();
+            chunkStart = staging.position();
+            staging.position(chunkStart + CHUNK_HEADER);
+        }
+
+        // Fills in the reserved header; an empty chunk is dropped (size 0 would end the body)
+        private void closeChunk() {
+            if (chunkStart < 0) return;
+            int size = staging.position() - chunkStart - CHUNK_HEADER;
+            if (size == 0) {
+                staging.position(chunkStart);
+            } else {
+                for (int i = 0; i < 8; i++) {
+                    staging.put(chunkStart + i, HEX[(size >>> (28 - 4 * i)) & 0xF]);
+                }
+                staging.put(chunkStart + 8, (byte) '\r');
+                staging.put(chunkStart + 9, (byte) '\n');
+                staging.put(CRLF);
+            }
+            chunkStart = -1;
+        }
+
+        private void flushStaging() throws IOException {
+            staging.flip();
+            if (staging.hasRemaining()) conn.write(new ByteBuffer[] {staging}, UNSTABLE_1);
+            staging.clear();
+        }
+
+        private void putAscii(String s) throws IOException {
+            int n = s.length();
+            for (int i = 0; i < n; i++) {
+                if (!staging.hasRemaining()) flushStaging();
+                staging.put((byte) s.charAt(i));
+            }
+        }
+    }
+
+    private static String reasonPhrase(int status) {
+        switch (status) {
+            case 200: return "OK";
+            case 204: return "No Content";
+            case 304: return "Not Modified";
+            case 400: return "Bad Request";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 411: return "Length Required";
+            case 413: return "Payload Too Large";
+            case 429: return "Too Many Requests";
+            case 431: return "Request Header Fields Too Large";
+            case 500: return "Internal Server Error";
+            case 503: return "Service Unavailable";
+            default:  return "Status";
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Context
+    // ------------------------------------------------------------
+
+    static final class Context extends HttpContext {
+        private final String path;
+        private volatile HttpHandler handler;
+        private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+        private final List<Filter> filters = new ArrayList<>();
+        private volatile Authenticator authenticator;
+
+        Context(String path, HttpHandler handler) {
+            this.path = path;
+            this.handler = handler;
+        }
+
+        @Override
+        public HttpHandler getHandler() {
+            return handler;
+        }
+
+        @Override
+        public void setHandler(HttpHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public String getPath() {
+            return path;
+        }
+
+        // Not backed by a com.sun.net.httpserver.HttpServer
+        @Override
+        public HttpServer getServer() {
+            return null;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public List<Filter> getFilters() {
+            return filters;
+        }
+
+        @Override
+        public Authenticator setAuthenticator(Authenticator auth) {
+            Authenticator previous = authenticator;
+            authenticator = auth;
+            return previous;
+        }
+
+        @Override
+        public Authenticator getAuthenticator() {
+            return authenticator;
+        }
+    }
+}
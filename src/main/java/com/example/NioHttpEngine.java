@@ -0,0 +1,703 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// ------------------------------------------------------------
+// HttpEngine on raw NIO selectors
+// ------------------------------------------------------------
+//
+// One event loop (thread + Selector) per core; loop 0 also accepts and
+// hands new connections out round-robin. A loop reads into its own reused
+// direct buffer, parses HTTP/1.1 requests (Content-Length bodies, keep-alive)
+// and hands each complete request to the executor as an HttpExchange, so the
+// existing HttpHandlers run unchanged. A request with "Expect: 100-continue"
+// gets its "100 Continue" as soon as the headers are in, as with HttpServer.
+//
+// Responses are staged in a direct buffer borrowed from a shared pool for
+// the length of one response, so headers and a small body leave in one write.
+// CachedResponse bodies are written straight from shared read-only direct
+// buffers with a gathering write (NioExchange.sendBody): no copy at all.
+//
+// Writes are non-blocking and attempted by the handler thread itself; what
+// the socket does not take is queued and finished by the loop on OP_WRITE.
+// A writer blocks (interruptibly) once more than HIGH_WATER bytes are queued,
+// which is how a slow reader pushes back.
+//
+// One request per connection is in flight at a time; pipelined requests
+// wait in the input buffer until the previous response is complete.
+
+final class NioHttpEngine implements HttpEngine {
+
+    static final int MAX_HEADER_BYTES = 16 * 1024;
+    static final int MAX_BODY_BYTES = 8 * 1024 * 1024;
+
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+    private static final int STAGING_BYTES = 16 * 1024;
+    private static final int HIGH_WATER = 256 * 1024;
+    private static final int POOLED_STAGING_BUFFERS = 256;
+    private static final long IDLE_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long DRAIN_POLL_MILLIS = 10;
+
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final boolean[] STABLE_1 = {true};
+
+    private final InetSocketAddress bindAddress;
+    private final EventLoop[] loops;
+
+    // Longest path first, like HttpServer's context lookup
+    private final CopyOnWriteArrayList<NioExchange.Context> contexts = new CopyOnWriteArrayList<>();
+
+    private volatile Executor executor;
+    private volatile ServerSocketChannel serverChannel;
+    private final AtomicInteger nextLoop = new AtomicInteger(0);
+
+    // Direct staging buffers not lent to a response right now
+    private final Queue<ByteBuffer> stagingPool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledStaging = new AtomicInteger(0);
+
+    NioHttpEngine(int port, int loops) {
+        this.bindAddress = new InetSocketAddress(port);
+        this.loops = new EventLoop[Math.max(1, loops)];
+    }
+
+    // ------------------------------------------------------------
+    // HttpEngine
+    // ------------------------------------------------------------
+
+    @Override
+    public synchronized void createContext(String path, HttpHandler handler) {
+        NioExchange.Context context = new NioExchange.Context(path, handler);
+        int i = 0;
+        while (i < contexts.size() && contexts.get(i).getPath().length() >= path.length()) i++;
+        contexts.add(i, context);
+    }
+
+    @Override
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void start() {
+        try {
+            ServerSocketChannel channel = ServerSocketChannel.open();
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.bind(bindAddress, 1024);
+            channel.configureBlocking(false);
+            serverChannel = channel;
+
+            for (int i = 0; i < loops.length; i++) loops[i] = new EventLoop(i);
+            loops[0].execute(() -> loops[0].registerAcceptor(channel));
+            for (EventLoop loop : loops) loop.thread.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to start NIO engine on " + bindAddress, e);
+        }
+    }
+
+    // Connections keep being served while draining; responses finishing
+    // the drain still go out before their connection is closed
+    @Override
+    public int stop(long drainMillis) {
+        try {
+            ServerSocketChannel channel = serverChannel;
+            if (channel != null) channel.close();
+        } catch (IOException ignored) {
+            // Closing anyway
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, drainMillis));
+        try {
+            while (busyConnections() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(DRAIN_POLL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        int abandoned = busyConnections();
+        for (EventLoop loop : loops) {
+            if (loop != null) loop.shutdown();
+        }
+        return abandoned;
+    }
+
+    @Override
+    public int port() {
+        try {
+            return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Event loop
+    // ------------------------------------------------------------
+
+    private final class EventLoop implements Runnable {
+        final Thread thread;
+        final Selector selector;
+        final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+        final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+        volatile boolean running = true;
+        long lastSweepNanos = System.nanoTime();
+
+        EventLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            // Non-daemon, like the JDK HttpServer dispatcher: the loops keep the
+            // JVM alive after main() returns, until stop()
+            this.thread = new Thread(this, "nio-loop-" + index);
+        }
+
+        // Runs the task on the loop thread (next iteration)
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        void shutdown() {
+            running = false;
+            selector.wakeup();
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select(this::onKey, 1000);
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) task.run();
+                    sweepIdle();
+                }
+            } catch (IOException | RuntimeException e) {
+                if (running) System.out.println("NIO event loop failed: " + e);
+            } finally {
+                for (Connection c : connections) c.close();
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                    // Exiting
+                }
+            }
+        }
+
+        void registerAcceptor(ServerSocketChannel channel) {
+            try {
+                channel.register(selector, SelectionKey.OP_ACCEPT);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void register(SocketChannel channel) {
+            try {
+                Connection c = new Connection(this, channel);
+                c.key = channel.register(selector, SelectionKey.OP_READ, c);
+                connections.add(c);
+            } catch (IOException e) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Nothing to clean up
+                }
+            }
+        }
+
+        private void onKey(SelectionKey key) {
+            if (!key.isValid()) return;
+            if (key.isAcceptable()) {
+                accept((ServerSocketChannel) key.channel());
+                return;
+            }
+
+            Connection c = (Connection) key.attachment();
+            try {
+                if (key.isWritable()) c.onWritable();
+                if (key.isValid() && key.isReadable()) c.onReadable(readBuffer);
+            } catch (RuntimeException e) {
+                // One broken connection must not take the loop down
+                System.out.println("NIO connection failed: " + e);
+                c.close();
+            }
+        }
+
+        private void accept(ServerSocketChannel server) {
+            SocketChannel channel;
+            try {
+                while ((channel = server.accept()) != null) {
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    EventLoop target = loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+                    SocketChannel accepted = channel;
+                    if (target == this) {
+                        register(accepted);
+                    } else {
+                        target.execute(() -> target.register(accepted));
+                    }
+                }
+            } catch (IOException e) {
+                if (server.isOpen()) System.out.println("Accept failed: " + e);
+            }
+        }
+
+        // Closes keep-alive connections that have been idle too long (~once a second)
+        private void sweepIdle() {
+            long now = System.nanoTime();
+            if (now - lastSweepNanos < TimeUnit.SECONDS.toNanos(1)) return;
+            lastSweepNanos = now;
+            for (Connection c : connections) {
+                if (c.idleSince(now) > IDLE_NANOS) c.close();
+            }
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Connection
+    // ------------------------------------------------------------
+
+    // Input state belongs to the loop thread; the in-flight flag and all
+    // output state are guarded by the connection's monitor.
+    final class Connection {
+        private final EventLoop loop;
+        private final SocketChannel channel;
+        private final InetSocketAddress remote;
+        private final InetSocketAddress local;
+        private SelectionKey key;
+
+        private byte[] in = new byte[1024];
+        private int inLen;
+        // "100 Continue" already sent for the request being read
+        private boolean continued;
+
+        private boolean inFlight;
+        private boolean closed;
+        private long lastActiveNanos = System.nanoTime();
+
+        private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+        private long pendingBytes;
+        private boolean finishing;
+        private boolean keepAliveAfter;
+
+        private ByteBuffer staging;
+
+        Connection(EventLoop loop, SocketChannel channel) throws IOException {
+            this.loop = loop;
+            this.channel = channel;
+            this.remote = (InetSocketAddress) channel.getRemoteAddress();
+            this.local = (InetSocketAddress) channel.getLocalAddress();
+        }
+
+        InetSocketAddress remoteAddress() {
+            return remote;
+        }
+
+        InetSocketAddress localAddress() {
+            return local;
+        }
+
+        // ------------------------------------------------------------
+        // Input (loop thread)
+        // ------------------------------------------------------------
+
+        void onReadable(ByteBuffer buf) {
+            buf.clear();
+            int n;
+            try {
+                n = channel.read(buf);
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            if (n < 0) {
+                close();
+                return;
+            }
+            if (n == 0) return;
+
+            buf.flip();
+            synchronized (this) {
+                if (inLen + n > in.length) {
+                    if (inLen + n > MAX_HEADER_BYTES + MAX_BODY_BYTES) {
+                        closeLocked();
+                        return;
+                    }
+                    byte[] grown = new byte[Math.max(in.length * 2, inLen + n)];
+                    System.arraycopy(in, 0, grown, 0, inLen);
+                    in = grown;
+                }
+                buf.get(in, inLen, n);
+                inLen += n;
+                if (inFlight) return;
+            }
+            processInput();
+        }
+
+        // Parses and dispatches the next complete request, if any
+        void processInput() {
+            synchronized (this) {
+                if (inFlight || closed) return;
+            }
+
+            int headerEnd = indexOfHeaderEnd(in, inLen);
+            if (headerEnd < 0) {
+                if (inLen > MAX_HEADER_BYTES) reject(431, "Request Header Fields Too Large");
+                return;
+            }
+
+            NioExchange exchange;
+            try {
+                exchange = parseRequest(headerEnd);
+            } catch (BadRequest e) {
+                reject(e.status, e.getMessage());
+                return;
+            }
+            if (exchange == null) return;   // body not complete yet
+
+            synchronized (this) {
+                inFlight = true;
+            }
+            dispatch(exchange);
+        }
+
+        // Null while the body is still arriving; consumes the request bytes otherwise
+        private NioExchange parseRequest(int headerEnd) throws BadRequest {
+            String head = new String(in, 0, headerEnd, StandardCharsets.ISO_8859_1);
+            String[] lines = head.split("\r\n");
+            String[] requestLine = lines[0].split(" ");
+            if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+                throw new BadRequest(400, "Bad Request");
+            }
+
+            Headers headers = new Headers();
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                if (colon <= 0) throw new BadRequest(400, "Bad Request");
+                headers.add(lines[i].substring(0, colon).trim(), lines[i].substring(colon + 1).trim());
+            }
+
+            if (headers.containsKey("Transfer-Encoding")) throw new BadRequest(411, "Length Required");
+            long contentLength = 0;
+            String declared = headers.getFirst("Content-Length");
+            if (declared != null) {
+                try {
+                    contentLength = Long.parseLong(declared.trim());
+                } catch (NumberFormatException e) {
+                    throw new BadRequest(400, "Bad Request");
+                }
+                if (contentLength < 0) throw new BadRequest(400, "Bad Request");
+                if (contentLength > MAX_BODY_BYTES) throw new BadRequest(413, "Payload Too Large");
+            }
+
+            int bodyStart = headerEnd + 4;
+            int requestEnd = bodyStart + (int) contentLength;
+            if (inLen < requestEnd) {
+                // The client holds the body back until told to go ahead
+                if (!continued && "HTTP/1.1".equals(requestLine[2])
+                        && "100-continue".equalsIgnoreCase(headers.getFirst("Expect"))) {
+                    continued = true;
+                    sendContinue();
+                }
+                return null;
+            }
+            continued = false;
+
+            byte[] body = new byte[(int) contentLength];
+            System.arraycopy(in, bodyStart, body, 0, body.length);
+            System.arraycopy(in, requestEnd, in, 0, inLen - requestEnd);
+            inLen -= requestEnd;
+
+            URI uri;
+            try {
+                uri = new URI(requestLine[1]);
+            } catch (URISyntaxException e) {
+                throw new BadRequest(400, "Bad Request");
+            }
+
+            String protocol = requestLine[2];
+            String connection = headers.getFirst("Connection");
+            boolean keepAlive = "HTTP/1.1".equals(protocol)
+                    ? !"close".equalsIgnoreCase(connection)
+                    : "keep-alive".equalsIgnoreCase(connection);
+
+            return new NioExchange(this, requestLine[0], uri, protocol, headers, body,
+                    contextFor(uri.getPath()), keepAlive);
+        }
+
+        private void dispatch(NioExchange exchange) {
+            Runnable task = exchange::run;
+            Executor current = executor;
+            if (current == null) {
+                task.run();
+                return;
+            }
+            try {
+                current.execute(task);
+            } catch (RejectedExecutionException e) {
+                exchange.failBeforeHandler(503, "Service Unavailable");
+            }
+        }
+
+        // Interim response on the loop thread; never blocks (see write)
+        private void sendContinue() {
+            try {
+                write(new ByteBuffer[] {ByteBuffer.wrap(CONTINUE)}, STABLE_1);
+            } catch (IOException e) {
+                // write() already closed the connection
+            }
+        }
+
+        // Error answered on the loop thread, connection closed after it
+        private void reject(int status, String reason) {
+            synchronized (this) {
+                inFlight = true;
+                inLen = 0;
+            }
+            NioExchange.rejectRequest(this, status, reason);
+        }
+
+        // ------------------------------------------------------------
+        // Output (any thread)
+        // ------------------------------------------------------------
+
+        ByteBuffer staging() {
+            synchronized (this) {
+                if (staging == null) {
+                    ByteBuffer pooled = stagingPool.poll();
+                    if (pooled != null) pooledStaging.decrementAndGet();
+                    staging = pooled != null ? pooled : ByteBuffer.allocateDirect(STAGING_BYTES);
+                }
+                return staging;
+            }
+        }
+
+        // Writes what the socket takes now and queues the rest. Buffers marked
+        // stable are never modified by their owner and are queued as they are;
+        // others are copied. Blocks while too much is queued (never on the loop).
+        void write(ByteBuffer[] buffers, boolean[] stable) throws IOException {
+            synchronized (this) {
+                if (closed) throw new IOException("Connection closed");
+
+                try {
+                    if (pending.isEmpty()) {
+                        long remaining = remaining(buffers);
+                        while (remaining > 0) {
+                            long written = channel.write(buffers);
+                            if (written == 0) break;
+                            remaining -= written;
+                        }
+                    }
+                } catch (IOException e) {
+                    closeLocked();
+                    throw e;
+                }
+
+                for (int i = 0; i < buffers.length; i++) {
+                    ByteBuffer b = buffers[i];
+                    if (!b.hasRemaining()) continue;
+                    ByteBuffer queued = stable[i] ? b : copyOf(b);
+                    pendingBytes += queued.remaining();
+                    pending.add(queued);
+                }
+
+                if (!pending.isEmpty()) {
+                    key.interestOpsOr(SelectionKey.OP_WRITE);
+                    loop.selector.wakeup();
+                }
+
+                if (Thread.currentThread() == loop.thread) return;
+                while (pendingBytes > HIGH_WATER && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // Same effect as interrupting a blocking channel write: the connection goes
+                        closeLocked();
+                        throw new InterruptedIOException("Interrupted while writing response");
+                    }
+                }
+                if (closed) throw new IOException("Connection closed");
+            }
+        }
+
+        // Loop thread: drains queued output
+        void onWritable() {
+            synchronized (this) {
+                try {
+                    while (!pending.isEmpty()) {
+                        ByteBuffer b = pending.peek();
+                        int written = channel.write(b);
+                        pendingBytes -= written;
+                        if (b.hasRemaining()) break;
+                        pending.poll();
+                    }
+                } catch (IOException e) {
+                    closeLocked();
+                    return;
+                }
+
+                if (pending.isEmpty()) {
+                    key.interestOpsAnd(~SelectionKey.OP_WRITE);
+                    if (finishing) completeLocked();
+                }
+                notifyAll();
+            }
+        }
+
+        // The exchange has handed over its last bytes
+        void responseComplete(boolean keepAlive) {
+            synchronized (this) {
+                if (closed) return;
+                finishing = true;
+                keepAliveAfter = keepAlive;
+                if (pending.isEmpty()) completeLocked();
+            }
+        }
+
+        private void completeLocked() {
+            finishing = false;
+            inFlight = false;
+            releaseStagingLocked();
+            if (!keepAliveAfter) {
+                closeLocked();
+                return;
+            }
+            lastActiveNanos = System.nanoTime();
+
+            // A pipelined request is already waiting
+            if (inLen > 0) loop.execute(this::processInput);
+        }
+
+        synchronized boolean busy() {
+            return !closed && (inFlight || !pending.isEmpty());
+        }
+
+        synchronized long idleSince(long nowNanos) {
+            return inFlight ? 0 : nowNanos - lastActiveNanos;
+        }
+
+        void close() {
+            synchronized (this) {
+                closeLocked();
+            }
+        }
+
+        private void closeLocked() {
+            if (closed) return;
+            closed = true;
+            pending.clear();
+            pendingBytes = 0;
+            notifyAll();
+
+            loop.connections.remove(this);
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Already gone
+            }
+
+            // Only reusable when no exchange can still be filling it
+            if (!inFlight) releaseStagingLocked();
+            staging = null;
+        }
+
+        // Returns the staging buffer to the shared pool between responses
+        private void releaseStagingLocked() {
+            if (staging == null) return;
+            if (pooledStaging.incrementAndGet() <= POOLED_STAGING_BUFFERS) {
+                staging.clear();
+                stagingPool.add(staging);
+            } else {
+                pooledStaging.decrementAndGet();
+            }
+            staging = null;
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Internals
+    // ------------------------------------------------------------
+
+    // Connections with a request in progress or a response still being written
+    private int busyConnections() {
+        int busy = 0;
+        for (EventLoop loop : loops) {
+            if (loop == null) continue;
+            for (Connection c : loop.connections) {
+                if (c.busy()) busy++;
+            }
+        }
+        return busy;
+    }
+
+    private NioExchange.Context contextFor(String path) {
+        if (path == null) return null;
+        for (NioExchange.Context context : contexts) {
+            if (path.startsWith(context.getPath())) return context;
+        }
+        return null;
+    }
+
+    private static int indexOfHeaderEnd(byte[] buf, int len) {
+        for (int i = 0; i + 3 < len; i++) {
+            if (buf[i] == '\r' && buf[i + 1] == '\n' && buf[i + 2] == '\r' && buf[i + 3] == '\n') return i;
+        }
+        return -1;
+    }
+
+    private static long remaining(ByteBuffer[] buffers) {
+        long total = 0;
+        for (ByteBuffer b : buffers) total += b.remaining();
+        return total;
+    }
+
+    private static ByteBuffer copyOf(ByteBuffer b) {
+        ByteBuffer copy = ByteBuffer.allocate(b.remaining());
+        copy.put(b).flip();
+        return copy;
+    }
+
+    private static final class BadRequest extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        BadRequest(int status, String reason) {
+            super(reason, null, false, false);
+            this.status = status;
+        }
+    }
+}
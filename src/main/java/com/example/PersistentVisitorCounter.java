@@ -0,0 +1,229 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// ------------------------------------------------------------
+// Visitor counter that survives restarts (memory-mapped file)
+// ------------------------------------------------------------
+//
+// Numbers are handed out from an in-memory AtomicLong. The file only
+// records a "ceiling": the highest number this or any earlier process may
+// have handed out. When the counter passes the ceiling, a new block of
+// blockSize numbers is reserved by writing a higher ceiling to the file,
+// so only one /greet call per block touches it.
+//
+// On startup counting resumes above the stored ceiling. Unused numbers in
+// the last block are skipped, but a number is never handed out twice.
+//
+// Crash safety:
+//   - Writes go to the mapped page cache, so a killed process (kill -9,
+//     /chaos crash) never loses a reservation.
+//   - A background thread force()s dirty pages to disk every flushMillis;
+//     reservations younger than that can be lost on power failure only.
+//   - The ceiling is written alternately into two checksummed slots, so a
+//     torn write leaves the previous slot intact.
+
+final class PersistentVisitorCounter implements VisitorSequence {
+
+    // File layout: magic(8) | slot A: ceiling(8) check(8) | slot B: ceiling(8) check(8)
+    private static final long MAGIC = 0x5649534954303031L;   // "VISIT001"
+    private static final int SLOT_A = 8;
+    private static final int SLOT_B = 24;
+    private static final int FILE_SIZE = 40;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final long blockSize;
+    private final ScheduledExecutorService flusher;
+
+    private final AtomicLong counter;
+
+    // Highest number that may be handed out without reserving again
+    private volatile long ceiling;
+
+    // Slot the next reservation goes to (the one not holding the latest ceiling)
+    private int nextSlot;
+    private volatile boolean dirty;
+
+    private final AtomicLong reservations = new AtomicLong(0);
+    private final AtomicLong flushes = new AtomicLong(0);
+
+    // ------------------------------------------------------------
+    // Construction
+    // ------------------------------------------------------------
+
+    // Null unless VISITOR_STORE_FILE is set
+    static PersistentVisitorCounter fromEnv() throws IOException {
+        String file = System.getenv("VISITOR_STORE_FILE");
+        if (file == null || file.isEmpty()) return null;
+
+        long block = Long.parseLong(System.getenv().getOrDefault("VISITOR_STORE_BLOCK", "1000"));
+        long flushMillis = Long.parseLong(System.getenv().getOrDefault("VISITOR_STORE_FLUSH_MILLIS", "1000"));
+        return open(Paths.get(file), block, flushMillis);
+    }
+
+    static PersistentVisitorCounter open(Path file, long blockSize, long flushMillis) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new PersistentVisitorCounter(channel, blockSize, flushMillis);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private PersistentVisitorCounter(FileChannel channel, long blockSize, long flushMillis) throws IOException {
+        this.channel = channel;
+        this.blockSize = Math.max(1, blockSize);
+        this.map = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+
+        long recovered = recover();
+        this.ceiling = recovered;
+        this.counter = new AtomicLong(recovered);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "visitor-store-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(10, flushMillis);
+        flusher.scheduleWithFixedDelay(this::flush, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // ------------------------------------------------------------
+    // Counting
+    // ------------------------------------------------------------
+
+    @Override
+    public long next() {
+        long n = counter.incrementAndGet();
+        if (n <= ceiling) return n;
+
+        synchronized (this) {
+            if (n > ceiling) reserveThrough(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long reserve(int count) {
+        long first = counter.getAndAdd(count) + 1;
+        long last = first + count - 1;
+        if (last <= ceiling) return first;
+
+        // reserveThrough() extends the ceiling in whole blocks, so large ranges are covered too
+        synchronized (this) {
+            if (last > ceiling) reserveThrough(last);
+        }
+        return first;
+    }
+
+    // Last number handed out (0 before the first)
+    long current() {
+        return counter.get();
+    }
+
+    long ceiling() {
+        return ceiling;
+    }
+
+    // ------------------------------------------------------------
+    // Lifecycle
+    // ------------------------------------------------------------
+
+    // Writes dirty pages to disk; runs periodically on the flusher thread.
+    // Not synchronized: a reservation racing with force() stays dirty for the next run.
+    void flush() {
+        if (!dirty) return;
+        dirty = false;
+        map.force();
+        flushes.incrementAndGet();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        flush();
+        channel.close();
+    }
+
+    @Override
+    public void writeMetrics(MetricsWriter w) {
+        w.gauge("visitor_store_ceiling", ceiling);
+        w.counter("visitor_store_reservations_total", reservations.get());
+        w.counter("visitor_store_flushes_total", flushes.get());
+    }
+
+    // ------------------------------------------------------------
+    // Internals
+    // ------------------------------------------------------------
+
+    // Caller holds the monitor
+    private void reserveThrough(long n) {
+        long newCeiling = ceiling;
+        while (newCeiling < n) newCeiling += blockSize;
+
+        writeSlot(nextSlot, newCeiling);
+        nextSlot = nextSlot == SLOT_A ? SLOT_B : SLOT_A;
+
+        // Publish only after the reservation is in the mapped file
+        ceiling = newCeiling;
+        dirty = true;
+        reservations.incrementAndGet();
+    }
+
+    private long recover() {
+        if (map.getLong(0) != MAGIC) {
+            // New (or foreign) file: start from zero
+            map.putLong(SLOT_A, 0).putLong(SLOT_A + 8, check(0));
+            map.putLong(SLOT_B, 0).putLong(SLOT_B + 8, check(0));
+            map.putLong(0, MAGIC);
+            map.force();
+            nextSlot = SLOT_A;
+            return 0;
+        }
+
+        long a = readSlot(SLOT_A);
+        long b = readSlot(SLOT_B);
+        if (a < 0 && b < 0) {
+            throw new IllegalStateException("Visitor store is corrupt (both slots invalid)");
+        }
+
+        // Overwrite the older (or invalid) slot next
+        nextSlot = a >= b ? SLOT_B : SLOT_A;
+        return Math.max(a, b);
+    }
+
+    // Ceiling stored in a slot, or -1 if its checksum does not match
+    private long readSlot(int offset) {
+        long value = map.getLong(offset);
+        return map.getLong(offset + 8) == check(value) && value >= 0 ? value : -1;
+    }
+
+    private void writeSlot(int offset, long value) {
+        map.putLong(offset, value);
+        map.putLong(offset + 8, check(value));
+    }
+
+    private static long check(long value) {
+        return (value * 0x9E3779B97F4A7C15L) ^ MAGIC;
+    }
+}
@@ -0,0 +1,182 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// ------------------------------------------------------------
+// On-demand JFR recordings + sampled per-route CPU / allocation accounting
+// ------------------------------------------------------------
+//
+//   /debug/profile?seconds=30[&settings=profile|default]
+//
+// records the whole JVM for the given time (1..PROFILING_MAX_SECONDS) with
+// the built-in JFR settings ("profile": method sampling every 10-20ms, about
+// 2% overhead; "default": about 1%) and answers with the .jfr file, ready
+// for JDK Mission Control or `jfr print`. One recording at a time: a second
+// request gets 409. The handler holds its worker thread for the duration.
+//
+// Per-route accounting reads the request thread's CPU time and allocated
+// bytes (com.sun.management.ThreadMXBean) before and after the handler, for
+// a PROFILING_SAMPLE_RATE fraction of requests. Virtual threads report
+// neither and are skipped.
+//
+// Everything here is off unless PROFILING_ENABLED=true: /debug/profile
+// answers 404 and the request path pays one field read.
+
+final class Profiler {
+
+    private static final String[] SETTINGS = {"profile", "default"};
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // CPU time + allocation at the start of the sampled request on this thread
+    private static final ThreadLocal<long[]> SAMPLE_START = ThreadLocal.withInitial(() -> new long[2]);
+
+    private final boolean enabled;
+    private final int maxSeconds;
+    private final double sampleRate;
+
+    private final AtomicBoolean recording = new AtomicBoolean();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    // ------------------------------------------------------------
+    // Construction
+    // ------------------------------------------------------------
+
+    // Reads PROFILING_ENABLED (false), PROFILING_MAX_SECONDS (60) and PROFILING_SAMPLE_RATE (0.1)
+    static Profiler fromEnv() {
+        return new Profiler(
+                Boolean.parseBoolean(System.getenv().getOrDefault("PROFILING_ENABLED", "false")),
+                Integer.parseInt(System.getenv().getOrDefault("PROFILING_MAX_SECONDS", "60")),
+                Double.parseDouble(System.getenv().getOrDefault("PROFILING_SAMPLE_RATE", "0.1")));
+    }
+
+    Profiler(boolean enabled, int maxSeconds, double sampleRate) {
+        this.enabled = enabled;
+        this.maxSeconds = Math.max(1, maxSeconds);
+        this.sampleRate = enabled ? Math.max(0, Math.min(1, sampleRate)) : 0;
+    }
+
+    boolean enabled() {
+        return enabled;
+    }
+
+    // ------------------------------------------------------------
+    // Request path
+    // ------------------------------------------------------------
+
+    // True when this request is sampled; pair with finish() on the same thread
+    boolean begin() {
+        if (sampleRate <= 0) return false;
+        if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) return false;
+
+        long cpu = THREADS.getCurrentThreadCpuTime();
+        long allocated = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        if (cpu < 0 || allocated < 0) return false;
+
+        long[] start = SAMPLE_START.get();
+        start[0] = cpu;
+        start[1] = allocated;
+        return true;
+    }
+
+    void finish(RouteStats stats) {
+        long[] start = SAMPLE_START.get();
+        stats.recordResources(
+                THREADS.getCurrentThreadCpuTime() - start[0],
+                THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - start[1]);
+    }
+
+    // ------------------------------------------------------------
+    // Recordings (/debug/profile)
+    // ------------------------------------------------------------
+
+    // Records for the given seconds and returns the dump (the caller deletes it).
+    // IllegalArgumentException for bad parameters, IllegalStateException while
+    // another recording runs.
+    Path record(String seconds, String settings) throws IOException, InterruptedException {
+        int duration = parseSeconds(seconds);
+        Configuration configuration = configuration(settings);
+
+        if (!recording.compareAndSet(false, true)) {
+            rejected.increment();
+            throw new IllegalStateException("A recording is already running");
+        }
+        try (Recording r = new Recording(configuration)) {
+            r.setName("debug-profile");
+            r.setToDisk(true);
+            r.start();
+            try {
+                Thread.sleep(duration * 1000L);
+            } finally {
+                r.stop();
+            }
+
+            Path file = Files.createTempFile("profile-", ".jfr");
+            try {
+                r.dump(file);
+            } catch (IOException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+            completed.increment();
+            return file;
+        } finally {
+            recording.set(false);
+        }
+    }
+
+    private int parseSeconds(String value) {
+        int seconds;
+        try {
+            seconds = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("seconds must be a number, got '" + value + "'");
+        }
+        if (seconds < 1 || seconds > maxSeconds) {
+            throw new IllegalArgumentException("seconds must be between 1 and " + maxSeconds);
+        }
+        return seconds;
+    }
+
+    private static Configuration configuration(String name) throws IOException {
+        for (String known : SETTINGS) {
+            if (!known.equals(name)) continue;
+            try {
+                return Configuration.getConfiguration(name);
+            } catch (ParseException e) {
+                throw new IOException("Bad JFR configuration " + name, e);
+            }
+        }
+        throw new IllegalArgumentException("settings must be one of profile, default");
+    }
+
+    // ------------------------------------------------------------
+    // Metrics
+    // ------------------------------------------------------------
+
+    void writeMetrics(MetricsWriter w) {
+        w.gauge("profiling_enabled", enabled ? 1 : 0);
+        if (!enabled) return;
+
+        w.gauge("profiling_recording_active", recording.get() ? 1 : 0);
+        w.counter("profiling_recordings_total")
+                .sample("profiling_recordings_total", "result", "completed", completed.sum())
+                .sample("profiling_recordings_total", "result", "rejected", rejected.sum());
+    }
+}
@@ -0,0 +1,103 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Substring-free query string scanning
+// ------------------------------------------------------------
+//
+// Mirrors App.queryParam / App.queryParamDecoded (split on '&', then on the
+// first '=', first match wins) but works on index ranges of the original
+// query instead of creating String[] and substrings.
+
+final class QueryString {
+
+    // Returned by valueRange() when the key is absent
+    static final long NOT_FOUND = -1L;
+
+    private QueryString() {
+    }
+
+    // ------------------------------------------------------------
+    // Lookup
+    // ------------------------------------------------------------
+
+    // Packed [start, end) of the raw value for key, or NOT_FOUND
+    static long valueRange(String query, String key) {
+        if (query == null) return NOT_FOUND;
+
+        int n = query.length();
+        int partStart = 0;
+        while (partStart <= n) {
+            int partEnd = query.indexOf('&', partStart);
+            if (partEnd < 0) partEnd = n;
+
+            // Only inside this part: an unbounded indexOf('=') would rescan the
+            // rest of the query for every '='-less part ("&&&&...": O(n^2))
+            int eq = partStart;
+            while (eq < partEnd && query.charAt(eq) != '=') eq++;
+            if (eq < partEnd
+                    && eq - partStart == key.length()
+                    && query.regionMatches(partStart, key, 0, key.length())) {
+                return pack(eq + 1, partEnd);
+            }
+            partStart = partEnd + 1;
+        }
+        return NOT_FOUND;
+    }
+
+    static int start(long range) {
+        return (int) (range >>> 32);
+    }
+
+    static int end(long range) {
+        return (int) range;
+    }
+
+    // Case-insensitive comparison of a value range against a constant
+    static boolean equalsIgnoreCase(String query, long range, String expected) {
+        int from = start(range);
+        return end(range) - from == expected.length()
+                && query.regionMatches(true, from, expected, 0, expected.length());
+    }
+
+    // ------------------------------------------------------------
+    // Decoding
+    // ------------------------------------------------------------
+
+    // URL-decodes [from, to) straight into the sink as UTF-8.
+    // Returns false (sink untouched) when the range is malformed or
+    // percent-decodes to non-ASCII bytes; callers then fall back to URLDecoder.
+    static boolean appendDecoded(ByteSink sink, String query, int from, int to) {
+        // Validate first so a failure never leaves partial output behind
+        for (int i = from; i < to; i++) {
+            if (query.charAt(i) == '%') {
+                if (i + 2 >= to) return false;
+                int hi = Character.digit(query.charAt(i + 1), 16);
+                int lo = Character.digit(query.charAt(i + 2), 16);
+                if (hi < 0 || lo < 0 || hi >= 8) return false;
+                i += 2;
+            }
+        }
+
+        int runStart = from;
+        for (int i = from; i < to; i++) {
+            char c = query.charAt(i);
+            if (c != '+' && c != '%') continue;
+
+            sink.appendUtf8(query, runStart, i);
+            if (c == '+') {
+                sink.appendByte(' ');
+            } else {
+                sink.appendByte(Character.digit(query.charAt(i + 1), 16) * 16
+                        + Character.digit(query.charAt(i + 2), 16));
+                i += 2;
+            }
+            runStart = i + 1;
+        }
+        sink.appendUtf8(query, runStart, to);
+        return true;
+    }
+
+    private static long pack(int start, int end) {
+        return ((long) start << 32) | (end & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+// ------------------------------------------------------------
+// Request counters with bounded path labels
+// ------------------------------------------------------------
+//
+// Counters are LongAdders, so concurrent request threads update separate
+// cells instead of CASing one shared cache line.
+//
+// Raw request paths are never used as labels: a path is mapped to the
+// route context that serves it ("/greet", "/metrics", ...) and anything
+// else lands in the "other" bucket. The number of labels is capped
+// (METRICS_MAX_PATH_LABELS); labels past the cap also go to "other".
+
+final class RequestCounters {
+
+    static final String OVERFLOW_LABEL = "other";
+
+    private final int maxLabels;
+
+    private final LongAdder total = new LongAdder();
+
+    private final Map<String, LongAdder> byLabel = new ConcurrentHashMap<>();
+    private final LongAdder overflow = new LongAdder();
+
+    // Registered contexts, longest first (same precedence as HttpServer)
+    private final CopyOnWriteArrayList<String> contexts = new CopyOnWriteArrayList<>();
+
+    static RequestCounters fromEnv() {
+        return new RequestCounters(Integer.parseInt(
+                System.getenv().getOrDefault("METRICS_MAX_PATH_LABELS", "64")));
+    }
+
+    RequestCounters(int maxLabels) {
+        this.maxLabels = Math.max(0, maxLabels);
+    }
+
+    // ------------------------------------------------------------
+    // Registration
+    // ------------------------------------------------------------
+
+    // Called once per route at startup
+    synchronized void registerRoute(String context) {
+        if (contexts.contains(context)) return;
+
+        int i = 0;
+        while (i < contexts.size() && contexts.get(i).length() >= context.length()) i++;
+        contexts.add(i, context);
+
+        if (byLabel.size() < maxLabels) byLabel.putIfAbsent(context, new LongAdder());
+    }
+
+    // ------------------------------------------------------------
+    // Recording
+    // ------------------------------------------------------------
+
+    void record(String path) {
+        total.increment();
+        counterFor(labelFor(path)).increment();
+    }
+
+    // Route context for a request path, or OVERFLOW_LABEL.
+    // Root only matches "/" itself, other contexts also match sub-paths.
+    String labelFor(String path) {
+        for (String context : contexts) {
+            if (path.equals(context)) return context;
+            if (!"/".equals(context)
+                    && path.startsWith(context)
+                    && path.length() > context.length()
+                    && path.charAt(context.length()) == '/') {
+                return context;
+            }
+        }
+        return OVERFLOW_LABEL;
+    }
+
+    private LongAdder counterFor(String label) {
+        LongAdder counter = byLabel.get(label);
+        if (counter != null) return counter;
+        if (OVERFLOW_LABEL.equals(label) || byLabel.size() >= maxLabels) return overflow;
+
+        // Only reachable for a route registered after the cap was hit; re-check under the map's lock
+        return byLabel.computeIfAbsent(label, k -> byLabel.size() >= maxLabels ? overflow : new LongAdder());
+    }
+
+    // ------------------------------------------------------------
+    // Reading
+    // ------------------------------------------------------------
+
+    long total() {
+        return total.sum();
+    }
+
+    long count(String label) {
+        if (OVERFLOW_LABEL.equals(label)) return overflow.sum();
+        LongAdder counter = byLabel.get(label);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    int labelCount() {
+        return byLabel.size();
+    }
+
+    void writeMetrics(MetricsWriter w) {
+        w.counter("requests_by_path");
+        for (Map.Entry<String, LongAdder> e : byLabel.entrySet()) {
+            if (e.getValue() == overflow) continue;
+            w.sample("requests_by_path", "path", e.getKey(), e.getValue().sum());
+        }
+        w.sample("requests_by_path", "path", OVERFLOW_LABEL, overflow.sum());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import java.util.concurrent.atomic.LongAdder;
+
+// ------------------------------------------------------------
+// Per-route latency histogram + in-flight gauge (+ sampled CPU / allocation)
+// ------------------------------------------------------------
+
+final class RouteStats {
+
+    private final String route;
+    // Allocated on the first finished request, keeping route registration cheap at startup
+    private final Lazy<LatencyHistogram> latency = Lazy.of(LatencyHistogram::new);
+
+    // Incremented/decremented around every request; the sum is the gauge
+    private final LongAdder inFlight = new LongAdder();
+
+    // Totals over the requests sampled by the Profiler (PROFILING_SAMPLE_RATE)
+    private final LongAdder resourceSamples = new LongAdder();
+    private final LongAdder cpuNanos = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    RouteStats(String route) {
+        this.route = route;
+    }
+
+    // Returns the start timestamp to pass to finish()
+    long begin() {
+        inFlight.increment();
+        return System.nanoTime();
+    }
+
+    void finish(long startNanos) {
+        latency.get().recordNanos(System.nanoTime() - startNanos);
+        inFlight.decrement();
+    }
+
+    void recordResources(long cpuNanos, long allocatedBytes) {
+        resourceSamples.increment();
+        this.cpuNanos.add(Math.max(0, cpuNanos));
+        this.allocatedBytes.add(Math.max(0, allocatedBytes));
+    }
+
+    String route() {
+        return route;
+    }
+
+    LatencyHistogram latency() {
+        return latency.get();
+    }
+
+    long inFlight() {
+        return inFlight.sum();
+    }
+
+    long resourceSamples() {
+        return resourceSamples.sum();
+    }
+
+    long cpuNanos() {
+        return cpuNanos.sum();
+    }
+
+    long allocatedBytes() {
+        return allocatedBytes.sum();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// ------------------------------------------------------------
+// Lock-free token bucket
+// ------------------------------------------------------------
+//
+// The whole state is one AtomicLong, updated with a single CAS:
+//   bits 63..24  time of the last refill (milliseconds since the bucket's epoch)
+//   bits 23..0   tokens, fixed point with 8 fractional bits
+// so the burst is capped at MAX_BURST tokens and the clock at ~34 years.
+//
+// Refill is lazy: each acquire adds rate * elapsed tokens (up to the burst).
+// Time only advances when at least 1/256 token was added, so slow rates
+// accumulate instead of being rounded away.
+
+final class TokenBucket {
+
+    static final int MAX_BURST = (1 << 16) - 1;
+
+    private static final int TOKEN_BITS = 24;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long ONE = 1 << 8;
+
+    private final double ratePerSecond;
+    private final long capacity;      // fixed point
+    private final long epochMillis;
+
+    private final AtomicLong state;
+
+    TokenBucket(double ratePerSecond, int burst, long nowMillis) {
+        this.ratePerSecond = Math.max(0.001, ratePerSecond);
+        this.capacity = Math.max(1, Math.min(MAX_BURST, burst)) * ONE;
+        this.epochMillis = nowMillis;
+        this.state = new AtomicLong(capacity);   // starts full, at time 0
+    }
+
+    // ------------------------------------------------------------
+    // Acquire
+    // ------------------------------------------------------------
+
+    // Takes one token; false when the bucket is empty
+    boolean tryAcquire(long nowMillis) {
+        long now = Math.max(0, nowMillis - epochMillis);
+        while (true) {
+            long s = state.get();
+            long refilled = refill(s, now);
+            long tokens = refilled & TOKEN_MASK;
+
+            if (tokens < ONE) return false;
+            if (state.compareAndSet(s, refilled - ONE)) return true;
+        }
+    }
+
+    // Whole seconds until one token is available (at least 1, for Retry-After)
+    int secondsUntilToken(long nowMillis) {
+        long tokens = refill(state.get(), Math.max(0, nowMillis - epochMillis)) & TOKEN_MASK;
+        if (tokens >= ONE) return 1;
+        // Less one unit: refill truncates up to 1/256 token
+        double seconds = (ONE - tokens - 1) / (ratePerSecond * ONE);
+        return (int) Math.max(1, Math.ceil(seconds));
+    }
+
+    // Milliseconds since the last refill; an idle bucket past its refill time is as good as new
+    long idleMillis(long nowMillis) {
+        return Math.max(0, nowMillis - epochMillis) - (state.get() >>> TOKEN_BITS);
+    }
+
+    // Time for an empty bucket to fill up completely
+    long refillMillis() {
+        return (long) Math.ceil(capacity / (ratePerSecond * ONE) * 1000);
+    }
+
+    // ------------------------------------------------------------
+    // Internals
+    // ------------------------------------------------------------
+
+    // State after a lazy refill at time now. A full bucket just moves its clock
+    // forward, so it does not bank refill time while it cannot take more tokens.
+    private long refill(long s, long now) {
+        long last = s >>> TOKEN_BITS;
+        long tokens = s & TOKEN_MASK;
+        long elapsed = now - last;
+        if (elapsed <= 0) return s;
+
+        long added = (long) (elapsed * ratePerSecond * ONE / 1000);
+        if (added == 0 && tokens < capacity) return s;
+        return (now << TOKEN_BITS) | Math.min(capacity, tokens + added);
+    }
+}
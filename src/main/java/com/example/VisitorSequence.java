@@ -0,0 +1,50 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+// ------------------------------------------------------------
+// Source of /greet visitor numbers
+// ------------------------------------------------------------
+//
+// Implementations (picked by env in fromEnv()):
+//   LocalVisitorSequence      - in-memory, per process (default)
+//   PersistentVisitorCounter  - per process, survives restarts (VISITOR_STORE_FILE)
+//   LeasedVisitorSequence     - unique across processes/replicas sharing a
+//                               lease file (VISITOR_LEASE_FILE)
+//
+// Every implementation must hand out each number at most once; numbers
+// need not be contiguous or ordered across threads or instances, except
+// within a single reserve() range.
+
+interface VisitorSequence extends AutoCloseable {
+
+    long next();
+
+    // Claims count consecutive numbers at once and returns the first one
+    // (for /greet/batch); none of them is handed out by next() or another reserve()
+    long reserve(int count);
+
+    // Sequence-specific gauges/counters for /metrics
+    default void writeMetrics(MetricsWriter w) {
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    static VisitorSequence fromEnv() throws IOException {
+        String leaseFile = System.getenv("VISITOR_LEASE_FILE");
+        if (leaseFile != null && !leaseFile.isEmpty()) {
+            long leaseSize = Long.parseLong(System.getenv().getOrDefault("VISITOR_LEASE_SIZE", "1000"));
+            return LeasedVisitorSequence.open(Paths.get(leaseFile), leaseSize);
+        }
+
+        VisitorSequence persistent = PersistentVisitorCounter.fromEnv();
+        return persistent != null ? persistent : new LocalVisitorSequence();
+    }
+}
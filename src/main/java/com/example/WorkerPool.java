@@ -0,0 +1,219 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Imports
+// ------------------------------------------------------------
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// ------------------------------------------------------------
+// Bounded request executor for the HTTP server
+// ------------------------------------------------------------
+//
+// Two modes (WORKER_MODE):
+//   pool    - fixed worker threads in front of a bounded queue (default)
+//   virtual - one virtual thread per request, capped by a permit count
+//             (needs a JDK with Executors.newVirtualThreadPerTaskExecutor,
+//             otherwise falls back to "pool")
+//
+// When the pool is saturated the task is NOT dropped: it runs on the
+// submitting (dispatcher) thread with a "shedding" flag set, so the route
+// wrapper in App can answer 503 + Retry-After without doing any real work.
+
+final class WorkerPool implements Executor {
+
+    // Set while a rejected task runs on the dispatcher thread
+    private static final ThreadLocal<Boolean> SHEDDING =
+            ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final String mode;
+    private final int threads;
+    private final int queueCapacity;
+    private final int retryAfterSeconds;
+
+    // Pool mode backing executor (null in virtual mode)
+    private final ThreadPoolExecutor pool;
+
+    // Virtual mode backing executor + concurrency cap (null in pool mode)
+    private final ExecutorService virtualExecutor;
+    private final Semaphore virtualPermits;
+
+    // Gauges / counters exported on /metrics
+    private final AtomicInteger virtualActive = new AtomicInteger(0);
+    private final AtomicLong rejections = new AtomicLong(0);
+
+    // ------------------------------------------------------------
+    // Construction
+    // ------------------------------------------------------------
+
+    // Reads WORKER_MODE, WORKER_THREADS, WORKER_QUEUE_CAPACITY, WORKER_RETRY_AFTER_SECONDS
+    static WorkerPool fromEnv() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        String mode = System.getenv().getOrDefault("WORKER_MODE", "pool");
+        int threads = Integer.parseInt(
+                System.getenv().getOrDefault("WORKER_THREADS", String.valueOf(Math.max(4, cores * 2))));
+        int queueCapacity = Integer.parseInt(
+                System.getenv().getOrDefault("WORKER_QUEUE_CAPACITY", "256"));
+        int retryAfter = Integer.parseInt(
+                System.getenv().getOrDefault("WORKER_RETRY_AFTER_SECONDS", "1"));
+        return new WorkerPool(mode, threads, queueCapacity, retryAfter);
+    }
+
+    WorkerPool(String requestedMode, int threads, int queueCapacity, int retryAfterSeconds) {
+        this.threads = Math.max(1, threads);
+        this.queueCapacity = Math.max(0, queueCapacity);
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+
+        ExecutorService virtual = "virtual".equalsIgnoreCase(requestedMode)
+                ? newVirtualThreadExecutor()
+                : null;
+
+        if (virtual != null) {
+            this.mode = "virtual";
+            this.pool = null;
+            this.virtualExecutor = virtual;
+            // In virtual mode "threads + queue" is the in-flight ceiling
+            this.virtualPermits = new Semaphore(this.threads + this.queueCapacity);
+        } else {
+            if ("virtual".equalsIgnoreCase(requestedMode)) {
+                System.out.println("Virtual threads not available on this JDK; using pool mode");
+            }
+            this.mode = "pool";
+            this.virtualExecutor = null;
+            this.virtualPermits = null;
+
+            // SynchronousQueue semantics when capacity is 0, bounded FIFO otherwise
+            this.pool = new ThreadPoolExecutor(
+                    this.threads, this.threads,
+                    60, TimeUnit.SECONDS,
+                    this.queueCapacity == 0
+                            ? new SynchronousQueue<>()
+                            : new ArrayBlockingQueue<>(this.queueCapacity),
+                    namedDaemonThreads("http-worker-"),
+                    shedOnCaller());
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Executor
+    // ------------------------------------------------------------
+
+    @Override
+    public void execute(Runnable task) {
+        if (pool != null) {
+            pool.execute(task);
+            return;
+        }
+
+        if (!virtualPermits.tryAcquire()) {
+            shed(task);
+            return;
+        }
+        virtualExecutor.execute(() -> {
+            virtualActive.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                virtualActive.decrementAndGet();
+                virtualPermits.release();
+            }
+        });
+    }
+
+    // True while the current thread is running a rejected (shed) task
+    static boolean isShedding() {
+        return SHEDDING.get();
+    }
+
+    // Configured workers (in virtual mode, the concurrency that counts as "busy")
+    int threads() {
+        return threads;
+    }
+
+    int retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    void shutdown() {
+        if (pool != null) pool.shutdown();
+        if (virtualExecutor != null) virtualExecutor.shutdown();
+    }
+
+    // ------------------------------------------------------------
+    // Metrics
+    // ------------------------------------------------------------
+
+    void writeMetrics(MetricsWriter w) {
+        w.gauge("worker_pool_info").sample("worker_pool_info", "mode", mode, 1);
+        w.gauge("worker_pool_size", threads);
+        w.gauge("worker_active_threads", activeWorkers());
+        w.gauge("worker_queue_depth", queueDepth());
+        w.gauge("worker_queue_capacity", queueCapacity);
+        w.counter("worker_rejections_total", rejections.get());
+    }
+
+    int activeWorkers() {
+        return pool != null ? pool.getActiveCount() : virtualActive.get();
+    }
+
+    int queueDepth() {
+        if (pool != null) return pool.getQueue().size();
+        // Virtual threads never queue; report in-flight requests above the "threads" mark
+        return Math.max(0, virtualActive.get() - threads);
+    }
+
+    long rejections() {
+        return rejections.get();
+    }
+
+    // ------------------------------------------------------------
+    // Internals
+    // ------------------------------------------------------------
+
+    private RejectedExecutionHandler shedOnCaller() {
+        // Also covers a shut-down pool, so the connection is never left hanging
+        return (task, executor) -> shed(task);
+    }
+
+    // Runs the task on the caller thread with the shedding flag set
+    private void shed(Runnable task) {
+        rejections.incrementAndGet();
+        SHEDDING.set(Boolean.TRUE);
+        try {
+            task.run();
+        } finally {
+            SHEDDING.set(Boolean.FALSE);
+        }
+    }
+
+    private static ThreadFactory namedDaemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger(0);
+        return r -> {
+            Thread t = new Thread(r, prefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    // Looked up reflectively so the code still compiles and runs on Java 11
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = java.util.concurrent.Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (Exception | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Unit tests for the asynchronous access log (JUnit 5)
+// ------------------------------------------------------------
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccessLogTest {
+
+    // ------------------------------------------------------------
+    // Test: one JSON line per record, in order, optional fields only when known
+    // ------------------------------------------------------------
+    @Test
+    public void writesOneJsonLinePerRecord() {
+
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AccessLog log = new AccessLog(16, 1.0, out);
+
+        // Act
+        log.offer("GET", "/greet", "name=Ann&mode=Pirate", 200, 312, 42, 1_234_567);
+        log.offer("GET", "/a\"b", null, 404, -1, -1, 5_000);
+        log.close();
+
+        // Assert
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"ts\":\""), lines[0]);
+        assertTrue(lines[0].endsWith("\"method\":\"GET\",\"path\":\"/greet\",\"status\":200,\"bytes\":312,"
+                + "\"latency_ms\":1.234,\"mode\":\"Pirate\",\"visitor\":42}"), lines[0]);
+        assertTrue(lines[1].endsWith("\"path\":\"/a\\\"b\",\"status\":404,\"latency_ms\":0.005}"), lines[1]);
+        assertEquals(2, log.written());
+    }
+
+    // ------------------------------------------------------------
+    // Test: a full ring drops (and counts) instead of blocking, then recovers
+    // ------------------------------------------------------------
+    @Test
+    public void dropsWhenFullAndRecovers() {
+
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AccessLog log = new AccessLog(4, 1.0, out);
+
+        // Act: nothing drains, so only the first 4 fit
+        int accepted = 0;
+        for (int i = 0; i < 6; i++) {
+            if (log.offer("GET", "/r" + i, null, 200, 0, -1, 0)) accepted++;
+        }
+        log.drain();
+        boolean acceptedAfterDrain = log.offer("GET", "/after", null, 200, 0, -1, 0);
+        log.close();
+
+        // Assert
+        assertEquals(4, accepted);
+        assertEquals(2, log.dropped());
+        assertTrue(acceptedAfterDrain);
+        String text = out.toString(StandardCharsets.UTF_8);
+        assertTrue(text.contains("/r3") && !text.contains("/r4") && text.contains("/after"), text);
+    }
+
+    // ------------------------------------------------------------
+    // Test: sampling never drops server errors
+    // ------------------------------------------------------------
+    @Test
+    public void samplingKeepsServerErrors() throws Exception {
+
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AccessLog log = new AccessLog(16, 0.0, out);
+
+        // Act: record real exchanges, the way the route wrapper in App does
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", ex -> {
+            long start = System.nanoTime();
+            log.begin();
+            int status = ex.getRequestURI().getPath().equals("/fail") ? 503 : 200;
+            ex.sendResponseHeaders(status, -1);
+            ex.close();
+            log.record(ex, start);
+        });
+        server.start();
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        try {
+            for (String path : new String[]{"/ok", "/fail", "/ok"}) {
+                HttpURLConnection conn = (HttpURLConnection) new URL(base + path).openConnection();
+                conn.getResponseCode();
+                conn.disconnect();
+            }
+        } finally {
+            server.stop(0);
+        }
+        log.close();
+
+        // Assert
+        String text = out.toString(StandardCharsets.UTF_8);
+        assertEquals(1, text.split("\n").length, text);
+        assertTrue(text.contains("\"path\":\"/fail\",\"status\":503"), text);
+    }
+
+    // ------------------------------------------------------------
+    // Test: concurrent producers, live drainer: every record written or counted
+    // ------------------------------------------------------------
+    @Test
+    public void everyRecordIsWrittenOrCountedAsDropped() throws Exception {
+
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AccessLog log = new AccessLog(256, 1.0, out);
+        log.start();
+        int threads = 4;
+        int perThread = 20_000;
+
+        // Act
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            producers.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) log.offer("GET", "/t" + id, null, 200, i, i, 1000);
+            }));
+        }
+        producers.forEach(Thread::start);
+        for (Thread p : producers) p.join();
+        log.close();
+
+        // Assert
+        long lines = out.toString(StandardCharsets.UTF_8).lines().count();
+        assertEquals(lines, log.written());
+        assertEquals(threads * perThread, log.written() + log.dropped());
+        assertTrue(log.written() > 0);
+    }
+
+    // ------------------------------------------------------------
+    // Test: files rotate between whole batches, keeping maxFiles old ones
+    // ------------------------------------------------------------
+    @Test
+    public void rotatesFiles(@TempDir Path dir) throws Exception {
+
+        // Arrange
+        Path file = dir.resolve("access.log");
+        AccessLog log = new AccessLog(16, 1.0, new AccessLog.RotatingFile(file, 300, 2));
+
+        // Act: ~150 bytes per line, one drain per line
+        for (int i = 0; i < 10; i++) {
+            log.offer("GET", "/r" + i, null, 200, 0, -1, 0);
+            log.drain();
+        }
+        log.close();
+
+        // Assert
+        assertTrue(Files.exists(file));
+        assertTrue(Files.exists(dir.resolve("access.log.1")));
+        assertTrue(Files.exists(dir.resolve("access.log.2")));
+        assertFalse(Files.exists(dir.resolve("access.log.3")));
+        assertTrue(Files.readString(file).contains("/r9"));
+        for (String line : Files.readAllLines(dir.resolve("access.log.1"))) {
+            assertTrue(line.startsWith("{") && line.endsWith("}"), line);
+        }
+    }
+}
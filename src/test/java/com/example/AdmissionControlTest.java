@@ -0,0 +1,212 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Unit tests for token buckets, lanes and the adaptive limit (JUnit 5)
+// ------------------------------------------------------------
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControlTest {
+
+    // ------------------------------------------------------------
+    // Test: a bucket allows its burst, then refills at its rate
+    // ------------------------------------------------------------
+    @Test
+    public void tokenBucketAllowsBurstThenRefills() {
+
+        // Arrange: 10 tokens/s, burst 5
+        TokenBucket bucket = new TokenBucket(10, 5, 1_000);
+
+        // Act + Assert: burst
+        for (int i = 0; i < 5; i++) assertTrue(bucket.tryAcquire(1_000), "Burst token " + i);
+        assertFalse(bucket.tryAcquire(1_000), "Burst exhausted");
+        assertEquals(1, bucket.secondsUntilToken(1_000));
+
+        // 100ms later exactly one token is back; refills accumulate across small steps
+        assertTrue(bucket.tryAcquire(1_100));
+        assertFalse(bucket.tryAcquire(1_100));
+        for (long t = 1_101; t < 1_200; t++) bucket.tryAcquire(t);
+        assertFalse(bucket.tryAcquire(1_199));
+        assertTrue(bucket.tryAcquire(1_200));
+
+        // A long idle period never overfills
+        for (int i = 0; i < 5; i++) assertTrue(bucket.tryAcquire(60_000));
+        assertFalse(bucket.tryAcquire(60_000));
+    }
+
+    // ------------------------------------------------------------
+    // Test: slow rates report a matching Retry-After
+    // ------------------------------------------------------------
+    @Test
+    public void slowBucketReportsRetryAfter() {
+        TokenBucket bucket = new TokenBucket(0.2, 1, 0);
+
+        assertTrue(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(1_000));
+        assertEquals(4, bucket.secondsUntilToken(1_000), "One token per 5s, 1s already waited");
+        assertTrue(bucket.tryAcquire(5_000));
+    }
+
+    // ------------------------------------------------------------
+    // Test: clients are limited separately; probes are never limited
+    // ------------------------------------------------------------
+    @Test
+    public void clientsAreLimitedIndependently() {
+
+        // Arrange: 1 req/s, burst 2, per client
+        AdmissionControl admission = new AdmissionControl(
+                1, 2, 100, 60_000, Collections.emptyMap(), null, false);
+        AdmissionControl.Route greet = admission.register("/greet");
+        AdmissionControl.Route healthz = admission.register("/healthz");
+
+        // Act + Assert
+        assertEquals(AdmissionControl.ADMITTED, greet.admit("10.0.0.1"));
+        assertEquals(AdmissionControl.ADMITTED, greet.admit("10.0.0.1"));
+        assertTrue(greet.admit("10.0.0.1") > 0, "Third request in the same second is limited");
+        assertEquals(AdmissionControl.ADMITTED, greet.admit("10.0.0.2"), "Other clients are unaffected");
+
+        assertTrue(healthz.critical());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(AdmissionControl.ADMITTED, healthz.admit("10.0.0.1"), "Probes are never limited");
+        }
+
+        String metrics = render(admission);
+        assertTrue(metrics.contains("admission_rejections_total{reason=\"client\"} 1\n"), metrics);
+        assertTrue(metrics.contains("admission_clients 2\n"), metrics);
+    }
+
+    // ------------------------------------------------------------
+    // Test: the client map is bounded; extra clients share the overflow bucket
+    // ------------------------------------------------------------
+    @Test
+    public void clientMapIsBounded() {
+
+        // Arrange: room for 3 clients, burst 1
+        AdmissionControl admission = new AdmissionControl(
+                1, 1, 3, 0, Collections.emptyMap(), null, false);
+        AdmissionControl.Route greet = admission.register("/greet");
+
+        // Act
+        for (int i = 0; i < 3; i++) greet.admit("10.0.0." + i);
+        int first = greet.admit("10.0.1.1");
+        int second = greet.admit("10.0.1.2");
+
+        // Assert: buckets are not idle yet, so new clients share one overflow bucket
+        assertEquals(3, admission.clientCount());
+        assertEquals(AdmissionControl.ADMITTED, first);
+        assertTrue(second > 0, "Overflow clients share a single bucket");
+    }
+
+    // ------------------------------------------------------------
+    // Test: per-route limits apply across all clients
+    // ------------------------------------------------------------
+    @Test
+    public void routeLimitAppliesToAllClients() {
+        AdmissionControl admission = new AdmissionControl(
+                0, 1, 100, 0, AdmissionControl.parseRouteLimits("/chaos=1:2, /greet=100"), null, false);
+        AdmissionControl.Route chaos = admission.register("/chaos");
+
+        assertEquals(AdmissionControl.ADMITTED, chaos.admit("a"));
+        assertEquals(AdmissionControl.ADMITTED, chaos.admit("b"));
+        assertEquals(1, chaos.admit("c"));
+        assertEquals(AdmissionControl.ADMITTED, admission.register("/greet").admit("c"));
+    }
+
+    // ------------------------------------------------------------
+    // Test: the concurrency limit shrinks when latency inflates and caps in-flight work
+    // ------------------------------------------------------------
+    @Test
+    public void concurrencyLimitFollowsLatency() {
+
+        // Arrange
+        ConcurrencyLimit limit = new ConcurrencyLimit(2, 100);
+        long fast = TimeUnit.MICROSECONDS.toNanos(100);
+        long slow = TimeUnit.MILLISECONDS.toNanos(50);
+
+        // Act: a baseline at 100us, then requests 500x slower
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(fast);
+        }
+        assertEquals(100, limit.limit(), "Healthy latency keeps the maximum");
+
+        // 120 windows of sustained overload: the inflated latency must not become the baseline
+        int highest = 0;
+        for (int i = 0; i < 12_000; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(slow);
+            if (i >= 3000) highest = Math.max(highest, limit.limit());
+        }
+
+        // Assert
+        int shrunk = limit.limit();
+        assertTrue(highest < 15, "Limit should stay down under latency inflation: " + highest);
+        for (int i = 0; i < shrunk; i++) assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire(), "In-flight work is capped at the limit");
+    }
+
+    // ------------------------------------------------------------
+    // Test: a lasting latency shift eventually becomes the new baseline
+    // ------------------------------------------------------------
+    @Test
+    public void concurrencyLimitAdoptsLastingShift() {
+
+        // Arrange
+        ConcurrencyLimit limit = new ConcurrencyLimit(2, 100);
+        long fast = TimeUnit.MICROSECONDS.toNanos(100);
+        long slow = TimeUnit.MILLISECONDS.toNanos(50);
+        for (int i = 0; i < 1000; i++) {
+            limit.tryAcquire();
+            limit.release(fast);
+        }
+
+        // Act: 1000 windows at the slower latency
+        for (int i = 0; i < 100_000; i++) {
+            limit.tryAcquire();
+            limit.release(slow);
+        }
+
+        // Assert
+        assertEquals(100, limit.limit(), "The baseline should have drifted up to the new latency");
+    }
+
+    // ------------------------------------------------------------
+    // Test: long-running routes bypass the concurrency cap and its latency window
+    // ------------------------------------------------------------
+    @Test
+    public void longRunningRoutesSkipConcurrencyLimit() {
+
+        // Arrange
+        ConcurrencyLimit limit = new ConcurrencyLimit(1, 1);
+        AdmissionControl admission = new AdmissionControl(
+                0, 1, 100, 0, AdmissionControl.parseRouteLimits("/debug/profile=1:1"), limit, false);
+        AdmissionControl.Route greet = admission.register("/greet");
+        AdmissionControl.Route profile = admission.register("/debug/profile");
+
+        // Act: /greet holds the only slot
+        int greetFirst = greet.admit("a");
+        int greetSecond = greet.admit("a");
+        int profileFirst = profile.admit("a");
+        int profileSecond = profile.admit("a");
+        profile.release(TimeUnit.SECONDS.toNanos(60));
+
+        // Assert
+        assertEquals(AdmissionControl.ADMITTED, greetFirst);
+        assertEquals(1, greetSecond, "Concurrency cap applies to normal routes");
+        assertEquals(AdmissionControl.ADMITTED, profileFirst);
+        assertEquals(1, profileSecond, "Route token bucket still applies");
+        assertEquals(1, limit.inFlight(), "Recording took no concurrency slot");
+    }
+
+    private static String render(AdmissionControl admission) {
+        MetricsWriter w = MetricsWriter.buffered(MetricsWriter.Format.PROMETHEUS);
+        admission.writeMetrics(w);
+        w.finish();
+        return w.text();
+    }
+}
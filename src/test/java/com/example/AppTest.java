@@ -5,6 +5,20 @@ package com.example;
 // ------------------------------------------------------------
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -82,4 +96,278 @@ public class AppTest {
                 "Greeting should include instance ID"
         );
     }
-}
\ No newline at end of file
+
+    // ------------------------------------------------------------
+    // Test: templated /version payload keeps the original JSON shape
+    // ------------------------------------------------------------
+    @Test
+    public void versionJsonRendersTemplateFields() {
+
+        // Arrange
+        App app = new App();
+
+        // Act
+        String json = app.versionJson();
+
+        // Assert: cached prefix, per-request uptime and mode
+        assertTrue(json.startsWith("{\"service\":\""), "Version JSON should start with the service field");
+        assertTrue(json.matches("(?s).*\"uptimeSeconds\":\\d+,.*"), "Uptime should be rendered as a number");
+        assertTrue(json.endsWith(",\"mode\":\"normal\"}\n"), "Mode should be the last field");
+    }
+
+    // ------------------------------------------------------------
+    // Test: every route answers the same on both HTTP engines
+    // ------------------------------------------------------------
+    @ParameterizedTest
+    @ValueSource(strings = {"jdk", "nio"})
+    public void routesBehaveTheSameOnEachEngine(String engine) throws Exception {
+
+        // Arrange
+        App app = new App();
+        app.start(0, engine);
+        try {
+            HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+            // Act + Assert: probes, dashboard, version, metrics
+            assertEquals("ok\n", get(http, app, "/healthz").body());
+            assertEquals("ready\n", get(http, app, "/readyz").body());
+            assertTrue(get(http, app, "/").body().contains("<html"), "Dashboard should be HTML");
+            assertTrue(get(http, app, "/version").body().endsWith(",\"mode\":\"normal\"}\n"));
+
+            // Greetings keep counting across requests on one connection
+            HttpResponse<String> first = get(http, app, "/greet?name=John");
+            HttpResponse<String> second = get(http, app, "/greet?name=John&mode=pirate");
+            assertEquals(200, first.statusCode());
+            assertTrue(first.body().contains("Hello, John"), first.body());
+            assertTrue(first.body().contains("You are visitor #1\n"), first.body());
+            assertTrue(second.body().contains("Ahoy, John"), second.body());
+            assertTrue(second.body().contains("You are visitor #2\n"), second.body());
+
+            // Chaos mode round trip
+            assertEquals(503, get(http, app, "/chaos").statusCode());
+            assertEquals(200, get(http, app, "/chaos?action=enable").statusCode());
+            assertTrue(get(http, app, "/version").body().endsWith(",\"mode\":\"chaos\"}\n"));
+            assertEquals(200, get(http, app, "/chaos?action=disable").statusCode());
+
+            // Longest matching context wins
+            assertEquals(405, get(http, app, "/greet/batch").statusCode());
+
+            String metrics = get(http, app, "/metrics").body();
+            assertTrue(metrics.contains("requests_by_path{path=\"/greet\"} 2"), metrics);
+        } finally {
+            app.stop();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Test: cached bodies honour If-None-Match and gzip on both engines
+    // ------------------------------------------------------------
+    @ParameterizedTest
+    @ValueSource(strings = {"jdk", "nio"})
+    public void cachedResponsesSupportEtagAndGzip(String engine) throws Exception {
+
+        // Arrange
+        App app = new App();
+        app.start(0, engine);
+        try {
+            HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            URI root = URI.create("http://127.0.0.1:" + app.port() + "/");
+
+            // Act
+            HttpResponse<byte[]> plain = http.send(
+                    HttpRequest.newBuilder(root).build(), HttpResponse.BodyHandlers.ofByteArray());
+            String etag = plain.headers().firstValue("ETag").orElseThrow();
+            HttpResponse<byte[]> gzipped = http.send(
+                    HttpRequest.newBuilder(root).header("Accept-Encoding", "gzip").build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            String gzippedEtag = gzipped.headers().firstValue("ETag").orElseThrow();
+            HttpResponse<byte[]> notModified = http.send(
+                    HttpRequest.newBuilder(root).header("If-None-Match", etag).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            HttpResponse<byte[]> gzippedNotModified = http.send(
+                    HttpRequest.newBuilder(root).header("Accept-Encoding", "gzip")
+                            .header("If-None-Match", gzippedEtag).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            HttpResponse<byte[]> otherVariant = http.send(
+                    HttpRequest.newBuilder(root).header("Accept-Encoding", "gzip")
+                            .header("If-None-Match", etag).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+
+            // Assert
+            assertEquals(200, plain.statusCode());
+            assertEquals("gzip", gzipped.headers().firstValue("Content-Encoding").orElse(""));
+            assertTrue(gzipped.body().length < plain.body().length, "Gzipped body should be smaller");
+            assertNotEquals(etag, gzippedEtag, "Each content-coding needs its own strong ETag");
+            assertEquals(304, notModified.statusCode());
+            assertEquals(0, notModified.body().length);
+            assertEquals(304, gzippedNotModified.statusCode());
+            assertEquals("Accept-Encoding", gzippedNotModified.headers().firstValue("Vary").orElse(""));
+            assertEquals(200, otherVariant.statusCode(), "The identity tag must not validate the gzip body");
+            assertEquals("gzip", otherVariant.headers().firstValue("Content-Encoding").orElse(""));
+        } finally {
+            app.stop();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Test: gzip negotiation honours q-values ("gzip;q=0" refuses it)
+    // ------------------------------------------------------------
+    @Test
+    public void gzipNegotiationHonoursQValues() {
+
+        // Act + Assert
+        assertTrue(CachedResponse.acceptsGzip(List.of("gzip, deflate, br")));
+        assertTrue(CachedResponse.acceptsGzip(List.of("br;q=1.0, GZIP;q=0.5")));
+        assertTrue(CachedResponse.acceptsGzip(List.of("*")));
+        assertFalse(CachedResponse.acceptsGzip(null));
+        assertFalse(CachedResponse.acceptsGzip(List.of("gzip;q=0")));
+        assertFalse(CachedResponse.acceptsGzip(List.of("gzip; q=0.000, identity")));
+        assertFalse(CachedResponse.acceptsGzip(List.of("*;q=1, gzip;q=0")));
+        assertFalse(CachedResponse.acceptsGzip(List.of("deflate")));
+    }
+
+    // ------------------------------------------------------------
+    // Test: pipelined keep-alive requests are answered in order
+    // ------------------------------------------------------------
+    @ParameterizedTest
+    @ValueSource(strings = {"jdk", "nio"})
+    public void pipelinedRequestsAreAnsweredInOrder(String engine) throws Exception {
+
+        // Arrange
+        App app = new App();
+        app.start(0, engine);
+        try (Socket socket = new Socket("127.0.0.1", app.port())) {
+            socket.setSoTimeout(5000);
+            String request = "GET /healthz HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "GET /readyz HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+
+            // Act: both requests in one write, then read until the server closes
+            OutputStream out = socket.getOutputStream();
+            out.write(request.getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            String responses = new String(in.readAllBytes(), StandardCharsets.ISO_8859_1);
+
+            // Assert
+            int ok = responses.indexOf("\r\n\r\nok\n");
+            int ready = responses.indexOf("\r\n\r\nready\n");
+            assertTrue(ok > 0 && ready > ok, responses);
+        } finally {
+            app.stop();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Test: streamed bodies reach HTTP/1.0 clients close-delimited, not chunked
+    // ------------------------------------------------------------
+    @ParameterizedTest
+    @ValueSource(strings = {"jdk", "nio"})
+    public void streamedBodiesAreCloseDelimitedForHttp10(String engine) throws Exception {
+
+        // Arrange
+        App app = new App();
+        app.start(0, engine);
+        try (Socket socket = new Socket("127.0.0.1", app.port())) {
+            socket.setSoTimeout(5000);
+
+            // Act: read until the server closes
+            OutputStream out = socket.getOutputStream();
+            out.write("GET /metrics HTTP/1.0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            String response = new String(socket.getInputStream().readAllBytes(), StandardCharsets.ISO_8859_1);
+
+            // Assert
+            int headerEnd = response.indexOf("\r\n\r\n");
+            String head = response.substring(0, Math.max(0, headerEnd)).toLowerCase();
+            assertTrue(head.startsWith("http/1.1 200"), response);
+            assertFalse(head.contains("transfer-encoding"), head);
+            assertTrue(response.startsWith("# ", headerEnd + 4), response);
+            assertTrue(response.contains("\nrequests_total "), response);
+            assertTrue(response.contains("\njvm_threads_live "), response);
+        } finally {
+            app.stop();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Test: "Expect: 100-continue" is answered before the body is sent
+    // ------------------------------------------------------------
+    @ParameterizedTest
+    @ValueSource(strings = {"jdk", "nio"})
+    public void expectContinueIsAnswered(String engine) throws Exception {
+
+        // Arrange
+        App app = new App();
+        app.start(0, engine);
+        try (Socket socket = new Socket("127.0.0.1", app.port())) {
+            socket.setSoTimeout(5000);
+            byte[] body = "{\"name\":\"Ann\"}\n".getBytes(StandardCharsets.US_ASCII);
+            String head = "POST /greet/batch HTTP/1.1\r\nHost: localhost\r\nExpect: 100-continue\r\n"
+                    + "Content-Length: " + body.length + "\r\nConnection: close\r\n\r\n";
+
+            // Act: headers only, then wait for the go-ahead before sending the body
+            OutputStream out = socket.getOutputStream();
+            out.write(head.getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            String interim = readHead(in);
+            out.write(body);
+            out.flush();
+            String response = new String(in.readAllBytes(), StandardCharsets.ISO_8859_1);
+
+            // Assert
+            assertTrue(interim.startsWith("HTTP/1.1 100 "), interim);
+            assertTrue(response.startsWith("HTTP/1.1 200"), response);
+            assertTrue(response.contains("Ann"), response);
+        } finally {
+            app.stop();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Test: a started engine keeps the JVM alive (main() returns right after start)
+    // ------------------------------------------------------------
+    @ParameterizedTest
+    @ValueSource(strings = {"jdk", "nio"})
+    public void startedEngineKeepsJvmAlive(String engine) throws Exception {
+
+        // Arrange
+        Set<Thread> before = nonDaemonThreads();
+        App app = new App();
+
+        // Act
+        app.start(0, engine);
+        List<Thread> started = nonDaemonThreads().stream()
+                .filter(t -> !before.contains(t))
+                .collect(Collectors.toList());
+        app.stop();
+        for (Thread t : started) t.join(5000);
+
+        // Assert: at least one non-daemon server thread while running, none after stop
+        assertFalse(started.isEmpty(), engine + " engine runs on daemon threads only");
+        for (Thread t : started) assertFalse(t.isAlive(), t.getName() + " outlived stop()");
+    }
+
+    private static Set<Thread> nonDaemonThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.isAlive() && !t.isDaemon())
+                .collect(Collectors.toSet());
+    }
+
+    // Status line and headers, up to and including the blank line
+    private static String readHead(InputStream in) throws Exception {
+        StringBuilder head = new StringBuilder();
+        while (head.length() < 4 || head.lastIndexOf("\r\n\r\n") != head.length() - 4) {
+            int b = in.read();
+            if (b < 0) break;
+            head.append((char) b);
+        }
+        return head.toString();
+    }
+
+    private static HttpResponse<String> get(HttpClient http, App app, String path) throws Exception {
+        return http.send(
+                HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + app.port() + path)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,181 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Unit + HTTP tests for /chaos fault injection (JUnit 5)
+// ------------------------------------------------------------
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChaosFaultsTest {
+
+    // ------------------------------------------------------------
+    // Test: bad fault specs are rejected with a reason
+    // ------------------------------------------------------------
+    @Test
+    public void rejectsBadFaults() {
+
+        // Arrange
+        ChaosFaults faults = new ChaosFaults(60_000);
+
+        // Act + Assert
+        IllegalArgumentException unknown = assertThrows(IllegalArgumentException.class,
+                () -> faults.add("fault=meteor", Runnable::run, 4));
+        assertTrue(unknown.getMessage().contains("latency"), unknown.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> faults.add("fault=latency&percent=150", Runnable::run, 4));
+        assertThrows(IllegalArgumentException.class, () -> faults.add("fault=latency&dist=zipf", Runnable::run, 4));
+        assertThrows(IllegalArgumentException.class, () -> faults.add("fault=cpu&ms=abc", Runnable::run, 4));
+        assertFalse(faults.armed());
+    }
+
+    // ------------------------------------------------------------
+    // Test: latency hits only the scoped route, then expires with its TTL
+    // ------------------------------------------------------------
+    @Test
+    public void latencyIsScopedToRouteAndExpires() throws Exception {
+
+        // Arrange
+        App app = new App();
+        app.start(0, "jdk");
+        HttpClient http = HttpClient.newHttpClient();
+
+        try {
+            // Act
+            HttpResponse<String> injected = get(http, app,
+                    "/chaos?action=inject&fault=latency&route=%2Fgreet&ms=300&ttl=1");
+            long greetMillis = timed(http, app, "/greet?name=Ann");
+            long versionMillis = timed(http, app, "/version");
+            String metrics = get(http, app, "/metrics").body();
+
+            Thread.sleep(1100);
+            long expiredMillis = timed(http, app, "/greet?name=Ann");
+            String after = get(http, app, "/chaos?action=faults").body();
+
+            // Assert
+            assertEquals(200, injected.statusCode(), injected.body());
+            assertTrue(injected.body().startsWith("Injected latency fixed 300ms"), injected.body());
+            assertTrue(greetMillis >= 300, "greet took " + greetMillis + "ms");
+            assertTrue(versionMillis < 300, "version took " + versionMillis + "ms");
+            assertTrue(metrics.contains("chaos_faults_active{fault=\"latency\"} 1\n"), metrics);
+            assertTrue(metrics.contains("chaos_fault_injections_total{fault=\"latency\"} 1\n"), metrics);
+            assertTrue(expiredMillis < 300, "expired fault still applied: " + expiredMillis + "ms");
+            assertEquals("No faults active\n", after);
+        } finally {
+            app.stop();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Test: slow_write trickles cached (zero-copy on nio) bodies too
+    // ------------------------------------------------------------
+    @ParameterizedTest
+    @ValueSource(strings = {"jdk", "nio"})
+    public void slowWriteTricklesBody(String engine) throws Exception {
+
+        // Arrange
+        App app = new App();
+        app.start(0, engine);
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        try {
+            // Act: "ok\n" at 5 bytes/s, one byte every 200ms
+            get(http, app, "/chaos?action=inject&fault=slow_write&route=%2Fhealthz&bps=5");
+            long start = System.nanoTime();
+            HttpResponse<String> r = get(http, app, "/healthz");
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            HttpResponse<String> cleared = get(http, app, "/chaos?action=clear");
+
+            // Assert
+            assertEquals(200, r.statusCode());
+            assertEquals("ok\n", r.body());
+            assertTrue(millis >= 350, "body arrived in " + millis + "ms");
+            assertEquals("Cleared 1 fault(s)\n", cleared.body());
+        } finally {
+            app.stop();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Test: pool exhaustion parks workers until cleared
+    // ------------------------------------------------------------
+    @Test
+    public void poolExhaustionHoldsWorkersUntilCleared() throws Exception {
+
+        // Arrange
+        ChaosFaults faults = new ChaosFaults(60_000);
+        WorkerPool pool = new WorkerPool("pool", 3, 0, 1);
+
+        try {
+            // Act
+            faults.add("fault=pool_exhaustion&threads=2", pool, 3);
+            waitFor(() -> faults.heldThreads() == 2);
+            int active = pool.activeWorkers();
+            faults.clear();
+            waitFor(() -> faults.heldThreads() == 0 && pool.activeWorkers() == 0);
+
+            // Assert
+            assertEquals(2, active);
+            assertFalse(faults.armed());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Test: latency samples follow the distribution and respect max_ms
+    // ------------------------------------------------------------
+    @Test
+    public void latencyDistributionsAreCapped() {
+
+        // Arrange
+        ChaosFaults faults = new ChaosFaults(60_000);
+        ChaosFaults.Fault pareto = faults.add("fault=latency&dist=pareto&ms=10&max_ms=50", Runnable::run, 4);
+        ChaosFaults.Fault uniform = faults.add("fault=latency&dist=uniform&ms=10", Runnable::run, 4);
+
+        // Act
+        long paretoMax = 0;
+        long paretoSum = 0;
+        long uniformMax = 0;
+        for (int i = 0; i < 100_000; i++) {
+            long p = pareto.sampleLatencyMillis();
+            paretoMax = Math.max(paretoMax, p);
+            paretoSum += p;
+            uniformMax = Math.max(uniformMax, uniform.sampleLatencyMillis());
+        }
+
+        // Assert
+        assertEquals(50, paretoMax, "heavy tail reaches the cap");
+        assertTrue(paretoSum / 100_000.0 > 5 && paretoSum / 100_000.0 < 15, "mean " + paretoSum / 100_000.0);
+        assertTrue(uniformMax <= 20, "uniform max " + uniformMax);
+    }
+
+    // ------------------------------------------------------------
+    // Helpers
+    // ------------------------------------------------------------
+
+    private static HttpResponse<String> get(HttpClient http, App app, String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + app.port() + path)).build();
+        return http.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static long timed(HttpClient http, App app, String path) throws Exception {
+        long start = System.nanoTime();
+        assertEquals(200, get(http, app, path).statusCode());
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) Thread.sleep(5);
+        assertTrue(condition.getAsBoolean(), "condition not reached in 5s");
+    }
+}
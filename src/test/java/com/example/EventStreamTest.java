@@ -0,0 +1,154 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Unit + HTTP tests for the /events publisher (JUnit 5)
+// ------------------------------------------------------------
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventStreamTest {
+
+    // ------------------------------------------------------------
+    // Test: exposition lines are keyed by series, comments included
+    // ------------------------------------------------------------
+    @Test
+    public void parsesExpositionBySeries() {
+        Map<String, String> lines = EventStream.parseExposition(
+                "# TYPE requests_total counter\nrequests_total 5\nrequests_by_path{path=\"/a b\"} 2\n");
+
+        assertEquals(3, lines.size());
+        assertEquals("requests_total 5", lines.get("requests_total"));
+        assertEquals("requests_by_path{path=\"/a b\"} 2", lines.get("requests_by_path{path=\"/a b\"}"));
+        assertTrue(lines.containsKey("# TYPE requests_total"));
+    }
+
+    // ------------------------------------------------------------
+    // Test: a client gets the full state, then only what changed
+    // ------------------------------------------------------------
+    @Test
+    public void streamsFullStateThenDeltas() throws Exception {
+
+        // Arrange
+        AtomicLong value = new AtomicLong(1);
+        EventStream stream = new EventStream(50, 10, 16, 1,
+                () -> "{\"mode\":\"normal\"}",
+                () -> "# TYPE static gauge\nstatic 7\nchanging " + value.get() + "\n");
+        HttpServer server = serve(stream);
+
+        try (Socket socket = subscribe(server)) {
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+            // Act + Assert: full state
+            String first = readEvents(in, "data: changing 1");
+            assertTrue(first.contains("event: version\ndata: {\"mode\":\"normal\"}"), first);
+            assertTrue(first.contains("data: static 7"), first);
+
+            // Only the changed series, and no version event, follow
+            value.set(2);
+            String delta = readEvents(in, "data: changing 2");
+            assertFalse(delta.contains("static 7"), delta);
+            assertFalse(delta.contains("event: version"), delta);
+        } finally {
+            stream.stop();
+            server.stop(0);
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Test: a client that stops reading is evicted, others keep receiving
+    // ------------------------------------------------------------
+    @Test
+    public void slowConsumerIsEvicted() throws Exception {
+
+        // Arrange: ~256KB of changed lines every 10ms, two-event queues
+        AtomicLong tick = new AtomicLong();
+        EventStream stream = new EventStream(10, 10, 2, 2, () -> "{}", () -> {
+            StringBuilder sb = new StringBuilder();
+            long t = tick.incrementAndGet();
+            for (int i = 0; i < 8192; i++) sb.append("series_").append(i).append(' ').append(t).append('\n');
+            return sb.toString();
+        });
+        HttpServer server = serve(stream);
+
+        try (Socket stalled = new Socket()) {
+            stalled.setReceiveBufferSize(4096);
+            stalled.connect(server.getAddress());
+            sendRequest(stalled);
+
+            // Act: never read from "stalled"; wait for it to be dropped
+            long deadline = System.currentTimeMillis() + 20_000;
+            while (stream.clientCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+
+            // Assert
+            assertEquals(0, stream.clientCount(), "Stalled client should have been evicted");
+
+            try (Socket healthy = subscribe(server)) {
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(healthy.getInputStream(), StandardCharsets.UTF_8));
+                assertFalse(readEvents(in, "data: series_0 ").isEmpty(), "Writers should still be usable");
+            }
+        } finally {
+            stream.stop();
+            server.stop(0);
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Helpers
+    // ------------------------------------------------------------
+
+    private static HttpServer serve(EventStream stream) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/events", ex -> {
+            if (!stream.subscribe(ex)) {
+                ex.sendResponseHeaders(503, -1);
+                ex.close();
+            }
+        });
+        stream.start();
+        server.start();
+        return server;
+    }
+
+    private static Socket subscribe(HttpServer server) throws Exception {
+        Socket socket = new Socket();
+        socket.connect(server.getAddress());
+        socket.setSoTimeout(10_000);
+        sendRequest(socket);
+        return socket;
+    }
+
+    private static void sendRequest(Socket socket) throws Exception {
+        OutputStream out = socket.getOutputStream();
+        out.write("GET /events HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    // Reads (chunk framing included) until a line starting with marker, then to the end of that event
+    private static String readEvents(BufferedReader in, String marker) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        boolean found = false;
+        String line;
+        while ((line = in.readLine()) != null) {
+            sb.append(line).append('\n');
+            if (line.startsWith(marker)) found = true;
+            if (found && line.isEmpty()) return sb.toString();
+        }
+        throw new AssertionError("Stream ended before " + marker + ":\n" + sb);
+    }
+}
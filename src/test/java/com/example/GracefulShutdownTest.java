@@ -0,0 +1,186 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Integration test: graceful shutdown under load (JUnit 5)
+// ------------------------------------------------------------
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.net.ConnectException;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GracefulShutdownTest {
+
+    private static final int CLIENTS = 8;
+    private static final int BATCH_RECORDS = 5000;
+
+    // ------------------------------------------------------------
+    // Test: requests in flight when shutdown starts all complete
+    // ------------------------------------------------------------
+    //
+    // The clients behave like a Service in front of the pod: they send
+    // (slow batch and quick /greet) requests until /readyz fails, then stop
+    // routing here. Every request sent must come back complete.
+    @ParameterizedTest
+    @ValueSource(strings = {"jdk", "nio"})
+    public void drainsInFlightRequestsUnderLoad(String engine) throws Exception {
+
+        // Arrange
+        App app = new App(new Lifecycle(50, 10_000));
+        app.start(0, engine);
+        int port = app.port();
+        String base = "http://127.0.0.1:" + port;
+
+        StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < BATCH_RECORDS; i++) batch.append("{\"name\":\"n").append(i).append("\"}\n");
+        HttpRequest batchRequest = HttpRequest.newBuilder(URI.create(base + "/greet/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(batch.toString())).build();
+        HttpRequest greetRequest = HttpRequest.newBuilder(URI.create(base + "/greet?name=Ann")).build();
+
+        AtomicBoolean routable = new AtomicBoolean(true);
+        AtomicInteger completed = new AtomicInteger();
+        ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < CLIENTS; c++) {
+            boolean slow = c % 2 == 0;
+            threads.add(new Thread(() -> {
+                HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+                while (routable.get()) {
+                    try {
+                        HttpResponse<String> r = http.send(slow ? batchRequest : greetRequest,
+                                HttpResponse.BodyHandlers.ofString());
+                        boolean complete = slow
+                                ? r.body().split("\n").length == BATCH_RECORDS
+                                : r.body().contains("Hello, Ann");
+                        if (r.statusCode() != 200 || !complete) {
+                            failures.add(r.statusCode() + " " + r.uri());
+                        } else {
+                            completed.incrementAndGet();
+                        }
+                    } catch (ConnectException e) {
+                        // Listener already closed: never reached the server, a Service would retry elsewhere
+                        break;
+                    } catch (Exception e) {
+                        failures.add(e.toString());
+                    }
+                }
+            }));
+        }
+
+        // Readiness watcher: stops "routing" once /readyz stops answering 200
+        Thread watcher = new Thread(() -> {
+            HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            HttpRequest readyz = HttpRequest.newBuilder(URI.create(base + "/readyz")).build();
+            while (routable.get()) {
+                try {
+                    if (http.send(readyz, HttpResponse.BodyHandlers.ofString()).statusCode() != 200) {
+                        routable.set(false);
+                    }
+                    Thread.sleep(1);
+                } catch (Exception e) {
+                    routable.set(false);
+                }
+            }
+        });
+
+        // Act: wait until every client has a response back (cold JIT can be slow),
+        // then SIGTERM-equivalent while the load is still running
+        threads.forEach(Thread::start);
+        watcher.start();
+        long warmUpDeadline = System.nanoTime() + 10_000_000_000L;
+        while (completed.get() < CLIENTS && routable.get() && System.nanoTime() < warmUpDeadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(200);
+        long completedBeforeShutdown = completed.get();
+        app.shutdownGracefully();
+        for (Thread t : threads) t.join(10_000);
+        watcher.join(10_000);
+
+        // Assert
+        assertTrue(failures.isEmpty(), "Dropped or broken requests: " + failures);
+        assertTrue(completedBeforeShutdown > 0, "Load should have been running");
+        String metrics = app.metricsText();
+        assertTrue(metrics.contains("shutdown_drain_abandoned_requests 0\n"), metrics);
+        assertTrue(metrics.contains("lifecycle_state 2\n"), metrics);
+        String summary = app.shutdownSummary();
+        assertTrue(summary.matches(
+                "Shutdown: \\d+ request\\(s\\), \\d+ visitor\\(s\\) greeted, drained .*, 0 cut off"), summary);
+        assertFalse(summary.contains("\n"), "The summary is a single log line");
+        assertThrows(ConnectException.class, () -> new Socket("127.0.0.1", port).close(),
+                "The listener should be closed");
+    }
+
+    // ------------------------------------------------------------
+    // Test: exchanges still queued for a worker hold the drain open
+    // ------------------------------------------------------------
+    //
+    // The only worker is busy with something else when shutdown starts, so
+    // the request is queued and no handler is running yet. The drain must
+    // wait for it rather than treat "nothing running" as "nothing in flight".
+    @Test
+    public void jdkDrainWaitsForQueuedExchanges() throws Exception {
+
+        // Arrange
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        CountDownLatch submitted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        worker.execute(() -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        JdkHttpEngine engine = new JdkHttpEngine(0);
+        engine.setExecutor(task -> {
+            worker.execute(task);
+            submitted.countDown();
+        });
+        engine.createContext("/queued", ex -> {
+            byte[] body = "done".getBytes();
+            ex.sendResponseHeaders(200, body.length);
+            ex.getResponseBody().write(body);
+            ex.close();
+        });
+        engine.start();
+        URI uri = URI.create("http://127.0.0.1:" + engine.port() + "/queued");
+        ExecutorService client = Executors.newSingleThreadExecutor();
+        Future<HttpResponse<String>> response = client.submit(() -> HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1).build()
+                .send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString()));
+        assertTrue(submitted.await(10, TimeUnit.SECONDS), "The exchange should reach the executor");
+
+        // Act
+        release.countDown();
+        int abandoned = engine.stop(10_000);
+
+        // Assert
+        assertEquals(0, abandoned);
+        HttpResponse<String> r = response.get(10, TimeUnit.SECONDS);
+        assertEquals(200, r.statusCode());
+        assertEquals("done", r.body());
+        client.shutdown();
+        worker.shutdown();
+    }
+}
@@ -0,0 +1,136 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Unit + HTTP tests for POST /greet/batch (JUnit 5)
+// ------------------------------------------------------------
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GreetingBatchTest {
+
+    // ------------------------------------------------------------
+    // Test: records parse with escapes, nulls and unknown fields
+    // ------------------------------------------------------------
+    @Test
+    public void parsesFlatRecords() {
+
+        // Arrange
+        String[] fields = new String[2];
+
+        // Act + Assert
+        assertTrue(parse("{\"name\":\"Jo\\\"hn \\u00e9\",\"extra\":\"x\",\"mode\":\"pirate\"}", fields));
+        assertEquals("Jo\"hn é", fields[GreetingBatch.NAME]);
+        assertEquals("pirate", fields[GreetingBatch.MODE]);
+
+        assertTrue(parse("  { \"name\" : \"Zoë\" , \"mode\" : null }  ", fields));
+        assertEquals("Zoë", fields[GreetingBatch.NAME]);
+        assertNull(fields[GreetingBatch.MODE]);
+
+        assertTrue(parse("{}", fields));
+        assertNull(fields[GreetingBatch.NAME]);
+
+        assertFalse(parse("{\"name\":42}", fields), "Non-string values are rejected");
+        assertFalse(parse("{\"name\":\"a\"} trailing", fields), "Trailing garbage is rejected");
+        assertFalse(parse("name=John", fields), "Query syntax is not NDJSON");
+    }
+
+    // ------------------------------------------------------------
+    // Test: blank lines do not count as records
+    // ------------------------------------------------------------
+    @Test
+    public void countsNonBlankLines() {
+        byte[] body = "{\"name\":\"a\"}\n\n  \r\n{\"name\":\"b\"}\n{}".getBytes(StandardCharsets.UTF_8);
+        assertEquals(3, GreetingBatch.countRecords(body, body.length));
+    }
+
+    // ------------------------------------------------------------
+    // Test: the endpoint streams one greeting per record from one visitor range
+    // ------------------------------------------------------------
+    @ParameterizedTest
+    @ValueSource(strings = {"jdk", "nio"})
+    public void batchEndpointStreamsContiguousVisitors(String engine) throws Exception {
+
+        // Arrange
+        App app = new App();
+        app.start(0, engine);
+        try {
+            HttpClient http = HttpClient.newHttpClient();
+            URI uri = URI.create("http://127.0.0.1:" + app.port() + "/greet/batch");
+            String body = "{\"name\":\"John\",\"mode\":\"pirate\"}\n"
+                    + "not json\n"
+                    + "\n"
+                    + "{\"name\":\"Tab\\there\"}\n";
+
+            // Act
+            HttpResponse<String> response = http.send(
+                    HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            // Assert
+            assertEquals(200, response.statusCode());
+            assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("application/x-ndjson"));
+
+            String[] lines = response.body().split("\n");
+            assertEquals(3, lines.length);
+            assertTrue(lines[0].startsWith("{\"visitor\":1,\"greeting\":\"Ahoy, John! "), lines[0]);
+            assertTrue(lines[0].contains("\\nGreeting Mode: pirate\\n"), lines[0]);
+            assertEquals("{\"line\":2,\"error\":\"invalid record\"}", lines[1]);
+            assertTrue(lines[2].startsWith("{\"visitor\":3,\"greeting\":\"Hello, Tab\\there! "), lines[2]);
+
+            // The next single /greet continues after the reserved range
+            String single = http.send(
+                    HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + app.port() + "/greet")).build(),
+                    HttpResponse.BodyHandlers.ofString()).body();
+            assertTrue(single.contains("You are visitor #4\n"), single);
+        } finally {
+            app.stop();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Test: oversized batches are refused before any visitor is reserved
+    // ------------------------------------------------------------
+    @ParameterizedTest
+    @ValueSource(strings = {"jdk", "nio"})
+    public void rejectsOversizedBatch(String engine) throws Exception {
+
+        // Arrange
+        App app = new App();
+        app.start(0, engine);
+        try {
+            HttpClient http = HttpClient.newHttpClient();
+            URI uri = URI.create("http://127.0.0.1:" + app.port() + "/greet/batch");
+            StringBuilder body = new StringBuilder();
+            while (body.length() <= (1 << 20)) body.append("{\"name\":\"padding padding padding\"}\n");
+
+            // Act
+            HttpResponse<String> response = http.send(
+                    HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.ofString(body.toString())).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> get = http.send(
+                    HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+
+            // Assert
+            assertEquals(413, response.statusCode());
+            assertEquals(405, get.statusCode());
+            assertEquals(0, app.nextVisitor() - 1, "No visitor numbers should have been used");
+        } finally {
+            app.stop();
+        }
+    }
+
+    private static boolean parse(String line, String[] fields) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return GreetingBatch.parseRecord(bytes, 0, bytes.length, fields);
+    }
+}
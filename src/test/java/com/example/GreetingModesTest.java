@@ -0,0 +1,116 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Unit tests for greeting mode templates and the registry (JUnit 5)
+// ------------------------------------------------------------
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GreetingModesTest {
+
+    private static final Map<String, String> CONSTANTS = Map.of(
+            "service", "svc", "version", "1.0", "gitSha", "abc", "pod", "pod-1", "instance", "0000");
+
+    // ------------------------------------------------------------
+    // Test: constants are folded into literals, per-request values become slots
+    // ------------------------------------------------------------
+    @Test
+    public void compilesConstantsIntoLiteralSegments() {
+
+        // Act
+        GreetingTemplate t = GreetingTemplate.compile("yo",
+                "{{literal}} Yo {name} from {service}/{pod}, #{visitor}", CONSTANTS);
+
+        // Assert
+        assertEquals(2, t.slotCount());
+        assertEquals("{literal}} Yo ", new String(t.segment(0), StandardCharsets.UTF_8));
+        assertEquals(GreetingTemplate.NAME, t.slot(0));
+        assertEquals(" from svc/pod-1, #", new String(t.segment(1), StandardCharsets.UTF_8));
+        assertEquals(GreetingTemplate.VISITOR, t.slot(1));
+        assertEquals("", new String(t.segment(2), StandardCharsets.UTF_8));
+        assertEquals("{literal}} Yo Ann from svc/pod-1, #7", t.expand("Ann", 7, "normal", 1));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> GreetingTemplate.compile("bad", "Hi {nmae}", CONSTANTS));
+        assertThrows(IllegalArgumentException.class,
+                () -> GreetingTemplate.compile("bad", "Hi {name", CONSTANTS));
+    }
+
+    // ------------------------------------------------------------
+    // Test: lookups ignore case and unknown modes use the default
+    // ------------------------------------------------------------
+    @Test
+    public void unknownModesFallBackToTheDefault() {
+
+        // Arrange
+        GreetingModes modes = new GreetingModes(null, "normal", CONSTANTS);
+        String query = "mode=PiRaTe&x=1";
+
+        // Act + Assert
+        assertEquals("pirate", modes.resolve(query, 5, 11).mode());
+        assertEquals("normal", modes.resolve("grumpy").mode());
+        assertEquals("normal", modes.resolve("").mode());
+        assertEquals("normal", modes.resolve(null).mode());
+        assertTrue(modes.resolve("grumpy").expand("Ann", 1, "normal", 0).contains("Greeting Mode: normal\n"),
+                "The mode actually used is shown, not the requested one");
+    }
+
+    // ------------------------------------------------------------
+    // Test: directory modes are added and reloaded on change
+    // ------------------------------------------------------------
+    @Test
+    public void reloadsModesFromDirectory(@TempDir Path dir) throws Exception {
+
+        // Arrange
+        Files.write(dir.resolve("Shout.tmpl"), "HEY {name}!\n".getBytes(StandardCharsets.UTF_8));
+        GreetingModes modes = new GreetingModes(dir, "normal", CONSTANTS);
+        GreetingTemplate before = modes.resolve("shout");
+
+        // Act: change one mode, add another, then break the set
+        Files.write(dir.resolve("Shout.tmpl"), "HEY {name}!!\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("whisper.tmpl"), "psst {name}\n".getBytes(StandardCharsets.UTF_8));
+        boolean reloaded = modes.reload();
+        Files.write(dir.resolve("broken.tmpl"), "{nope}".getBytes(StandardCharsets.UTF_8));
+        boolean brokenReloaded = modes.reload();
+
+        // Assert
+        assertEquals("HEY Ann!\n", before.expand("Ann", 1, "normal", 0), "Held templates are not mutated");
+        assertTrue(reloaded);
+        assertEquals("HEY Ann!!\n", modes.resolve("SHOUT").expand("Ann", 1, "normal", 0));
+        assertEquals("whisper", modes.resolve("whisper").mode());
+        assertEquals(4, modes.size(), "Two built-ins plus two files");
+        assertFalse(brokenReloaded, "A broken template keeps the previous set");
+        assertEquals(4, modes.size());
+    }
+
+    // ------------------------------------------------------------
+    // Test: thousands of modes all resolve to themselves
+    // ------------------------------------------------------------
+    @Test
+    public void largeTablesResolveEveryMode() {
+
+        // Arrange
+        Map<String, String> sources = new LinkedHashMap<>();
+        for (int i = 0; i < 5000; i++) sources.put("mode-" + i, "Hi {name} (" + i + ")");
+        sources.put("normal", "Hello {name}");
+
+        // Act
+        GreetingModes.Table table = GreetingModes.compile(sources, CONSTANTS, "normal");
+
+        // Assert
+        for (int i = 0; i < 5000; i++) {
+            String mode = "MODE-" + i;
+            assertEquals("mode-" + i, table.find(mode, 0, mode.length()).mode());
+        }
+        assertEquals("normal", table.find("mode-5000", 0, 9).mode());
+    }
+}
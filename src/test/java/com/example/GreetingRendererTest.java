@@ -0,0 +1,139 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Unit tests for the allocation-free greeting renderer (JUnit 5)
+// ------------------------------------------------------------
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GreetingRendererTest {
+
+    // Queries as URI.getQuery() hands them to /greet (already URI-decoded once)
+    private static final String[] QUERIES = {
+            null,
+            "",
+            "name=John",
+            "name=John&mode=pirate",
+            "mode=PiRaTe&name=Ann+Marie",
+            "name=%41lice%21&mode=normal",
+            "name=Zoë&mode=grumpy",
+            "name=😀 face",
+            "name=bad%zz",
+            "name=%E2%82%AC",
+            "name=trailing%",
+            "name",
+            "name=&mode=",
+            "other=1&name=first&name=second",
+            "mode=pirate",
+            "&&&name=Bo&&mode=pirate",
+            "flag&name=a=b&mode",
+    };
+
+    // ------------------------------------------------------------
+    // Test: output is byte-identical to buildGreeting for every query
+    // ------------------------------------------------------------
+    @Test
+    public void renderMatchesBuildGreetingByteForByte() {
+
+        // Arrange
+        App app = new App();
+        ByteSink sink = new ByteSink(64);
+
+        for (String query : QUERIES) {
+            // Act: reference path exactly as the original /greet handler did it
+            String name = App.queryParamDecoded(query, "name", "World");
+            String mode = App.queryParam(query, "mode", "normal");
+            byte[] expected = app.buildGreeting(name, 42, mode, 7)
+                    .getBytes(StandardCharsets.UTF_8);
+
+            byte[] actual = app.renderGreeting(sink.reset(), query, 42, 7).toByteArray();
+
+            // Assert
+            assertArrayEquals(expected, actual, "Rendering differs for query: " + query);
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Test: compiled rendering matches the template source walked directly
+    // ------------------------------------------------------------
+    @Test
+    public void compiledRenderingMatchesTemplateSource() {
+
+        // Arrange
+        Map<String, String> constants = Map.of(
+                "service", "svc", "version", "1.0", "gitSha", "abc", "pod", "pod-1", "instance", "0000");
+        GreetingModes modes = new GreetingModes(null, "normal", constants);
+        GreetingRenderer renderer = new GreetingRenderer(modes);
+        ByteSink sink = new ByteSink(64);
+        GreetingTemplate edge = GreetingTemplate.compile("edge",
+                "{{x}} {name}{name} ë {service}#{visitor}{uptime}{appMode}/{mode}", constants);
+
+        // Act + Assert
+        assertEquals(expandSource(edge.source(), constants, "edge", "Zoë", 42, "normal", 7),
+                edge.expand("Zoë", 42, "normal", 7));
+        for (String mode : GreetingModes.BUILT_IN) {
+            GreetingTemplate template = modes.resolve(mode);
+            String expected = expandSource(template.source(), constants, mode, "Zoë", 42, "normal", 7);
+
+            assertEquals(expected, template.expand("Zoë", 42, "normal", 7), mode);
+            assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8),
+                    renderer.render(sink.reset(), "name=Zoë&mode=" + mode, 42, "normal", 7).toByteArray(), mode);
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Test: the per-thread sink is reused across requests
+    // ------------------------------------------------------------
+    @Test
+    public void perThreadSinkIsReusedAndReset() {
+
+        // Arrange
+        ByteSink first = ByteSink.forThread().appendAscii("leftover");
+
+        // Act
+        ByteSink second = ByteSink.forThread();
+
+        // Assert
+        assertSame(first, second, "Same thread should get the same buffer");
+        assertEquals(0, second.length(), "Buffer should come back empty");
+    }
+
+    // ------------------------------------------------------------
+    // Helpers
+    // ------------------------------------------------------------
+
+    // Reference expansion straight from the source text, without the compiled form
+    private static String expandSource(String source, Map<String, String> constants, String mode,
+                                       String name, long visitorNumber, String appMode, long uptimeSeconds) {
+        StringBuilder out = new StringBuilder();
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c != '{') {
+                out.append(c);
+                i++;
+            } else if (source.charAt(i + 1) == '{') {
+                out.append('{');
+                i += 2;
+            } else {
+                int close = source.indexOf('}', i + 1);
+                String placeholder = source.substring(i + 1, close);
+                switch (placeholder) {
+                    case "name":    out.append(name); break;
+                    case "visitor": out.append(visitorNumber); break;
+                    case "mode":    out.append(mode); break;
+                    case "appMode": out.append(appMode); break;
+                    case "uptime":  out.append(uptimeSeconds); break;
+                    default:        out.append(constants.get(placeholder)); break;
+                }
+                i = close + 1;
+            }
+        }
+        return out.toString();
+    }
+}
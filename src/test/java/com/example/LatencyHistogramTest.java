@@ -0,0 +1,69 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Unit tests for the fixed-memory latency histogram (JUnit 5)
+// ------------------------------------------------------------
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    // ------------------------------------------------------------
+    // Test: every value falls inside the bounds of its slot
+    // ------------------------------------------------------------
+    @Test
+    public void slotsCoverValuesWithBoundedError() {
+        for (long micros = 0; micros < 5_000_000; micros = micros * 2 + 1) {
+            int slot = LatencyHistogram.slotIndex(micros);
+            long upper = LatencyHistogram.slotUpperBoundMicros(slot);
+            long lower = slot == 0 ? 0 : LatencyHistogram.slotUpperBoundMicros(slot - 1);
+
+            assertTrue(micros >= lower && micros < upper, "Value " + micros + " outside slot " + slot);
+            assertTrue(upper - lower <= Math.max(1, micros / 4 + 1), "Slot too wide for " + micros);
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Test: Prometheus output is cumulative and ends with +Inf/_sum/_count
+    // ------------------------------------------------------------
+    @Test
+    public void prometheusExportIsCumulative() {
+
+        // Arrange: 3 fast (50us), 1 slow (2ms)
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 3; i++) histogram.recordNanos(50_000);
+        histogram.recordNanos(2_000_000);
+
+        // Act
+        MetricsWriter w = MetricsWriter.buffered(MetricsWriter.Format.PROMETHEUS);
+        histogram.writeMetrics(w, "lat", "/greet");
+        String text = w.text();
+
+        // Assert
+        assertTrue(text.contains("lat_bucket{route=\"/greet\",le=\"0.000064\"} 3\n"), text);
+        assertTrue(text.contains("lat_bucket{route=\"/greet\",le=\"0.002048\"} 4\n"), text);
+        assertTrue(text.contains("lat_bucket{route=\"/greet\",le=\"+Inf\"} 4\n"), text);
+        assertTrue(text.contains("lat_sum{route=\"/greet\"} 0.00215\n"), text);
+        assertTrue(text.contains("lat_count{route=\"/greet\"} 4\n"), text);
+        assertEquals(2_048_000, histogram.quantileNanos(0.99), "p99 should land in the slow slot");
+    }
+
+    // ------------------------------------------------------------
+    // Test: seconds are plain decimals at microsecond precision
+    // ------------------------------------------------------------
+    @Test
+    public void formatsSecondsAsPlainDecimals() {
+
+        // Act + Assert
+        assertEquals("0", LatencyHistogram.formatSeconds(0));
+        assertEquals("0", LatencyHistogram.formatSeconds(999));
+        assertEquals("0.000001", LatencyHistogram.formatSeconds(1_000));
+        assertEquals("0.0015", LatencyHistogram.formatSeconds(1_500_000));
+        assertEquals("0.10203", LatencyHistogram.formatSeconds(102_030_000));
+        assertEquals("2", LatencyHistogram.formatSeconds(2_000_000_000L));
+        assertEquals("123.456789", LatencyHistogram.formatSeconds(123_456_789_999L));
+        assertEquals("9223372036.854775", LatencyHistogram.formatSeconds(Long.MAX_VALUE));
+    }
+}
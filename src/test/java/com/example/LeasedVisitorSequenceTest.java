@@ -0,0 +1,183 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Multi-process tests for cluster-wide visitor numbering (JUnit 5)
+// ------------------------------------------------------------
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LeasedVisitorSequenceTest {
+
+    private static final Pattern VISITOR = Pattern.compile("visitor #(\\d+)");
+
+    @TempDir
+    Path tempDir;
+
+    // ------------------------------------------------------------
+    // Test: instances sharing a lease file get disjoint ranges
+    // ------------------------------------------------------------
+    @Test
+    public void instancesLeaseDisjointRanges() throws Exception {
+
+        // Arrange
+        Path file = tempDir.resolve("leases.dat");
+        Set<Long> seen = new HashSet<>();
+
+        try (LeasedVisitorSequence a = LeasedVisitorSequence.open(file, 10);
+             LeasedVisitorSequence b = LeasedVisitorSequence.open(file, 10)) {
+
+            // Act: interleave so both keep re-leasing
+            for (int i = 0; i < 100; i++) {
+                assertTrue(seen.add(a.next()), "Duplicate from instance A");
+                assertTrue(seen.add(b.next()), "Duplicate from instance B");
+            }
+        }
+
+        // Assert: reopening continues after everything leased so far
+        try (LeasedVisitorSequence c = LeasedVisitorSequence.open(file, 10)) {
+            long next = c.next();
+            assertTrue(seen.stream().allMatch(n -> n < next), "New lease must start above old ones");
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Test: reserved ranges are contiguous and never overlap next()
+    // ------------------------------------------------------------
+    @Test
+    public void reservedRangesAreContiguousAndDisjoint() throws Exception {
+
+        // Arrange
+        Path file = tempDir.resolve("leases.dat");
+        Set<Long> seen = new HashSet<>();
+
+        try (LeasedVisitorSequence seq = LeasedVisitorSequence.open(file, 10)) {
+
+            // Act: ranges smaller than, straddling and larger than a lease
+            for (int count : new int[] {3, 7, 4, 25, 1}) {
+                long first = seq.reserve(count);
+                for (long n = first; n < first + count; n++) {
+                    assertTrue(seen.add(n), "Reserved number handed out twice: " + n);
+                }
+                assertTrue(seen.add(seq.next()), "next() must not return a reserved number");
+            }
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Test: several App processes never hand out the same visitor number
+    // ------------------------------------------------------------
+    @Test
+    public void appProcessesHandOutUniqueVisitorNumbers() throws Exception {
+
+        // Arrange: three App JVMs on one machine sharing one lease file
+        Path leaseFile = tempDir.resolve("cluster-leases.dat");
+        int instances = 3;
+        int requestsPerInstance = 1500;
+
+        List<Process> processes = new ArrayList<>();
+        List<Integer> ports = new ArrayList<>();
+        ExecutorService clients = Executors.newFixedThreadPool(6);
+
+        try {
+            for (int i = 0; i < instances; i++) {
+                int port = freePort();
+                ports.add(port);
+                processes.add(startApp(port, leaseFile));
+            }
+
+            HttpClient http = HttpClient.newHttpClient();
+            for (int port : ports) awaitHealthy(http, port);
+
+            // Act: hit all instances concurrently
+            ConcurrentLinkedQueue<Long> numbers = new ConcurrentLinkedQueue<>();
+            List<Future<?>> work = new ArrayList<>();
+            long started = System.nanoTime();
+
+            for (int port : ports) {
+                for (int worker = 0; worker < 2; worker++) {
+                    work.add(clients.submit(() -> {
+                        HttpRequest greet = HttpRequest.newBuilder(
+                                URI.create("http://127.0.0.1:" + port + "/greet")).build();
+                        for (int r = 0; r < requestsPerInstance / 2; r++) {
+                            String body = http.send(greet, HttpResponse.BodyHandlers.ofString()).body();
+                            Matcher m = VISITOR.matcher(body);
+                            assertTrue(m.find(), "Greeting should include a visitor number");
+                            numbers.add(Long.parseLong(m.group(1)));
+                        }
+                        return null;
+                    }));
+                }
+            }
+            for (Future<?> f : work) f.get(120, TimeUnit.SECONDS);
+            double seconds = (System.nanoTime() - started) / 1e9;
+
+            // Assert: globally unique, and no per-request coordination slowing things down
+            int total = instances * requestsPerInstance;
+            assertEquals(total, numbers.size());
+            assertEquals(total, new HashSet<>(numbers).size(), "Visitor numbers must be unique across instances");
+            assertTrue(total / seconds > 100, "Throughput too low: " + (total / seconds) + " req/s");
+
+        } finally {
+            clients.shutdownNow();
+            for (Process p : processes) p.destroyForcibly();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Helpers
+    // ------------------------------------------------------------
+
+    private static Process startApp(int port, Path leaseFile) throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder pb = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                App.class.getName());
+        pb.environment().put("PORT", String.valueOf(port));
+        pb.environment().put("VISITOR_LEASE_FILE", leaseFile.toString());
+        pb.environment().put("VISITOR_LEASE_SIZE", "100");
+        pb.redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        return pb.start();
+    }
+
+    private static void awaitHealthy(HttpClient http, int port) throws Exception {
+        HttpRequest healthz = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/healthz")).build();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (System.nanoTime() < deadline) {
+            try {
+                if (http.send(healthz, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) return;
+            } catch (ConnectException notYet) {
+                // Still starting
+            }
+            Thread.sleep(100);
+        }
+        fail("App on port " + port + " did not become healthy");
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
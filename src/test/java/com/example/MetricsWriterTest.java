@@ -0,0 +1,74 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Unit tests for the streaming metrics writer (JUnit 5)
+// ------------------------------------------------------------
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsWriterTest {
+
+    // ------------------------------------------------------------
+    // Test: OpenMetrics renames counter families and ends with # EOF
+    // ------------------------------------------------------------
+    @Test
+    public void openMetricsUsesTotalSuffixAndEof() {
+
+        // Arrange
+        MetricsWriter w = MetricsWriter.buffered(MetricsWriter.Format.OPENMETRICS);
+
+        // Act
+        w.counter("requests_total", 5);
+        w.counter("requests_by_path").sample("requests_by_path", "path", "/greet", 2);
+        w.gauge("service_uptime_seconds", 9);
+        w.finish();
+
+        // Assert
+        assertEquals("# TYPE requests counter\n"
+                + "requests_total 5\n"
+                + "# TYPE requests_by_path counter\n"
+                + "requests_by_path_total{path=\"/greet\"} 2\n"
+                + "# TYPE service_uptime_seconds gauge\n"
+                + "service_uptime_seconds 9\n"
+                + "# EOF\n", w.text());
+    }
+
+    // ------------------------------------------------------------
+    // Test: streamed output equals buffered output, labels are escaped
+    // ------------------------------------------------------------
+    @Test
+    public void streamingMatchesBufferedOutput() {
+
+        // Arrange: enough samples to force several intermediate flushes
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MetricsWriter streamed = MetricsWriter.streaming(out, MetricsWriter.Format.PROMETHEUS);
+        MetricsWriter buffered = MetricsWriter.buffered(MetricsWriter.Format.PROMETHEUS);
+
+        // Act
+        for (MetricsWriter w : new MetricsWriter[] {streamed, buffered}) {
+            w.gauge("lines");
+            for (int i = 0; i < 2000; i++) w.sample("lines", "path", "/p\"" + i, i);
+            w.finish();
+        }
+
+        // Assert
+        assertEquals(buffered.text(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+        assertTrue(buffered.text().contains("lines{path=\"/p\\\"7\"} 7\n"), "Quotes in labels must be escaped");
+    }
+
+    // ------------------------------------------------------------
+    // Test: format negotiation via the Accept header
+    // ------------------------------------------------------------
+    @Test
+    public void acceptHeaderSelectsFormat() {
+        assertEquals(MetricsWriter.Format.PROMETHEUS, MetricsWriter.Format.negotiate(null));
+        assertEquals(MetricsWriter.Format.OPENMETRICS, MetricsWriter.Format.negotiate(
+                Collections.singletonList("application/openmetrics-text; version=1.0.0,text/plain;q=0.5")));
+    }
+}
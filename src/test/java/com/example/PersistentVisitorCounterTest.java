@@ -0,0 +1,121 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Unit + crash-recovery tests for the persistent visitor counter (JUnit 5)
+// ------------------------------------------------------------
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentVisitorCounterTest {
+
+    @TempDir
+    Path tempDir;
+
+    // ------------------------------------------------------------
+    // Test: numbering resumes above everything reserved before a restart
+    // ------------------------------------------------------------
+    @Test
+    public void restartResumesAboveReservedBlock() throws Exception {
+
+        // Arrange
+        Path file = tempDir.resolve("visitors.dat");
+        try (PersistentVisitorCounter counter = PersistentVisitorCounter.open(file, 1000, 50)) {
+            for (int i = 0; i < 1500; i++) counter.next();
+            assertEquals(1500, counter.current());
+            assertEquals(2000, counter.ceiling(), "Two blocks should be reserved");
+        }
+
+        // Act
+        try (PersistentVisitorCounter reopened = PersistentVisitorCounter.open(file, 1000, 50)) {
+
+            // Assert: the unused tail of the last block is skipped, never reused
+            assertEquals(2001, reopened.next());
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Test: a torn reservation write falls back to the other slot
+    // ------------------------------------------------------------
+    @Test
+    public void tornSlotWriteIsIgnoredOnRecovery() throws Exception {
+
+        // Arrange: ceilings 1000 (slot A) then 2000 (slot B)
+        Path file = tempDir.resolve("visitors.dat");
+        try (PersistentVisitorCounter counter = PersistentVisitorCounter.open(file, 1000, 50)) {
+            for (int i = 0; i < 1500; i++) counter.next();
+        }
+
+        // Act: simulate dying halfway through the next reservation (into slot A)
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.wrap(new byte[] {0x7f, 0x7f, 0x7f, 0x7f}), 8);
+        }
+
+        // Assert
+        try (PersistentVisitorCounter reopened = PersistentVisitorCounter.open(file, 1000, 50)) {
+            assertEquals(2001, reopened.next());
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Test: kill -9 while counting never causes a number to be reused
+    // ------------------------------------------------------------
+    @Test
+    public void killDuringWritesNeverReusesNumbers() throws Exception {
+
+        // Arrange: a separate JVM counting as fast as it can with small blocks
+        Path file = tempDir.resolve("visitors.dat");
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process child = new ProcessBuilder(java,
+                "-cp", System.getProperty("java.class.path"),
+                Writer.class.getName(), file.toString())
+                .redirectErrorStream(true)
+                .start();
+
+        // Act: let it get well past a few reservations, then SIGKILL it mid-stream
+        long lastSeen = 0;
+        try (BufferedReader out = new BufferedReader(
+                new InputStreamReader(child.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                lastSeen = Long.parseLong(line.trim());
+                if (lastSeen >= 200_000) break;
+            }
+            child.destroyForcibly();
+            assertTrue(child.waitFor(10, TimeUnit.SECONDS), "Child should die");
+        }
+        assertTrue(lastSeen >= 200_000, "Child should have reported progress");
+
+        // Assert: the recovered counter starts above anything the child handed out
+        try (PersistentVisitorCounter reopened = PersistentVisitorCounter.open(file, 97, 50)) {
+            assertTrue(reopened.next() > lastSeen, "Recovered numbering must not reuse numbers");
+        }
+    }
+
+    // Child process for the crash test: counts forever, reporting progress
+    public static final class Writer {
+        public static void main(String[] args) throws Exception {
+            PersistentVisitorCounter counter = PersistentVisitorCounter.open(Paths.get(args[0]), 97, 5);
+            while (true) {
+                long n = counter.next();
+                if (n % 10_000 == 0) {
+                    System.out.println(n);
+                    System.out.flush();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Unit + HTTP tests for profiling and JVM telemetry (JUnit 5)
+// ------------------------------------------------------------
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProfilerTest {
+
+    // ------------------------------------------------------------
+    // Test: off by default: /debug/profile is hidden, nothing is sampled
+    // ------------------------------------------------------------
+    @Test
+    public void disabledByDefault() throws Exception {
+
+        // Arrange
+        App app = new App(new Lifecycle(0, 1_000), new Profiler(false, 60, 1.0));
+        app.start(0, "jdk");
+        HttpClient http = HttpClient.newHttpClient();
+
+        try {
+            // Act
+            HttpResponse<String> profile = get(http, app, "/debug/profile?seconds=1");
+            get(http, app, "/greet?name=Ann");
+            String metrics = get(http, app, "/metrics").body();
+
+            // Assert
+            assertEquals(404, profile.statusCode());
+            assertTrue(metrics.contains("profiling_enabled 0\n"), metrics);
+            assertFalse(metrics.contains("http_request_cpu_seconds_total"), metrics);
+            assertTrue(metrics.contains("jvm_threads_live "), metrics);
+        } finally {
+            app.stop();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Test: /debug/profile returns a JFR file; bad durations are rejected
+    // ------------------------------------------------------------
+    @Test
+    public void recordsJfrFile() throws Exception {
+
+        // Arrange
+        App app = new App(new Lifecycle(0, 1_000), new Profiler(true, 5, 1.0));
+        app.start(0, "jdk");
+        HttpClient http = HttpClient.newHttpClient();
+
+        try {
+            // Act
+            HttpResponse<byte[]> profile = http.send(request(app, "/debug/profile?seconds=1&settings=default"),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            HttpResponse<String> tooLong = get(http, app, "/debug/profile?seconds=6");
+            HttpResponse<String> badSettings = get(http, app, "/debug/profile?seconds=1&settings=verbose");
+
+            // Assert
+            assertEquals(200, profile.statusCode());
+            assertEquals("application/octet-stream", profile.headers().firstValue("Content-Type").orElse(""));
+            assertTrue(profile.headers().firstValue("Content-Disposition").orElse("").endsWith(".jfr\""));
+            assertEquals("FLR", new String(profile.body(), 0, 3, StandardCharsets.US_ASCII));
+            assertEquals(400, tooLong.statusCode());
+            assertEquals("seconds must be between 1 and 5\n", tooLong.body());
+            assertEquals(400, badSettings.statusCode());
+        } finally {
+            app.stop();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Test: only one recording at a time
+    // ------------------------------------------------------------
+    @Test
+    public void rejectsConcurrentRecording() throws Exception {
+
+        // Arrange
+        Profiler profiler = new Profiler(true, 5, 1.0);
+        CompletableFuture<Path> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return profiler.record("1", "default");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        waitFor(() -> metricsText(profiler).contains("profiling_recording_active 1\n"));
+
+        // Act
+        IllegalStateException busy = assertThrows(IllegalStateException.class,
+                () -> profiler.record("1", "default"));
+        Path file = first.get();
+
+        // Assert
+        try {
+            assertTrue(busy.getMessage().contains("already running"));
+            assertTrue(Files.size(file) > 0);
+            assertTrue(metricsText(profiler).contains("profiling_recordings_total{result=\"rejected\"} 1\n"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Test: sampled requests add CPU time and allocation to their route
+    // ------------------------------------------------------------
+    @Test
+    public void accountsCpuAndAllocationPerRoute() throws Exception {
+
+        // Arrange
+        App app = new App(new Lifecycle(0, 1_000), new Profiler(true, 60, 1.0));
+        app.start(0, "jdk");
+        HttpClient http = HttpClient.newHttpClient();
+
+        try {
+            // Act
+            for (int i = 0; i < 3; i++) get(http, app, "/greet?name=Ann");
+            String metrics = get(http, app, "/metrics").body();
+
+            // Assert
+            assertTrue(metrics.contains("http_request_resource_samples_total{route=\"/greet\"} 3\n"), metrics);
+            assertTrue(metrics.contains("http_request_cpu_seconds_total{route=\"/greet\"} "), metrics);
+            assertFalse(metrics.contains("http_request_allocated_bytes_total{route=\"/greet\"} 0\n"), metrics);
+            assertTrue(metrics.contains("profiling_enabled 1\n"), metrics);
+        } finally {
+            app.stop();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Test: GC, allocation, memory, buffer pool and safepoint metrics
+    // ------------------------------------------------------------
+    @Test
+    public void exportsJvmMetrics() throws Exception {
+
+        // Arrange
+        JvmMetrics jvm = JvmMetrics.shared();
+        jvm.retainSafepoints();
+        try {
+            waitFor(jvm::safepointStreamRunning);
+            long allocatedBefore = jvm.allocatedBytes();
+            long safepointsBefore = jvm.safepoints();
+
+            // Act: allocate, then force a collection (a safepoint as well)
+            byte[][] garbage = new byte[64][];
+            for (int i = 0; i < garbage.length; i++) garbage[i] = new byte[64 * 1024];
+            ChaosFaults.sink = garbage;
+            System.gc();
+            waitFor(() -> jvm.allocatedBytes() > allocatedBefore && jvm.safepoints() > safepointsBefore);
+
+            MetricsWriter w = MetricsWriter.buffered(MetricsWriter.Format.PROMETHEUS);
+            jvm.writeMetrics(w);
+            String metrics = w.text();
+
+            // Assert
+            assertTrue(metrics.contains("# TYPE jvm_gc_collections_total counter\njvm_gc_collections_total{gc=\""),
+                    metrics);
+            assertTrue(metrics.contains("jvm_memory_used_bytes{area=\"heap\"} "), metrics);
+            assertTrue(metrics.contains("jvm_buffer_pool_used_bytes{pool=\"direct\"} "), metrics);
+            assertTrue(metrics.contains("jvm_safepoint_seconds_total "), metrics);
+            assertFalse(metrics.contains("jvm_gc_allocated_bytes_total 0\n"), metrics);
+        } finally {
+            jvm.releaseSafepoints();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Test: safepoints are exported without profiling; stop() ends the JFR stream
+    // ------------------------------------------------------------
+    @Test
+    public void safepointStreamFollowsAppLifecycle() throws Exception {
+
+        // Arrange
+        App app = new App(new Lifecycle(0, 1_000), new Profiler(false, 60, 1.0));
+        app.start(0, "jdk");
+        HttpClient http = HttpClient.newHttpClient();
+
+        // Act
+        String metrics;
+        try {
+            waitFor(JvmMetrics.shared()::safepointStreamRunning);
+            metrics = get(http, app, "/metrics").body();
+        } finally {
+            app.stop();
+        }
+        waitFor(() -> Thread.getAllStackTraces().keySet().stream()
+                .noneMatch(t -> t.isAlive() && t.getName().startsWith("JFR Event Stream")));
+
+        // Assert
+        assertTrue(metrics.contains("jvm_safepoints_total "), metrics);
+        assertTrue(metrics.contains("jvm_safepoint_sync_seconds_total "), metrics);
+    }
+
+    // ------------------------------------------------------------
+    // Helpers
+    // ------------------------------------------------------------
+
+    private static HttpRequest request(App app, String path) {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + app.port() + path)).build();
+    }
+
+    private static HttpResponse<String> get(HttpClient http, App app, String path) throws Exception {
+        return http.send(request(app, path), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String metricsText(Profiler profiler) {
+        MetricsWriter w = MetricsWriter.buffered(MetricsWriter.Format.PROMETHEUS);
+        profiler.writeMetrics(w);
+        return w.text();
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) Thread.sleep(20);
+        assertTrue(condition.getAsBoolean(), "condition not reached in 10s");
+    }
+}
@@ -0,0 +1,66 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Unit tests for route-normalised request counters (JUnit 5)
+// ------------------------------------------------------------
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestCountersTest {
+
+    // ------------------------------------------------------------
+    // Test: paths are labelled by route context, the rest is "other"
+    // ------------------------------------------------------------
+    @Test
+    public void pathsAreNormalisedToRouteContexts() {
+
+        // Arrange
+        RequestCounters counters = new RequestCounters(64);
+        counters.registerRoute("/");
+        counters.registerRoute("/greet");
+        counters.registerRoute("/metrics");
+
+        // Act
+        counters.record("/");
+        counters.record("/greet");
+        counters.record("/greet/batch");
+        counters.record("/greeting");
+        counters.record("/favicon.ico");
+        counters.record("/wp-admin/setup.php");
+
+        // Assert
+        assertEquals(6, counters.total());
+        assertEquals(1, counters.count("/"));
+        assertEquals(2, counters.count("/greet"), "Sub-paths count towards their context");
+        assertEquals(3, counters.count(RequestCounters.OVERFLOW_LABEL), "Unknown paths share one bucket");
+        assertEquals(3, counters.labelCount(), "Scanned paths must not create labels");
+    }
+
+    // ------------------------------------------------------------
+    // Test: routes beyond the cardinality cap fall into the overflow bucket
+    // ------------------------------------------------------------
+    @Test
+    public void labelsAreCappedWithOverflowBucket() {
+
+        // Arrange: room for two labels only
+        RequestCounters counters = new RequestCounters(2);
+        counters.registerRoute("/a");
+        counters.registerRoute("/b");
+        counters.registerRoute("/c");
+
+        // Act
+        counters.record("/a");
+        counters.record("/c");
+
+        // Assert
+        assertEquals(2, counters.labelCount());
+        assertEquals(1, counters.count("/a"));
+        assertEquals(1, counters.count(RequestCounters.OVERFLOW_LABEL));
+
+        MetricsWriter w = MetricsWriter.buffered(MetricsWriter.Format.PROMETHEUS);
+        counters.writeMetrics(w);
+        assertTrue(w.text().contains("requests_by_path{path=\"other\"} 1"), "Overflow bucket should be exported");
+    }
+}
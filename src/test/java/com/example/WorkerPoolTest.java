@@ -0,0 +1,74 @@
+package com.example;
+
+// ------------------------------------------------------------
+// Unit tests for the bounded worker pool (JUnit 5)
+// ------------------------------------------------------------
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkerPoolTest {
+
+    // ------------------------------------------------------------
+    // Test: a saturated pool runs the task on the caller, flagged as shed
+    // ------------------------------------------------------------
+    @Test
+    public void saturatedPoolShedsOnCallerThread() throws Exception {
+
+        // Arrange: one worker, no queue
+        WorkerPool pool = new WorkerPool("pool", 1, 0, 2);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try {
+            pool.execute(() -> {
+                started.countDown();
+                try { release.await(); } catch (InterruptedException ignored) {}
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS), "Worker should pick up the first task");
+
+            // Act: the second task has nowhere to go
+            AtomicBoolean shed = new AtomicBoolean(false);
+            Thread caller = Thread.currentThread();
+            pool.execute(() -> shed.set(WorkerPool.isShedding() && Thread.currentThread() == caller));
+
+            // Assert
+            assertTrue(shed.get(), "Rejected task should run on the caller with the shedding flag");
+            assertFalse(WorkerPool.isShedding(), "Shedding flag must be cleared afterwards");
+            assertEquals(1, pool.rejections(), "Rejection should be counted");
+            assertEquals(2, pool.retryAfterSeconds());
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Test: saturation gauges are exported in either mode
+    // ------------------------------------------------------------
+    @Test
+    public void metricsExposeSaturationGauges() {
+
+        // Arrange
+        WorkerPool pool = new WorkerPool("virtual", 2, 4, 1);
+
+        try {
+            // Act
+            MetricsWriter w = MetricsWriter.buffered(MetricsWriter.Format.PROMETHEUS);
+            pool.writeMetrics(w);
+
+            // Assert: gauges are present whichever mode the JDK allows
+            String text = w.text();
+            assertTrue(text.contains("worker_active_threads "), "Active workers gauge expected");
+            assertTrue(text.contains("worker_queue_depth "), "Queue depth gauge expected");
+            assertTrue(text.contains("worker_rejections_total 0"), "Rejections counter expected");
+        } finally {
+            pool.shutdown();
+        }
+    }
+}